@@ -0,0 +1,561 @@
+package com.opendroid.db.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.ForeignKey;
+import com.opendroid.db.dao.annotations.Index;
+import com.opendroid.db.dao.annotations.Indexed;
+import com.opendroid.db.dao.annotations.Table;
+
+/**
+ * Generates an {@code EntityMapper} named <code>&lt;Model&gt;_Mapper</code> for every
+ * {@link Table} annotated model. The mappers read cursors by index, bind values
+ * directly and carry the CREATE TABLE and CREATE INDEX statements as constants, so no reflection
+ * is needed at runtime.
+ *
+ * @author Rishi K
+ */
+@SupportedAnnotationTypes("com.opendroid.db.dao.annotations.Table")
+public class MapperProcessor extends AbstractProcessor {
+
+	private static final String SUFFIX = "_Mapper";
+	/** Same as {@code DAO.ID}. */
+	private static final String ID = "_id";
+
+	/** Same as {@code ColumnTypes.CHUNKED_BLOB}. */
+	private static final String CHUNKED_BLOB = "CHUNKED_BLOB";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(Table.class)) {
+			if (element.getKind() != ElementKind.CLASS) {
+				error(element, "@Table can only be used on classes");
+				continue;
+			}
+			TypeElement type = (TypeElement) element;
+			List<Property> properties = properties(type);
+			if (properties != null && validate(type, properties) && accessible(type)) {
+				write(type, properties);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Collects the {@link Column} fields of a model and its superclasses, superclass fields first.
+	 */
+	private List<Property> properties(TypeElement type) {
+		LinkedList<TypeElement> hierarchy = new LinkedList<TypeElement>();
+		for (TypeElement t = type; t != null; t = superclass(t)) {
+			hierarchy.addFirst(t);
+		}
+		List<Property> properties = new ArrayList<Property>();
+		boolean valid = true;
+		for (TypeElement t : hierarchy) {
+			for (Element member : t.getEnclosedElements()) {
+				Column column = member.getAnnotation(Column.class);
+				if (member.getKind() != ElementKind.FIELD || column == null) {
+					continue;
+				}
+				VariableElement field = (VariableElement) member;
+				Set<Modifier> modifiers = field.getModifiers();
+				if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+						|| modifiers.contains(Modifier.FINAL)) {
+					error(field, "@Column fields must be non-private, non-static and non-final");
+					valid = false;
+					continue;
+				}
+				Kind kind = Kind.of(field.asType());
+				if (kind == null) {
+					error(field, "Unsupported @Column type " + field.asType());
+					valid = false;
+					continue;
+				}
+				String references = null;
+				ForeignKey foreignKey = field.getAnnotation(ForeignKey.class);
+				if (foreignKey != null) {
+					references = referencedTable(foreignKey);
+					if (references == null) {
+						error(field, "@ForeignKey has to reference a @Table model");
+						valid = false;
+						continue;
+					}
+					if (foreignKey.onDelete().length() > 0) {
+						references += " ON DELETE " + foreignKey.onDelete();
+					}
+				}
+				properties.add(new Property(field.getSimpleName().toString(), column,
+						field.getAnnotation(Id.class) != null, field.getAnnotation(Indexed.class), references, kind));
+			}
+		}
+		return valid ? properties : null;
+	}
+
+	/**
+	 * Checks that the mapper, generated in the model's package, can access every {@link Column}
+	 * field. A protected or package-private field inherited from a superclass in another package
+	 * cannot be, no mapper is generated then and the model is mapped by reflection.
+	 */
+	private boolean accessible(TypeElement type) {
+		PackageElement modelPackage = processingEnv.getElementUtils().getPackageOf(type);
+		for (TypeElement t = superclass(type); t != null; t = superclass(t)) {
+			if (processingEnv.getElementUtils().getPackageOf(t).equals(modelPackage)) {
+				continue;
+			}
+			for (Element member : t.getEnclosedElements()) {
+				if (member.getKind() == ElementKind.FIELD && member.getAnnotation(Column.class) != null
+						&& !member.getModifiers().contains(Modifier.PUBLIC)) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Field " + t.getSimpleName()
+							+ "." + member.getSimpleName() + " is not accessible from " + modelPackage
+							+ ", no mapper is generated for " + type.getSimpleName() + " and it is mapped by reflection",
+							type);
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the table name of a {@link ForeignKey}'s model, whose class cannot be loaded while compiling.
+	 */
+	private String referencedTable(ForeignKey foreignKey) {
+		TypeMirror model;
+		try {
+			foreignKey.value();
+			return null;
+		} catch (MirroredTypeException e) {
+			model = e.getTypeMirror();
+		}
+		Element element = processingEnv.getTypeUtils().asElement(model);
+		Table table = element == null ? null : element.getAnnotation(Table.class);
+		return table == null ? null : table.name() + "(" + ID + ")";
+	}
+
+	private TypeElement superclass(TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(superclass);
+		return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+	}
+
+	private boolean validate(TypeElement type, List<Property> properties) {
+		if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+			error(type, "@Table models must not be abstract");
+			return false;
+		}
+		boolean hasConstructor = false;
+		for (Element member : type.getEnclosedElements()) {
+			if (member.getKind() == ElementKind.CONSTRUCTOR
+					&& ((ExecutableElement) member).getParameters().isEmpty()
+					&& !member.getModifiers().contains(Modifier.PRIVATE)) {
+				hasConstructor = true;
+			}
+		}
+		if (!hasConstructor) {
+			error(type, "@Table models need a non-private no-argument constructor");
+			return false;
+		}
+		int ids = 0;
+		for (Property property : properties) {
+			if (property.id) {
+				ids++;
+			}
+		}
+		if (ids > 1) {
+			error(type, "Only one primary key can be defined");
+			return false;
+		}
+		for (Property property : properties) {
+			if (property.id && property.lazy) {
+				error(type, "The primary key cannot be lazy");
+				return false;
+			}
+			if (property.chunkedBlob && property.kind != Kind.INT && property.kind != Kind.INTEGER
+					&& property.kind != Kind.LONG && property.kind != Kind.LONG_OBJECT) {
+				error(type, "Field " + property.field + " of a " + CHUNKED_BLOB
+						+ " column holds its length and has to be an int or a long");
+				return false;
+			}
+		}
+		if (properties.isEmpty()) {
+			error(type, "@Table models need at least one @Column field");
+			return false;
+		}
+		for (Index index : type.getAnnotation(Table.class).indexes()) {
+			if (index.columns().length == 0) {
+				error(type, "@Index needs at least one column");
+				return false;
+			}
+			for (String column : index.columns()) {
+				if (!hasColumn(properties, column)) {
+					error(type, "@Index names unknown column [" + column + "]");
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean hasColumn(List<Property> properties, String column) {
+		for (Property property : properties) {
+			if (property.column.equals(column)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void write(TypeElement type, List<Property> properties) {
+		Table table = type.getAnnotation(Table.class);
+		String packageName = packageOf(type);
+		String modelName = type.getQualifiedName().toString();
+		if (packageName.length() > 0) {
+			modelName = modelName.substring(packageName.length() + 1);
+		}
+		String mapperName = modelName.replace('.', '_') + SUFFIX;
+
+		List<Property> values = new ArrayList<Property>();
+		for (Property property : properties) {
+			if (!property.id && !property.chunkedBlob) {
+				values.add(property);
+			}
+		}
+
+		StringBuilder out = new StringBuilder();
+		if (packageName.length() > 0) {
+			out.append("package ").append(packageName).append(";\n\n");
+		}
+		out.append("import android.content.ContentValues;\n");
+		out.append("import android.database.Cursor;\n");
+		out.append("import android.database.sqlite.SQLiteProgram;\n\n");
+		out.append("import com.opendroid.db.dao.EntityMapper;\n");
+		out.append("import com.opendroid.db.dao.RowFiller;\n");
+		out.append("import com.opendroid.db.dao.RowMapper;\n\n");
+		out.append("/**\n * Mapper for {@link ").append(modelName).append("}, generated by opendroid-dao. Do not edit.\n */\n");
+		out.append("public final class ").append(mapperName).append(" extends EntityMapper<").append(modelName).append("> {\n\n");
+		out.append("    public static final String TABLE_NAME = ").append(literal(table.name())).append(";\n\n");
+		out.append("    public static final String CREATE_TABLE = ").append(literal(createTable(table.name(), properties))).append(";\n\n");
+		List<String> indexes = createIndexes(table, properties);
+		out.append("    private static final String[] CREATE_INDEXES = {");
+		for (int i = 0; i < indexes.size(); i++) {
+			out.append(i == 0 ? " " : ", ").append(literal(indexes.get(i)));
+		}
+		out.append(" };\n\n");
+		out.append("    private static final String[] CHUNKED_BLOB_COLUMNS = {");
+		String chunkedSeparator = " ";
+		for (Property property : properties) {
+			if (property.chunkedBlob) {
+				out.append(chunkedSeparator).append(literal(property.column));
+				chunkedSeparator = ", ";
+			}
+		}
+		out.append(" };\n\n");
+		out.append("    private static final String[] LAZY_COLUMNS = {");
+		String separator = " ";
+		for (Property property : properties) {
+			if (property.lazy) {
+				out.append(separator).append(literal(property.column));
+				separator = ", ";
+			}
+		}
+		out.append(" };\n\n");
+		out.append("    private static final String[] COLUMNS = {");
+		for (int i = 0; i < values.size(); i++) {
+			out.append(i == 0 ? " " : ", ").append(literal(values.get(i).column));
+		}
+		out.append(" };\n\n");
+
+		out.append("    @Override\n    public String getTableName() {\n        return TABLE_NAME;\n    }\n\n");
+		out.append("    @Override\n    public String getCreateTableStatement() {\n        return CREATE_TABLE;\n    }\n\n");
+		out.append("    @Override\n    public String[] getCreateIndexStatements() {\n        return CREATE_INDEXES.clone();\n    }\n\n");
+		out.append("    @Override\n    public String[] getChunkedBlobColumnNames() {\n        return CHUNKED_BLOB_COLUMNS.clone();\n    }\n\n");
+		out.append("    @Override\n    public String[] getLazyColumnNames() {\n        return LAZY_COLUMNS.clone();\n    }\n\n");
+		out.append("    @Override\n    public String[] getColumnNames() {\n        return COLUMNS.clone();\n    }\n\n");
+
+		out.append("    @Override\n    public RowMapper<").append(modelName).append("> rowMapper(Cursor c) {\n");
+		out.append("        return new CursorReader(c);\n    }\n\n");
+		out.append("    @Override\n    public RowFiller<").append(modelName).append("> rowFiller(Cursor c) {\n");
+		out.append("        return new CursorReader(c);\n    }\n\n");
+
+		out.append("    private static final class CursorReader implements RowMapper<").append(modelName)
+				.append(">, RowFiller<").append(modelName).append("> {\n\n");
+		for (int i = 0; i < properties.size(); i++) {
+			out.append("        private final int i").append(i).append(";\n");
+		}
+		out.append("\n        CursorReader(Cursor c) {\n");
+		for (int i = 0; i < properties.size(); i++) {
+			out.append("            i").append(i).append(" = c.getColumnIndex(")
+					.append(literal(properties.get(i).column)).append(");\n");
+		}
+		out.append("        }\n\n");
+		out.append("        @Override\n        public ").append(modelName).append(" mapRow(Cursor c) {\n");
+		out.append("            ").append(modelName).append(" model = new ").append(modelName).append("();\n");
+		out.append("            fill(c, model);\n            return model;\n        }\n\n");
+		out.append("        @Override\n        public void fill(Cursor c, ").append(modelName).append(" model) {\n");
+		for (int i = 0; i < properties.size(); i++) {
+			Property property = properties.get(i);
+			out.append("            if (i").append(i).append(" != -1) {\n");
+			out.append("                model.").append(property.field).append(" = ")
+					.append(property.kind.read("i" + i)).append(";\n");
+			out.append("            }\n");
+		}
+		out.append("        }\n    }\n\n");
+
+		out.append("    @Override\n    public ContentValues values(").append(modelName).append(" model) {\n");
+		out.append("        ContentValues values = new ContentValues(").append(values.size()).append(");\n");
+		for (Property property : values) {
+			out.append("        values.put(").append(literal(property.column)).append(", model.")
+					.append(property.field).append(");\n");
+		}
+		out.append("        return values;\n    }\n\n");
+
+		out.append("    @Override\n    public void bind(SQLiteProgram program, ").append(modelName).append(" model) {\n");
+		for (int i = 0; i < values.size(); i++) {
+			Property property = values.get(i);
+			out.append(property.kind.bind(String.valueOf(i + 1), "model." + property.field));
+		}
+		out.append("    }\n}\n");
+
+		String qualifiedName = packageName.length() > 0 ? packageName + "." + mapperName : mapperName;
+		try {
+			Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+			try {
+				writer.write(out.toString());
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			error(type, "Could not write " + qualifiedName + ": " + e.getMessage());
+		}
+	}
+
+	private static String createTable(String tableName, List<Property> properties) {
+		StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(tableName).append(" (");
+		for (int i = 0; i < properties.size(); i++) {
+			Property property = properties.get(i);
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(property.column).append(' ').append(property.type);
+			if (property.size != -1) {
+				sql.append('(').append(property.size).append(')');
+			}
+			if (property.id) {
+				sql.append(" PRIMARY KEY");
+			}
+			if (property.references != null) {
+				sql.append(" REFERENCES ").append(property.references);
+			}
+		}
+		return sql.append(')').toString();
+	}
+
+	private static List<String> createIndexes(Table table, List<Property> properties) {
+		List<String> indexes = new ArrayList<String>();
+		for (Property property : properties) {
+			if (property.indexed != null) {
+				indexes.add(createIndex(table.name(), property.indexed.name(), new String[] { property.column },
+						property.indexed.unique(), property.indexed.where()));
+			} else if (property.references != null) {
+				indexes.add(createIndex(table.name(), "", new String[] { property.column }, false, ""));
+			}
+		}
+		for (Index index : table.indexes()) {
+			indexes.add(createIndex(table.name(), index.name(), index.columns(), index.unique(), index.where()));
+		}
+		return indexes;
+	}
+
+	/**
+	 * Same statement as {@code StatementUtils.createIndexSql}, which cannot be loaded outside Android.
+	 */
+	private static String createIndex(String tableName, String indexName, String[] columns, boolean unique,
+			String where) {
+		StringBuilder name = new StringBuilder();
+		if (indexName.length() == 0) {
+			name.append("idx_").append(tableName);
+			for (String column : columns) {
+				name.append('_').append(column);
+			}
+		} else {
+			name.append(indexName);
+		}
+		StringBuilder sql = new StringBuilder(unique ? "CREATE UNIQUE INDEX" : "CREATE INDEX")
+				.append(" IF NOT EXISTS ").append(name).append(" ON ").append(tableName).append(" (");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns[i]);
+		}
+		sql.append(')');
+		if (where.length() > 0) {
+			sql.append(" WHERE ").append(where);
+		}
+		return sql.toString();
+	}
+
+	private String packageOf(TypeElement type) {
+		PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+		return pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+	}
+
+	private static String literal(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	/**
+	 * A {@link Column} field of a model.
+	 */
+	private static class Property {
+
+		final String field;
+		final String column;
+		final String type;
+		final int size;
+		final boolean id;
+		final boolean lazy;
+		final boolean chunkedBlob;
+		final Indexed indexed;
+		final String references;
+		final Kind kind;
+
+		Property(String field, Column column, boolean id, Indexed indexed, String references, Kind kind) {
+			this.field = field;
+			this.column = column.name();
+			this.type = column.type();
+			this.size = column.size();
+			this.id = id;
+			this.lazy = column.lazy();
+			this.chunkedBlob = CHUNKED_BLOB.equalsIgnoreCase(column.type());
+			this.indexed = indexed;
+			this.references = references;
+			this.kind = kind;
+		}
+	}
+
+	/**
+	 * Java types supported for {@link Column} fields, with the code reading and binding them.
+	 */
+	private enum Kind {
+		INT("c.getInt(%s)", "bindLong", false),
+		INTEGER("c.getInt(%s)", "bindLong", true),
+		LONG("c.getLong(%s)", "bindLong", false),
+		LONG_OBJECT("c.getLong(%s)", "bindLong", true),
+		SHORT("c.getShort(%s)", "bindLong", false),
+		SHORT_OBJECT("c.getShort(%s)", "bindLong", true),
+		BYTE("(byte) c.getInt(%s)", "bindLong", false),
+		BYTE_OBJECT("(byte) c.getInt(%s)", "bindLong", true),
+		BOOLEAN("c.getInt(%s) == 1", null, false),
+		BOOLEAN_OBJECT("c.getInt(%s) == 1", null, true),
+		FLOAT("c.getFloat(%s)", "bindDouble", false),
+		FLOAT_OBJECT("c.getFloat(%s)", "bindDouble", true),
+		DOUBLE("c.getDouble(%s)", "bindDouble", false),
+		DOUBLE_OBJECT("c.getDouble(%s)", "bindDouble", true),
+		STRING("c.getString(%s)", "bindString", true),
+		BLOB("c.getBlob(%s)", "bindBlob", true);
+
+		private final String read;
+		private final String bind;
+		private final boolean nullable;
+
+		Kind(String read, String bind, boolean nullable) {
+			this.read = read;
+			this.bind = bind;
+			this.nullable = nullable;
+		}
+
+		String read(String index) {
+			String value = String.format(read, index);
+			return nullable ? "c.isNull(" + index + ") ? null : " + (this == BOOLEAN_OBJECT ? "Boolean.valueOf(" + value + ")" : value) : value;
+		}
+
+		String bind(String index, String value) {
+			String bound = bind == null ? "program.bindLong(" + index + ", " + value + " ? 1 : 0);\n"
+					: "program." + bind + "(" + index + ", " + value + ");\n";
+			if (!nullable) {
+				return "        " + bound;
+			}
+			return "        if (" + value + " == null) {\n            program.bindNull(" + index + ");\n        } else {\n            "
+					+ bound + "        }\n";
+		}
+
+		static Kind of(TypeMirror type) {
+			switch (type.getKind()) {
+				case INT:
+					return INT;
+				case LONG:
+					return LONG;
+				case SHORT:
+					return SHORT;
+				case BYTE:
+					return BYTE;
+				case BOOLEAN:
+					return BOOLEAN;
+				case FLOAT:
+					return FLOAT;
+				case DOUBLE:
+					return DOUBLE;
+				case ARRAY:
+					return "byte[]".equals(type.toString()) ? BLOB : null;
+				case DECLARED:
+					String name = type.toString();
+					if ("java.lang.String".equals(name)) {
+						return STRING;
+					} else if ("java.lang.Integer".equals(name)) {
+						return INTEGER;
+					} else if ("java.lang.Long".equals(name)) {
+						return LONG_OBJECT;
+					} else if ("java.lang.Short".equals(name)) {
+						return SHORT_OBJECT;
+					} else if ("java.lang.Byte".equals(name)) {
+						return BYTE_OBJECT;
+					} else if ("java.lang.Boolean".equals(name)) {
+						return BOOLEAN_OBJECT;
+					} else if ("java.lang.Float".equals(name)) {
+						return FLOAT_OBJECT;
+					} else if ("java.lang.Double".equals(name)) {
+						return DOUBLE_OBJECT;
+					}
+					return null;
+				default:
+					return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.opendroid.db;
+
+import java.util.HashMap;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+/**
+ * Cursor wrapper that resolves every column name just once. Lets existing
+ * name based {@link CursorUtils} extractors run on large result sets without
+ * scanning the column names for every column of every row.
+ */
+public class ColumnIndexCursor extends CursorWrapper {
+
+	private final HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+
+	public ColumnIndexCursor(Cursor cursor) {
+		super(cursor);
+	}
+
+	@Override
+	public int getColumnIndex(String columnName) {
+		Integer index = indexes.get(columnName);
+		if (index == null) {
+			index = super.getColumnIndex(columnName);
+			indexes.put(columnName, index);
+		}
+		return index;
+	}
+
+	@Override
+	public int getColumnIndexOrThrow(String columnName) {
+		int index = getColumnIndex(columnName);
+		if (index < 0) {
+			throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+		}
+		return index;
+	}
+}
@@ -8,40 +8,89 @@ import android.util.Log;
 public class CursorUtils {
 
 	public static Integer extractIntegerOrNull(Cursor c, String columnName) {
-		int columnIndex = c.getColumnIndex(columnName);
-		return c.isNull(columnIndex) ? null : c.getInt(columnIndex);
+		return extractIntegerOrNull(c, c.getColumnIndexOrThrow(columnName));
 	}	
 
 	public static Long extractLongOrNull(Cursor c, String columnName) {
-		int columnIndex = c.getColumnIndex(columnName);
-		return c.isNull(columnIndex) ? null : c.getLong(columnIndex);
+		return extractLongOrNull(c, c.getColumnIndexOrThrow(columnName));
 	}
 	
 	public static Integer extractIntOrNull(Cursor c, String columnName) {
-		int columnIndex = c.getColumnIndex(columnName);
-		return c.isNull(columnIndex) ? null : c.getInt(columnIndex);
+		return extractIntOrNull(c, c.getColumnIndexOrThrow(columnName));
 	}	
 
 	public static Double extractDoubleOrNull(Cursor c, String columnName) {
-		int columnIndex = c.getColumnIndex(columnName);
-		return c.isNull(columnIndex) ? null : c.getDouble(columnIndex);
+		return extractDoubleOrNull(c, c.getColumnIndexOrThrow(columnName));
 	}
 	
     public static boolean extractBoolean(Cursor c, String columnName) {
-        int value = c.getInt(c.getColumnIndex(columnName));
-        return value == 1;
+        return extractBoolean(c, c.getColumnIndexOrThrow(columnName));
     }
     
     public static byte[] extractBlobOrNull(Cursor c, String columnName) {
-        int columnIndex = c.getColumnIndex(columnName);
-        return c.isNull(columnIndex) ? null : c.getBlob(columnIndex);
+        return extractBlobOrNull(c, c.getColumnIndexOrThrow(columnName));
     }
     
     public static String extractStringOrNull(Cursor c, String columnName) {
-        int columnIndex = c.getColumnIndex(columnName);
-        return c.isNull(columnIndex) ? null : c.getString(columnIndex);
+        return extractStringOrNull(c, c.getColumnIndexOrThrow(columnName));
     }
     
+    /*
+     * The name based extractors throw for columns missing in the cursor. The
+     * index based ones return null (false) for a column index of -1, so
+     * mappings resolving indices with columnIndexes() can read cursors of
+     * projections missing the column.
+     */
+
+    public static Integer extractIntegerOrNull(Cursor c, int columnIndex) {
+        return columnIndex == -1 || c.isNull(columnIndex) ? null : c.getInt(columnIndex);
+    }
+
+    public static Long extractLongOrNull(Cursor c, int columnIndex) {
+        return columnIndex == -1 || c.isNull(columnIndex) ? null : c.getLong(columnIndex);
+    }
+
+    public static Integer extractIntOrNull(Cursor c, int columnIndex) {
+        return columnIndex == -1 || c.isNull(columnIndex) ? null : c.getInt(columnIndex);
+    }
+
+    public static Double extractDoubleOrNull(Cursor c, int columnIndex) {
+        return columnIndex == -1 || c.isNull(columnIndex) ? null : c.getDouble(columnIndex);
+    }
+
+    public static boolean extractBoolean(Cursor c, int columnIndex) {
+        return columnIndex != -1 && c.getInt(columnIndex) == 1;
+    }
+
+    public static byte[] extractBlobOrNull(Cursor c, int columnIndex) {
+        return columnIndex == -1 || c.isNull(columnIndex) ? null : c.getBlob(columnIndex);
+    }
+
+    public static String extractStringOrNull(Cursor c, int columnIndex) {
+        return columnIndex == -1 || c.isNull(columnIndex) ? null : c.getString(columnIndex);
+    }
+
+    /**
+     * Resolves column names to indices, to be done once per cursor before reading rows by index.
+     *
+     * @param c           the cursor
+     * @param columnNames the column names
+     * @return the column indices, -1 for columns missing in the cursor
+     */
+    public static int[] columnIndexes(Cursor c, String... columnNames) {
+        int[] indexes = new int[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            indexes[i] = c.getColumnIndex(columnNames[i]);
+        }
+        return indexes;
+    }
+
+    /**
+     * @deprecated joins every row into one string inside SQL, which doubles the
+     * row in the cursor window and loses the column types. Use
+     * {@link com.opendroid.db.dao.BaseDAO#tableExporter()} to export tables.
+     */
+    @Deprecated
     public static String getSimpleSelectQuery(String tableName,String[] columnName)
     {
     	String query="SELECT ";
@@ -57,6 +106,13 @@ public class CursorUtils {
     	return query;
     	
     }
+
+    /**
+     * @deprecated the selection arguments are written into the SQL, so every
+     * value compiles a new statement and has to be escaped by the caller. Use
+     * {@link com.opendroid.db.dao.BaseDAO#queryBuilder()}, which binds all values.
+     */
+    @Deprecated
      public static String getSimpleSelectQuery(ArrayList<String>tableNames,ArrayList<String[]>columnName,ArrayList<String>whereArgs,ArrayList<String>selectionArgs)
      {
     	 int tablecount=tableNames.size(),whereArgsCount=whereArgs.size(),selectionArgsCount=selectionArgs.size();
@@ -1,6 +1,12 @@
 package com.opendroid.db;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import com.opendroid.db.dao.DaoMetricsListener;
+import com.opendroid.db.dao.StatementCache;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -12,6 +18,17 @@ public class DbConfiguration {
 	final private String databaseName;
 	final private String databasePath;
 	final private List<DbModel> models;
+	final private int statementCacheSize;
+	final private Map<Class<?>, Integer> identityCacheSizes;
+	final private int queryCacheBudget;
+	final private boolean writeAheadLogging;
+	final private int readConnectionPoolSize;
+	final private Map<Class<?>, WriteBehind> writeBehind;
+	final private DaoMetricsListener metricsListener;
+	final private int queryPlanSampling;
+	final private int databaseVersion;
+	final private List<Migration> migrations;
+	final private MigrationListener migrationListener;
 
 	public String getDatabaseName() {
 		return databaseName;
@@ -24,6 +41,117 @@ public class DbConfiguration {
 	public List<DbModel> getModels() {
 		return models;
 	}
+
+	/**
+	 * Gets the number of compiled statements each DAO keeps.
+	 *
+	 * @return the statement cache size
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * Gets the identity cache size of a DAO class.
+	 *
+	 * @param daoClass the DAO class
+	 * @return the maximum number of cached models, 0 if the DAO does not use an identity cache
+	 */
+	public int getIdentityCacheSize(Class<?> daoClass) {
+		Integer size = identityCacheSizes.get(daoClass);
+		return size == null ? 0 : size;
+	}
+
+	/**
+	 * Gets the budget of the shared query result cache, in rows.
+	 *
+	 * @return the query cache budget, 0 if disabled
+	 */
+	public int getQueryCacheBudget() {
+		return queryCacheBudget;
+	}
+
+	/**
+	 * Checks if the database is opened in write-ahead logging mode.
+	 *
+	 * @return true, if write-ahead logging is enabled
+	 */
+	public boolean isWriteAheadLogging() {
+		return writeAheadLogging;
+	}
+
+	/**
+	 * Gets the number of read-only connections opened next to the writer.
+	 *
+	 * @return the read connection pool size
+	 */
+	public int getReadConnectionPoolSize() {
+		return readConnectionPoolSize;
+	}
+
+	/**
+	 * Gets the write-behind settings of a DAO class.
+	 *
+	 * @param daoClass the DAO class
+	 * @return the settings, <b>null</b> if the DAO writes immediately
+	 */
+	public WriteBehind getWriteBehind(Class<?> daoClass) {
+		return writeBehind.get(daoClass);
+	}
+
+	/**
+	 * Gets the listener receiving DAO timings and row counts.
+	 *
+	 * @return the listener, <b>null</b> if DAOs are not instrumented
+	 */
+	public DaoMetricsListener getMetricsListener() {
+		return metricsListener;
+	}
+
+	/**
+	 * Gets how often query plans are checked for full table scans.
+	 *
+	 * @return 1 in how many queries is explained, 0 if none
+	 */
+	public int getQueryPlanSampling() {
+		return queryPlanSampling;
+	}
+
+	/**
+	 * Gets the schema version of the models.
+	 *
+	 * @return the database version
+	 */
+	public int getDatabaseVersion() {
+		return databaseVersion;
+	}
+
+	/**
+	 * Gets the hand-written migration steps.
+	 *
+	 * @return the migrations, in registration order
+	 */
+	public List<Migration> getMigrations() {
+		return migrations;
+	}
+
+	/**
+	 * Gets the listener notified while tables are rebuilt on upgrades.
+	 *
+	 * @return the listener, <b>null</b> if none is set
+	 */
+	public MigrationListener getMigrationListener() {
+		return migrationListener;
+	}
+
+	/**
+	 * Gets the configuration the database was initialized with.
+	 *
+	 * @return the current configuration, <b>null</b> before {@link DbHelper#init(android.content.Context, DbConfiguration)}
+	 */
+	public static DbConfiguration getCurrent() {
+		return dbConf;
+	}
 	
 	/**
 	 * Instantiates a new db configuration.
@@ -32,6 +160,17 @@ public class DbConfiguration {
 		this.databaseName = builder.databaseName;
 		this.models = builder.models;
 		this.databasePath = builder.databasePath;
+		this.statementCacheSize = builder.statementCacheSize;
+		this.identityCacheSizes = new HashMap<Class<?>, Integer>(builder.identityCacheSizes);
+		this.queryCacheBudget = builder.queryCacheBudget;
+		this.writeAheadLogging = builder.writeAheadLogging;
+		this.readConnectionPoolSize = builder.readConnectionPoolSize;
+		this.writeBehind = new HashMap<Class<?>, WriteBehind>(builder.writeBehind);
+		this.metricsListener = builder.metricsListener;
+		this.queryPlanSampling = builder.queryPlanSampling;
+		this.databaseVersion = builder.databaseVersion;
+		this.migrations = new ArrayList<Migration>(builder.migrations);
+		this.migrationListener = builder.migrationListener;
 	}
 	
 	
@@ -53,6 +192,39 @@ public class DbConfiguration {
 
 		private String databasePath;
 
+		/** The statement cache size. */
+		private int statementCacheSize = StatementCache.DEFAULT_MAX_SIZE;
+
+		/** The identity cache sizes by DAO class. */
+		private Map<Class<?>, Integer> identityCacheSizes = new HashMap<Class<?>, Integer>();
+
+		/** The query cache budget. */
+		private int queryCacheBudget;
+
+		/** Whether write-ahead logging is enabled. */
+		private boolean writeAheadLogging;
+
+		/** The read connection pool size. */
+		private int readConnectionPoolSize;
+
+		/** The write-behind settings by DAO class. */
+		private Map<Class<?>, WriteBehind> writeBehind = new HashMap<Class<?>, WriteBehind>();
+
+		/** The metrics listener. */
+		private DaoMetricsListener metricsListener;
+
+		/** 1 in how many queries is explained. */
+		private int queryPlanSampling;
+
+		/** The database version. */
+		private int databaseVersion = 1;
+
+		/** The migration steps. */
+		private List<Migration> migrations = new ArrayList<Migration>();
+
+		/** The migration listener. */
+		private MigrationListener migrationListener;
+
 		/**
 		 * Sets the table name.
 		 *
@@ -83,6 +255,132 @@ public class DbConfiguration {
 			return this;
 		}
 
+		/**
+		 * Sets the number of compiled statements each DAO keeps.
+		 *
+		 * @param statementCacheSize the statement cache size
+		 */
+		public Builder setStatementCacheSize(int statementCacheSize) {
+			this.statementCacheSize = statementCacheSize;
+			return this;
+		}
+
+		/**
+		 * Enables an identity cache for a DAO class. Models read by id are kept
+		 * in a LRU cache shared by all instances of the DAO class.
+		 *
+		 * @param daoClass the DAO class
+		 * @param size the maximum number of cached models, 0 to disable
+		 */
+		public Builder setIdentityCacheSize(Class<?> daoClass, int size) {
+			this.identityCacheSizes.put(daoClass, size);
+			return this;
+		}
+
+		/**
+		 * Enables the shared query result cache for <code>findAll</code> and
+		 * <code>findAllByField</code> results.
+		 *
+		 * @param rows the number of rows the cache may hold, 0 to disable
+		 */
+		public Builder setQueryCacheBudget(int rows) {
+			this.queryCacheBudget = rows;
+			return this;
+		}
+
+		/**
+		 * Opens the database in write-ahead logging mode (API 11 and above),
+		 * so reads do not wait for writes.
+		 *
+		 * @param writeAheadLogging true to enable write-ahead logging
+		 */
+		public Builder setWriteAheadLogging(boolean writeAheadLogging) {
+			this.writeAheadLogging = writeAheadLogging;
+			return this;
+		}
+
+		/**
+		 * Sets the number of read-only connections opened next to the single
+		 * writer. DAO reads are spread over them. Only used together with
+		 * {@link #setWriteAheadLogging(boolean)}.
+		 *
+		 * @param size the number of read connections, 0 for none
+		 */
+		public Builder setReadConnectionPoolSize(int size) {
+			this.readConnectionPoolSize = size;
+			return this;
+		}
+
+		/**
+		 * Buffers the creates and updates of a DAO class and writes them in
+		 * one transaction, see {@link com.opendroid.db.dao.WriteBehindBuffer}.
+		 *
+		 * @param daoClass the DAO class
+		 * @param maxPending number of buffered models that triggers a flush
+		 * @param intervalMillis time after the first buffered write that triggers a flush, 0 for none
+		 */
+		public Builder setWriteBehind(Class<?> daoClass, int maxPending, long intervalMillis) {
+			this.writeBehind.put(daoClass, new WriteBehind(maxPending, intervalMillis));
+			return this;
+		}
+
+		/**
+		 * Instruments all DAOs, the listener receives operation timings, row
+		 * counts and cursor open times. Without a listener DAOs skip the timing.
+		 *
+		 * @param listener the listener, e.g. a {@link com.opendroid.db.dao.DaoMetrics}
+		 */
+		public Builder setMetricsListener(DaoMetricsListener listener) {
+			this.metricsListener = listener;
+			return this;
+		}
+
+		/**
+		 * Runs EXPLAIN QUERY PLAN for 1 in <code>oneIn</code> queries and
+		 * reports the ones scanning a whole table to the metrics listener, or
+		 * the log without one. Every sampled query is planned twice, so only
+		 * enable this in debug builds.
+		 *
+		 * @param oneIn 1 to explain every query, 0 to disable
+		 */
+		public Builder setQueryPlanSampling(int oneIn) {
+			this.queryPlanSampling = oneIn;
+			return this;
+		}
+
+		/**
+		 * Sets the schema version of the models. When it is higher than the
+		 * installed version the tables are upgraded in place by
+		 * {@link SchemaMigrator}, keeping their rows.
+		 *
+		 * @param version the database version, 1 by default
+		 */
+		public Builder setDatabaseVersion(int version) {
+			this.databaseVersion = version;
+			return this;
+		}
+
+		/**
+		 * Adds a hand-written step run when upgrading past its version, for
+		 * changes the schema diff cannot infer such as renames.
+		 *
+		 * @param migration the migration
+		 */
+		public Builder addMigration(Migration migration) {
+			this.migrations.add(migration);
+			return this;
+		}
+
+		/**
+		 * Sets the listener notified while large tables are copied during an upgrade.
+		 *
+		 * @param listener the listener
+		 */
+		public Builder setMigrationListener(MigrationListener listener) {
+			this.migrationListener = listener;
+			return this;
+		}
+
 		/**
 		 * Builds configuration for database and returns object.
 		 *
@@ -94,4 +392,26 @@ public class DbConfiguration {
 		}
 	}
 
+	/**
+	 * Write-behind settings of a DAO class.
+	 */
+	public static class WriteBehind {
+
+		private final int maxPending;
+		private final long intervalMillis;
+
+		WriteBehind(int maxPending, long intervalMillis) {
+			this.maxPending = maxPending;
+			this.intervalMillis = intervalMillis;
+		}
+
+		public int getMaxPending() {
+			return maxPending;
+		}
+
+		public long getIntervalMillis() {
+			return intervalMillis;
+		}
+	}
+
 }
@@ -1,15 +1,21 @@
 package com.opendroid.db;
 
 import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
+import android.os.Build;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
-import com.opendroid.db.dao.annotations.Column;
-import com.opendroid.db.dao.annotations.Id;
-import com.opendroid.db.dao.annotations.Table;
+import com.opendroid.db.dao.EntityMapper;
+import com.opendroid.db.dao.IdentityCache;
+import com.opendroid.db.dao.Mappers;
+import com.opendroid.db.dao.QueryResultCache;
+import com.opendroid.db.dao.StatementCache;
+import com.opendroid.db.dao.TableMetadata;
+import com.opendroid.db.dao.WriteBehindBuffer;
 
-import java.lang.reflect.Field;
 import java.util.List;
 
 /**
@@ -20,7 +26,9 @@ import java.util.List;
 public class DbHelper {
 
     private String DATABASE_NAME;
-    private final static int DATABASE_VERSION = 1;
+    private int databaseVersion = 1;
+    private List<Migration> migrations;
+    private MigrationListener migrationListener;
     private static final String TAG = "DbHelper";
 
     private List<DbModel> models;
@@ -28,7 +36,10 @@ public class DbHelper {
     private SQLiteDatabase db;
     private static OpenHelper openHelper;
     private String databasePath = null;
-    private static DbHelper dbHelper = null;
+    private boolean writeAheadLogging;
+    private int readConnections;
+    private volatile ReadConnectionPool readPool;
+    private static volatile DbHelper dbHelper = null;
 
     /**
      * Instantiates a new db helper.
@@ -43,6 +54,13 @@ public class DbHelper {
             DATABASE_NAME = dbConfiguration.getDatabaseName();
             models = dbConfiguration.getModels();
             databasePath = dbConfiguration.getDatabasePath();
+            writeAheadLogging = dbConfiguration.isWriteAheadLogging();
+            readConnections = dbConfiguration.getReadConnectionPoolSize();
+            databaseVersion = dbConfiguration.getDatabaseVersion();
+            migrations = dbConfiguration.getMigrations();
+            migrationListener = dbConfiguration.getMigrationListener();
+            DbConfiguration.dbConf = dbConfiguration;
+            QueryResultCache.getInstance().setBudget(dbConfiguration.getQueryCacheBudget());
         }
 
         if (DATABASE_NAME == null || models == null) {
@@ -57,11 +75,54 @@ public class DbHelper {
             if (databasePath == null) {
                 db = openHelper.getWritableDatabase();
             } else {
-                db = SQLiteDatabase.openDatabase(databasePath + DATABASE_NAME,
-                        null, SQLiteDatabase.OPEN_READWRITE);
+                db = openDatabaseAtPath();
+            }
+            openReadPool();
+        }
+    }
 
+    /**
+     * Opens the database at the configured path. Such a database is not
+     * created by this helper, but it is upgraded once it carries a version.
+     */
+    private SQLiteDatabase openDatabaseAtPath() {
+        SQLiteDatabase database = SQLiteDatabase.openDatabase(databasePath + DATABASE_NAME,
+                null, SQLiteDatabase.OPEN_READWRITE);
+        int version = database.getVersion();
+        if (version > 0 && version < databaseVersion) {
+            // rebuilt tables are dropped, which must not touch the rows referencing them
+            boolean foreignKeys = DatabaseUtils.longForQuery(database, "PRAGMA foreign_keys", null) != 0;
+            database.execSQL("PRAGMA foreign_keys=OFF");
+            database.beginTransaction();
+            try {
+                new SchemaMigrator(models, migrations, migrationListener).migrate(database, version, databaseVersion);
+                database.setVersion(databaseVersion);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+                if (foreignKeys) {
+                    database.execSQL("PRAGMA foreign_keys=ON");
+                }
             }
         }
+        return database;
+    }
+
+    /**
+     * Switches the writer to write-ahead logging and opens the read-only connections, if configured.
+     * Without write-ahead logging readers would block on the writer, so no pool is opened then.
+     */
+    private void openReadPool() {
+        if (!writeAheadLogging || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return;
+        }
+        if (!db.enableWriteAheadLogging()) {
+            Log.w(TAG, "write-ahead logging not available for " + db.getPath());
+            return;
+        }
+        if (readConnections > 0) {
+            readPool = new ReadConnectionPool(db.getPath(), readConnections);
+        }
     }
 
 
@@ -72,10 +133,25 @@ public class DbHelper {
      * @param context Android context
      * @return singleton instance of DbHelper
      */
-    public static synchronized DbHelper getInstance(Context context) {
-        if (dbHelper == null) {
-            dbHelper = new DbHelper(context, null);
+    public static DbHelper getInstance(Context context) {
+        DbHelper helper = dbHelper;
+        if (helper != null) {
+            return helper;
+        }
+        synchronized (DbHelper.class) {
+            if (dbHelper == null) {
+                dbHelper = new DbHelper(context, null);
+            }
+            return dbHelper;
         }
+    }
+
+    /**
+     * Gets the instance created by {@link #init(android.content.Context, DbConfiguration)} without creating one.
+     *
+     * @return the instance, <b>null</b> before initialization
+     */
+    public static DbHelper peekInstance() {
         return dbHelper;
     }
 
@@ -93,10 +169,19 @@ public class DbHelper {
     }
 
     /**
-     * Closes database connection.
+     * Closes database connection and the statements DAOs compiled against it.
      */
     public void close() {
+        WriteBehindBuffer.flushAll();
+        ReadConnectionPool pool = readPool;
+        if (pool != null) {
+            readPool = null;
+            pool.close();
+        }
         if (db != null) {
+            StatementCache.closeAll(db);
+            IdentityCache.clearAll();
+            QueryResultCache.getInstance().clear();
             db.close();
         }
     }
@@ -111,14 +196,34 @@ public class DbHelper {
             if (databasePath == null) {
                 db = openHelper.getWritableDatabase();
             } else {
-                db = SQLiteDatabase.openDatabase(databasePath + DATABASE_NAME,
-                        null, SQLiteDatabase.OPEN_READWRITE);
-
+                db = openDatabaseAtPath();
             }
+            openReadPool();
         }
         return db;
     }
 
+    /**
+     * Gets a connection for reading. With write-ahead logging and a read pool
+     * configured this is one of the read-only connections, otherwise the
+     * connection returned by {@link #getSQLiteDatabase()}.
+     *
+     * @return the SQLiteDatabase instance to read from
+     */
+    public SQLiteDatabase getReadableDatabase() {
+        ReadConnectionPool pool = readPool;
+        return pool != null ? pool.next() : getSQLiteDatabase();
+    }
+
+    /**
+     * Gets the pool of read-only connections.
+     *
+     * @return the read pool, <b>null</b> if none is configured
+     */
+    public ReadConnectionPool getReadConnectionPool() {
+        return readPool;
+    }
+
     /**
      * Get database models.
      *
@@ -142,7 +247,7 @@ public class DbHelper {
         private static final String TAG = "OpenHelper";
 
         OpenHelper(Context context) {
-            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+            super(context, DATABASE_NAME, null, databaseVersion);
         }
 
         /* (non-Javadoc)
@@ -151,62 +256,53 @@ public class DbHelper {
         @Override
         public void onCreate(SQLiteDatabase db) {
             if (models != null) {
-                int idCounter = 0;
-                for (DbModel query : models) {
-
-                    Table table = query.getClass().getAnnotation(Table.class);
-                    String tableName = null;
-                    String fieldString = null;
-                    if (table != null) {
-                        tableName = table.name();
-
-                        Field[] fields = query.getClass().getFields();
-                        for (Field field : fields) {
-                            Column column = field.getAnnotation(Column.class);
-
-                            boolean isPrimary = (field.getAnnotation(Id.class) != null);
-
-                            if (fieldString == null) {
-                                fieldString = column.name() + " " + column.type() + "" + ((column.size() == -1) ? "" : "(" + column.size() + ")");
-                            } else {
-                                fieldString += " ," + column.name() + " " + column.type() + "" + ((column.size() == -1) ? "" : "(" + column.size() + ")");
-                            }
-                            if (isPrimary && idCounter == 0) {
-                                idCounter++;
-                                fieldString += " PRIMARY KEY";
-                            }
-                            else{
-                                throw new IllegalStateException("Only one primary key can be defined, please correct column ["+column.name()+"]");
-                            }
-                        }
+                for (DbModel model : models) {
+                    if (!TableMetadata.isTable(model.getClass())) {
+                        Log.w(TAG, model.getClass().getName() + " is not annotated with @Table, skipping");
+                        continue;
                     }
-
-                    Log.d(TAG, "CREATE TABLE IF NOT EXISTS "
-                            + tableName + fieldString);
-                    db.execSQL("CREATE TABLE IF NOT EXISTS "
-                            + tableName + fieldString);
-
-                    Log.i(TAG, "created table " + tableName);
+                    EntityMapper<?> mapper = Mappers.of(model.getClass());
+                    db.execSQL(mapper.getCreateTableStatement());
+                    Log.i(TAG, "created table " + mapper.getTableName());
+                    createIndexes(db, mapper);
                 }
             }
         }
 
-        /* (non-Javadoc)
-         * @see android.database.sqlite.SQLiteOpenHelper#onUpgrade(android.database.sqlite.SQLiteDatabase, int, int)
+        /**
+         * Creates the indexes declared on the models that do not exist yet, so
+         * indexes added to a model are built on installed databases as well.
          */
         @Override
-        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-            Log.d("upgrading database", DATABASE_NAME);
-            if (models != null) {
-                for (DbModel query : models) {
-                    Table table = query.getClass().getAnnotation(Table.class);
-                    if (table != null) {
-                        Log.d(TAG, "DROP TABLE IF EXISTS " + table.name());
-                        db.execSQL("DROP TABLE IF EXISTS " + table.name());
+        public void onOpen(SQLiteDatabase db) {
+            if (models == null || db.isReadOnly()) {
+                return;
+            }
+            for (DbModel model : models) {
+                if (TableMetadata.isTable(model.getClass())) {
+                    try {
+                        createIndexes(db, Mappers.of(model.getClass()));
+                    } catch (SQLException e) {
+                        Log.w(TAG, "could not create indexes of " + model.getClass().getName(), e);
                     }
                 }
             }
-            onCreate(db);
+        }
+
+        private void createIndexes(SQLiteDatabase db, EntityMapper<?> mapper) {
+            for (String index : mapper.getCreateIndexStatements()) {
+                db.execSQL(index);
+            }
+        }
+
+        /**
+         * Upgrades the tables to the models in place, see {@link SchemaMigrator}.
+         * Runs inside the transaction opened by {@link SQLiteOpenHelper}.
+         */
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            Log.i(TAG, "upgrading " + DATABASE_NAME + " from version " + oldVersion + " to " + newVersion);
+            new SchemaMigrator(models, migrations, migrationListener).migrate(db, oldVersion, newVersion);
         }
     }
 
@@ -0,0 +1,46 @@
+package com.opendroid.db;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Hand-written step of a schema upgrade, registered with
+ * {@link DbConfiguration.Builder#addMigration(Migration)}. Added, removed and
+ * retyped columns are handled by {@link SchemaMigrator} without a migration,
+ * migrations are only needed to rename columns or move data.
+ * <p>
+ * All steps of an upgrade run in one transaction, in version order.
+ */
+public abstract class Migration {
+
+	private final int version;
+
+	/**
+	 * Instantiates a new migration.
+	 *
+	 * @param version the database version this migration upgrades to
+	 */
+	protected Migration(int version) {
+		this.version = version;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Called before the tables are updated to the models, e.g. to rename a
+	 * table or save the data of a column that is going to be removed.
+	 *
+	 * @param db the database
+	 */
+	public void beforeSchemaUpdate(SQLiteDatabase db) {
+	}
+
+	/**
+	 * Called after the tables were updated to the models, e.g. to fill in new columns.
+	 *
+	 * @param db the database
+	 */
+	public void afterSchemaUpdate(SQLiteDatabase db) {
+	}
+}
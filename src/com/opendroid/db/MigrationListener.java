@@ -0,0 +1,16 @@
+package com.opendroid.db;
+
+/**
+ * Receives progress of the tables {@link SchemaMigrator} copies into a rebuilt table.
+ */
+public interface MigrationListener {
+
+	/**
+	 * Called after every copied chunk.
+	 *
+	 * @param table  the table being rebuilt
+	 * @param copied number of rows copied so far
+	 * @param total  number of rows of the table
+	 */
+	public void onProgress(String table, int copied, int total);
+}
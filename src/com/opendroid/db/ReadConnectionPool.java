@@ -0,0 +1,63 @@
+package com.opendroid.db;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.opendroid.db.dao.StatementCache;
+
+/**
+ * Fixed set of read-only connections to a database in write-ahead logging
+ * mode. Readers on these connections run concurrently with each other and
+ * with the single writer connection held by {@link DbHelper}.
+ * Connections are handed out round robin without locking, a
+ * {@link SQLiteDatabase} can be used by several threads at once.
+ */
+public class ReadConnectionPool {
+
+	private final SQLiteDatabase[] connections;
+	private final AtomicInteger next = new AtomicInteger();
+
+	/**
+	 * Opens the read-only connections.
+	 *
+	 * @param path the database file
+	 * @param size the number of connections
+	 */
+	public ReadConnectionPool(String path, int size) {
+		connections = new SQLiteDatabase[size];
+		try {
+			for (int i = 0; i < size; i++) {
+				connections[i] = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY);
+			}
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets a read-only connection.
+	 *
+	 * @return the connection
+	 */
+	public SQLiteDatabase next() {
+		return connections[(next.getAndIncrement() & Integer.MAX_VALUE) % connections.length];
+	}
+
+	public int size() {
+		return connections.length;
+	}
+
+	/**
+	 * Closes all connections and the statements compiled against them.
+	 */
+	public void close() {
+		for (SQLiteDatabase connection : connections) {
+			if (connection != null) {
+				StatementCache.closeAll(connection);
+				connection.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package com.opendroid.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.opendroid.db.dao.ColumnInfo;
+import com.opendroid.db.dao.EntityMapper;
+import com.opendroid.db.dao.Mappers;
+import com.opendroid.db.dao.TableMetadata;
+
+/**
+ * Upgrades the tables of an installed database to the models without losing
+ * their rows. The live schema, read with <code>PRAGMA table_info</code>, is
+ * compared with the {@link com.opendroid.db.dao.annotations.Column} metadata:
+ * <ul>
+ * <li>missing tables are created</li>
+ * <li>new columns are added with <code>ALTER TABLE ... ADD COLUMN</code></li>
+ * <li>tables with removed or retyped columns or another primary key are
+ * rebuilt: the table is created under a new name, the rows of the kept
+ * columns are copied in chunks of {@link #CHUNK_SIZE} ordered by rowid, the
+ * old table is dropped and the new one renamed, as SQLite documents for
+ * schema changes ALTER TABLE cannot make. References of other tables to the
+ * rebuilt one are kept as they are.</li>
+ * </ul>
+ * Tables without a model are left alone. The caller runs the upgrade in one
+ * transaction, as {@link android.database.sqlite.SQLiteOpenHelper#onUpgrade} does.
+ * Rebuilding needs <code>PRAGMA foreign_keys</code> off, dropping the old
+ * table would otherwise delete or fail on the rows referencing it. It cannot
+ * be switched inside a transaction, so enable foreign keys in
+ * <code>onOpen</code>, which runs after the upgrade.
+ */
+public class SchemaMigrator {
+
+	/** Number of rows copied per statement when a table is rebuilt. */
+	public static final int CHUNK_SIZE = 1000;
+
+	private static final String TAG = "SchemaMigrator";
+	private static final String NEW_TABLE_PREFIX = "_migrating_";
+
+	private final List<DbModel> models;
+	private final List<Migration> migrations;
+	private final MigrationListener listener;
+
+	/**
+	 * Instantiates a new schema migrator.
+	 *
+	 * @param models     the models
+	 * @param migrations the hand-written steps, may be <b>null</b>
+	 * @param listener   notified while tables are copied, may be <b>null</b>
+	 */
+	public SchemaMigrator(List<DbModel> models, List<Migration> migrations, MigrationListener listener) {
+		this.models = models;
+		this.migrations = migrations == null ? new ArrayList<Migration>() : migrations;
+		this.listener = listener;
+	}
+
+	/**
+	 * Upgrades the database, running the {@link Migration}s of the versions
+	 * after <code>oldVersion</code> up to <code>newVersion</code> around the
+	 * table updates.
+	 *
+	 * @param db         the database, inside a transaction
+	 * @param oldVersion the installed version
+	 * @param newVersion the configured version
+	 */
+	public void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+		List<Migration> steps = new ArrayList<Migration>();
+		for (Migration migration : migrations) {
+			if (migration.getVersion() > oldVersion && migration.getVersion() <= newVersion) {
+				steps.add(migration);
+			}
+		}
+		Collections.sort(steps, new Comparator<Migration>() {
+			@Override
+			public int compare(Migration a, Migration b) {
+				return a.getVersion() < b.getVersion() ? -1 : (a.getVersion() == b.getVersion() ? 0 : 1);
+			}
+		});
+		for (Migration step : steps) {
+			step.beforeSchemaUpdate(db);
+		}
+		for (DbModel model : models) {
+			if (TableMetadata.isTable(model.getClass())) {
+				updateTable(db, Mappers.of(model.getClass()), TableMetadata.forClass(model.getClass()));
+			}
+		}
+		for (Migration step : steps) {
+			step.afterSchemaUpdate(db);
+		}
+	}
+
+	private void updateTable(SQLiteDatabase db, EntityMapper<?> mapper, TableMetadata<?> metadata) {
+		String table = mapper.getTableName();
+		Map<String, LiveColumn> live = readColumns(db, table);
+		if (live.isEmpty()) {
+			db.execSQL(mapper.getCreateTableStatement());
+			createIndexes(db, mapper);
+			Log.i(TAG, "created table " + table);
+			return;
+		}
+		TableDiff diff = diff(live, metadata.getColumns());
+		if (diff.rebuild) {
+			rebuildTable(db, mapper, diff.kept);
+		} else if (!diff.added.isEmpty()) {
+			for (ColumnInfo column : diff.added) {
+				db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column.getDefinition());
+			}
+			createIndexes(db, mapper);
+			Log.i(TAG, "added " + diff.added.size() + " columns to " + table);
+		}
+	}
+
+	/**
+	 * Compares the live columns of a table with the columns of its model.
+	 *
+	 * @param live    the live columns by lower case name
+	 * @param columns the columns of the model
+	 * @return the difference
+	 */
+	static TableDiff diff(Map<String, LiveColumn> live, ColumnInfo[] columns) {
+		Map<String, LiveColumn> removed = new HashMap<String, LiveColumn>(live);
+		TableDiff diff = new TableDiff();
+		for (ColumnInfo column : columns) {
+			LiveColumn current = removed.remove(column.getName().toLowerCase(Locale.US));
+			if (current == null) {
+				if (column.isId()) {
+					diff.rebuild = true;
+				} else {
+					diff.added.add(column);
+				}
+			} else {
+				diff.kept.add(column.getName());
+				if (current.primaryKey != column.isId() || !current.type.equalsIgnoreCase(declaredType(column))) {
+					diff.rebuild = true;
+				}
+			}
+		}
+		if (!removed.isEmpty()) {
+			diff.rebuild = true;
+		}
+		return diff;
+	}
+
+	/**
+	 * Creates the table from the model under a new name, copies the kept
+	 * columns over in rowid order, one chunk per statement, drops the old
+	 * table and gives the new one its name.
+	 */
+	private void rebuildTable(SQLiteDatabase db, EntityMapper<?> mapper, List<String> kept) {
+		String table = mapper.getTableName();
+		if (DatabaseUtils.longForQuery(db, "PRAGMA foreign_keys", null) != 0) {
+			throw new IllegalStateException("Cannot rebuild " + table + " while foreign keys are enforced,"
+					+ " turn PRAGMA foreign_keys off before the upgrade transaction begins");
+		}
+		String rebuilt = NEW_TABLE_PREFIX + table;
+		db.execSQL("DROP TABLE IF EXISTS " + rebuilt);
+		db.execSQL(renameCreateStatement(mapper.getCreateTableStatement(), table, rebuilt));
+		int total = (int) DatabaseUtils.longForQuery(db, "SELECT count(*) FROM " + table, null);
+		if (!kept.isEmpty() && total > 0) {
+			String columns = StringUtils.join(kept, ", ");
+			SQLiteStatement bound = db.compileStatement("SELECT max(rowid) FROM (SELECT rowid FROM " + table
+					+ " WHERE rowid > ? ORDER BY rowid LIMIT " + CHUNK_SIZE + ")");
+			SQLiteStatement copy = db.compileStatement("INSERT INTO " + rebuilt + " (" + columns + ") SELECT "
+					+ columns + " FROM " + table + " WHERE rowid > ? AND rowid <= ? ORDER BY rowid");
+			try {
+				long lower = Long.MIN_VALUE;
+				int copied = 0;
+				while (copied < total) {
+					bound.bindLong(1, lower);
+					long upper = bound.simpleQueryForLong();
+					copy.bindLong(1, lower);
+					copy.bindLong(2, upper);
+					copy.execute();
+					copied = Math.min(total, copied + CHUNK_SIZE);
+					lower = upper;
+					if (listener != null) {
+						listener.onProgress(table, copied, total);
+					}
+				}
+			} finally {
+				bound.close();
+				copy.close();
+			}
+		}
+		// renaming the new table instead of the old one leaves the references of other tables alone
+		db.execSQL("DROP TABLE " + table);
+		db.execSQL("ALTER TABLE " + rebuilt + " RENAME TO " + table);
+		createIndexes(db, mapper);
+		Log.i(TAG, "rebuilt table " + table + ", copied " + total + " rows");
+	}
+
+	/**
+	 * Replaces the table name of a <code>CREATE TABLE</code> statement.
+	 *
+	 * @param create  the statement
+	 * @param table   the table name in the statement
+	 * @param newName the new table name
+	 * @return the statement creating the table under the new name
+	 */
+	static String renameCreateStatement(String create, String table, String newName) {
+		Matcher matcher = Pattern.compile("^(\\s*CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?)"
+				+ Pattern.quote(table) + "(?=[\\s(])", Pattern.CASE_INSENSITIVE).matcher(create);
+		if (!matcher.find()) {
+			throw new IllegalArgumentException("Not a CREATE TABLE statement of " + table + ": " + create);
+		}
+		return matcher.group(1) + newName + create.substring(matcher.end());
+	}
+
+	private static void createIndexes(SQLiteDatabase db, EntityMapper<?> mapper) {
+		for (String index : mapper.getCreateIndexStatements()) {
+			db.execSQL(index);
+		}
+	}
+
+	private static String declaredType(ColumnInfo column) {
+		return column.getSize() == -1 ? column.getType() : column.getType() + "(" + column.getSize() + ")";
+	}
+
+	private static Map<String, LiveColumn> readColumns(SQLiteDatabase db, String table) {
+		Map<String, LiveColumn> columns = new HashMap<String, LiveColumn>();
+		Cursor c = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+		try {
+			int name = c.getColumnIndex("name");
+			int type = c.getColumnIndex("type");
+			int pk = c.getColumnIndex("pk");
+			while (c.moveToNext()) {
+				columns.put(c.getString(name).toLowerCase(Locale.US),
+						new LiveColumn(StringUtils.safe(c.getString(type)), c.getInt(pk) > 0));
+			}
+		} finally {
+			c.close();
+		}
+		return columns;
+	}
+
+	/**
+	 * A column of the installed table, as read by <code>PRAGMA table_info</code>.
+	 */
+	static final class LiveColumn {
+		final String type;
+		final boolean primaryKey;
+
+		LiveColumn(String type, boolean primaryKey) {
+			this.type = type;
+			this.primaryKey = primaryKey;
+		}
+	}
+
+	/**
+	 * The changes a table needs to match its model.
+	 */
+	static final class TableDiff {
+		/** Columns of the model missing in the table. */
+		final List<ColumnInfo> added = new ArrayList<ColumnInfo>();
+		/** Columns in both, whose values are kept when the table is rebuilt. */
+		final List<String> kept = new ArrayList<String>();
+		/** True if columns were removed or retyped or the primary key changed. */
+		boolean rebuild;
+	}
+}
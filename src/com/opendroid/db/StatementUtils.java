@@ -0,0 +1,192 @@
+package com.opendroid.db;
+
+import java.util.Map;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteProgram;
+
+/**
+ * Helpers for binding values to compiled {@link android.database.sqlite.SQLiteStatement}s.
+ */
+public class StatementUtils {
+
+	/**
+	 * Binds a single value at the given (1-based) index, choosing the bind method from the value type.
+	 *
+	 * @param program the compiled statement
+	 * @param index   1-based bind index
+	 * @param value   value to bind, may be null
+	 */
+	public static void bindValue(SQLiteProgram program, int index, Object value) {
+		if (value == null) {
+			program.bindNull(index);
+		} else if (value instanceof String) {
+			program.bindString(index, (String) value);
+		} else if (value instanceof Long || value instanceof Integer
+				|| value instanceof Short || value instanceof Byte) {
+			program.bindLong(index, ((Number) value).longValue());
+		} else if (value instanceof Double || value instanceof Float) {
+			program.bindDouble(index, ((Number) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			program.bindLong(index, ((Boolean) value) ? 1 : 0);
+		} else if (value instanceof byte[]) {
+			program.bindBlob(index, (byte[]) value);
+		} else {
+			program.bindString(index, value.toString());
+		}
+	}
+
+	/**
+	 * Binds the values for the given columns, in order, starting at bind index 1.
+	 *
+	 * @param program the compiled statement
+	 * @param columns column names, in bind order
+	 * @param values  the values to bind
+	 */
+	public static void bindValues(SQLiteProgram program, String[] columns, ContentValues values) {
+		for (int i = 0; i < columns.length; i++) {
+			bindValue(program, i + 1, values.get(columns[i]));
+		}
+	}
+
+	/**
+	 * Checks whether the values hold exactly the given columns, so that a statement
+	 * compiled for those columns can be reused for them.
+	 *
+	 * @param columns column names a statement was compiled for
+	 * @param values  the values to check
+	 * @return true, if the values match the columns
+	 */
+	public static boolean hasSameColumns(String[] columns, ContentValues values) {
+		if (values.size() != columns.length) {
+			return false;
+		}
+		for (String column : columns) {
+			if (!values.containsKey(column)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the column names held by the values, in iteration order.
+	 *
+	 * @param values the values
+	 * @return the column names
+	 */
+	public static String[] columnsOf(ContentValues values) {
+		String[] columns = new String[values.size()];
+		int i = 0;
+		for (Map.Entry<String, Object> entry : values.valueSet()) {
+			columns[i++] = entry.getKey();
+		}
+		return columns;
+	}
+
+	/**
+	 * Builds an INSERT statement for the given columns.
+	 *
+	 * @param tableName the table name
+	 * @param columns   the column names
+	 * @return the sql
+	 */
+	public static String insertSql(String tableName, String[] columns) {
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
+		StringBuilder params = new StringBuilder();
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(',');
+				params.append(',');
+			}
+			sql.append(columns[i]);
+			params.append('?');
+		}
+		return sql.append(") VALUES (").append(params).append(')').toString();
+	}
+
+	/**
+	 * Builds an UPDATE statement for the given columns, the row is selected by the last bind argument.
+	 *
+	 * @param tableName the table name
+	 * @param columns   the column names
+	 * @param keyColumn column used in the WHERE clause
+	 * @return the sql
+	 */
+	public static String updateSql(String tableName, String[] columns, String keyColumn) {
+		StringBuilder sql = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(',');
+			}
+			sql.append(columns[i]).append(" = ?");
+		}
+		return sql.append(" WHERE ").append(keyColumn).append(" = ?").toString();
+	}
+
+	/**
+	 * Builds an INSERT statement that updates the row when the key is already taken
+	 * (<code>INSERT ... ON CONFLICT DO UPDATE</code>, SQLite 3.24 and later). The key is bound
+	 * by the last bind argument.
+	 *
+	 * @param tableName the table name
+	 * @param columns   the column names, without the key
+	 * @param keyColumn the primary key column
+	 * @return the sql
+	 */
+	public static String upsertSql(String tableName, String[] columns, String keyColumn) {
+		String[] insertColumns = new String[columns.length + 1];
+		System.arraycopy(columns, 0, insertColumns, 0, columns.length);
+		insertColumns[columns.length] = keyColumn;
+		StringBuilder sql = new StringBuilder(insertSql(tableName, insertColumns))
+				.append(" ON CONFLICT(").append(keyColumn).append(") DO ");
+		if (columns.length == 0) {
+			return sql.append("NOTHING").toString();
+		}
+		sql.append("UPDATE SET ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(',');
+			}
+			sql.append(columns[i]).append(" = excluded.").append(columns[i]);
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * Builds a CREATE INDEX statement.
+	 *
+	 * @param tableName the table name
+	 * @param indexName the index name, <b>null</b> or empty for <code>idx_&lt;table&gt;_&lt;columns&gt;</code>
+	 * @param columns   the indexed columns, in index order
+	 * @param unique    whether the index is unique
+	 * @param where     condition of a partial index, may be <b>null</b> or empty
+	 * @return the sql
+	 */
+	public static String createIndexSql(String tableName, String indexName, String[] columns,
+			boolean unique, String where) {
+		StringBuilder name = new StringBuilder();
+		StringBuilder sql = new StringBuilder();
+		if (indexName == null || indexName.length() == 0) {
+			name.append("idx_").append(tableName);
+			for (String column : columns) {
+				name.append('_').append(column);
+			}
+		} else {
+			name.append(indexName);
+		}
+		sql.append(unique ? "CREATE UNIQUE INDEX" : "CREATE INDEX").append(" IF NOT EXISTS ")
+				.append(name).append(" ON ").append(tableName).append(" (");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns[i]);
+		}
+		sql.append(')');
+		if (where != null && where.length() > 0) {
+			sql.append(" WHERE ").append(where);
+		}
+		return sql.toString();
+	}
+}
@@ -0,0 +1,372 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.DaoExecutor.Operation;
+
+/**
+ * Runs the operations of a {@link BaseDAO} off the calling thread. Writes go
+ * through a single writer thread in submission order, reads run on a bounded
+ * reader pool. Every operation returns a {@link Future} and optionally reports
+ * to a {@link DaoCallback}, on the worker thread.
+ *
+ * <p>Multi-row reads stream their cursor and check for cancellation after
+ * every row, so cancelling the future stops reading and closes the cursor.</p>
+ *
+ * @param <T> the generic type of DbModel
+ */
+public class AsyncDAO<T extends DbModel> {
+
+	private final BaseDAO<T> dao;
+	private final DaoExecutor writer;
+	private final DaoExecutor readers;
+
+	/**
+	 * Instantiates a new async dao on the shared {@link DaoExecutor#writer()}
+	 * and {@link DaoExecutor#readers()}.
+	 *
+	 * @param dao the dao
+	 */
+	public AsyncDAO(BaseDAO<T> dao) {
+		this(dao, DaoExecutor.writer(), DaoExecutor.readers());
+	}
+
+	/**
+	 * Instantiates a new async dao.
+	 *
+	 * @param dao the dao
+	 * @param writer executor for writes, should have a single thread
+	 * @param readers executor for reads
+	 */
+	public AsyncDAO(BaseDAO<T> dao, DaoExecutor writer, DaoExecutor readers) {
+		this.dao = dao;
+		this.writer = writer;
+		this.readers = readers;
+	}
+
+	/**
+	 * Gets the wrapped DAO.
+	 *
+	 * @return the dao
+	 */
+	public BaseDAO<T> getDAO() {
+		return dao;
+	}
+
+	/**
+	 * Gets the executor running the writes.
+	 *
+	 * @return the writer
+	 */
+	public DaoExecutor getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Gets the executor running the reads.
+	 *
+	 * @return the readers
+	 */
+	public DaoExecutor getReaders() {
+		return readers;
+	}
+
+	/**
+	 * Creates a model on the writer thread, see {@link BaseDAO#create(DbModel)}.
+	 *
+	 * @param model the model, its id is set once the future is done
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Void> create(final T model, DaoCallback<Void> callback) {
+		return writer.submit(new Operation<Void>() {
+			@Override
+			Void run(Future<Void> task) throws Exception {
+				dao.create(model);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Updates a model on the writer thread, see {@link BaseDAO#update(DbModel)}.
+	 *
+	 * @param model the model
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Void> update(final T model, DaoCallback<Void> callback) {
+		return writer.submit(new Operation<Void>() {
+			@Override
+			Void run(Future<Void> task) throws Exception {
+				dao.update(model);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Creates or updates a model on the writer thread, see
+	 * {@link BaseDAO#createOrUpdate(DbModel)}.
+	 *
+	 * @param model the model
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Void> createOrUpdate(final T model,
+			DaoCallback<Void> callback) {
+		return writer.submit(new Operation<Void>() {
+			@Override
+			Void run(Future<Void> task) throws Exception {
+				dao.createOrUpdate(model);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Deletes a model on the writer thread, see {@link BaseDAO#delete(DbModel)}.
+	 *
+	 * @param model the model
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Void> delete(final T model, DaoCallback<Void> callback) {
+		return writer.submit(new Operation<Void>() {
+			@Override
+			Void run(Future<Void> task) throws Exception {
+				dao.delete(model);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Creates models in chunked transactions on the writer thread, see
+	 * {@link BaseDAO#createAll(Collection)}.
+	 *
+	 * @param models the models
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Void> createAll(final Collection<T> models,
+			DaoCallback<Void> callback) {
+		return writer.submit(new Operation<Void>() {
+			@Override
+			Void run(Future<Void> task) throws Exception {
+				dao.createAll(models);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Creates or updates models in chunked transactions on the writer thread,
+	 * see {@link BaseDAO#upsertAll(Collection)}.
+	 *
+	 * @param models the models
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Void> upsertAll(final Collection<T> models,
+			DaoCallback<Void> callback) {
+		return writer.submit(new Operation<Void>() {
+			@Override
+			Void run(Future<Void> task) throws Exception {
+				dao.upsertAll(models);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Updates models in chunked transactions on the writer thread, see
+	 * {@link BaseDAO#updateAll(Collection)}.
+	 *
+	 * @param models the models
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Void> updateAll(final Collection<T> models,
+			DaoCallback<Void> callback) {
+		return writer.submit(new Operation<Void>() {
+			@Override
+			Void run(Future<Void> task) throws Exception {
+				dao.updateAll(models);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Deletes models in chunked transactions on the writer thread, see
+	 * {@link BaseDAO#deleteAll(Collection)}.
+	 *
+	 * @param models the models
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Void> deleteAll(final Collection<T> models,
+			DaoCallback<Void> callback) {
+		return writer.submit(new Operation<Void>() {
+			@Override
+			Void run(Future<Void> task) throws Exception {
+				dao.deleteAll(models);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Finds a model by primary key on a reader thread, see {@link BaseDAO#findById(int)}.
+	 *
+	 * @param id the id
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future of the model, <b>null</b> if there is no such row
+	 */
+	public Future<T> findById(final int id, DaoCallback<T> callback) {
+		return readers.submit(new Operation<T>() {
+			@Override
+			T run(Future<T> task) throws Exception {
+				return dao.findById(id);
+			}
+		}, callback);
+	}
+
+	/**
+	 * Finds the first model with a field value on a reader thread, see
+	 * {@link BaseDAO#findFirstByField(String, String)}.
+	 *
+	 * @param fieldName the field name
+	 * @param value the value
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future of the model, <b>null</b> if no row matches
+	 */
+	public Future<T> findFirstByField(final String fieldName,
+			final String value, DaoCallback<T> callback) {
+		return readers.submit(new Operation<T>() {
+			@Override
+			T run(Future<T> task) throws Exception {
+				return dao.findFirstByField(fieldName, value);
+			}
+		}, callback);
+	}
+
+	/**
+	 * Checks on a reader thread if a row exists, see {@link BaseDAO#exists(int)}.
+	 *
+	 * @param id the id
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Boolean> exists(final int id, DaoCallback<Boolean> callback) {
+		return readers.submit(new Operation<Boolean>() {
+			@Override
+			Boolean run(Future<Boolean> task) throws Exception {
+				return dao.exists(id);
+			}
+		}, callback);
+	}
+
+	/**
+	 * Reads all rows on a reader thread, stopping when the future is cancelled.
+	 *
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future of the models
+	 */
+	public Future<List<T>> findAll(DaoCallback<List<T>> callback) {
+		return readers.submit(new Operation<List<T>>() {
+			@Override
+			List<T> run(Future<List<T>> task) throws Exception {
+				return collect(dao.iterateAll(), task);
+			}
+		}, callback);
+	}
+
+	/**
+	 * Reads the rows with a field value on a reader thread, stopping when the
+	 * future is cancelled.
+	 *
+	 * @param fieldName the field name
+	 * @param value the value
+	 * @param orderConditions the "order by" sentence. May be <b>null</b>.
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future of the models
+	 */
+	public Future<List<T>> findAllByField(final String fieldName,
+			final String value, final String orderConditions,
+			DaoCallback<List<T>> callback) {
+		return readers.submit(new Operation<List<T>>() {
+			@Override
+			List<T> run(Future<List<T>> task) throws Exception {
+				return collect(dao.iterateAllByField(fieldName, value,
+						orderConditions), task);
+			}
+		}, callback);
+	}
+
+	/**
+	 * Reads a page ordered by primary key on a reader thread, see
+	 * {@link BaseDAO#findPage(String, int)}.
+	 *
+	 * @param continuationToken token of the previous page, <b>null</b> for the first page
+	 * @param pageSize the page size
+	 * @param callback the callback. May be <b>null</b>.
+	 * @return the future of the page
+	 */
+	public Future<Page<T>> findPage(final String continuationToken,
+			final int pageSize, DaoCallback<Page<T>> callback) {
+		return readers.submit(new Operation<Page<T>>() {
+			@Override
+			Page<T> run(Future<Page<T>> task) throws Exception {
+				return dao.findPage(continuationToken, pageSize);
+			}
+		}, callback);
+	}
+
+	/**
+	 * Passes every row to the row callback on a reader thread, until it
+	 * returns false or the future is cancelled.
+	 *
+	 * @param rowCallback the row callback
+	 * @param callback notified with the number of rows read. May be <b>null</b>.
+	 * @return the future
+	 */
+	public Future<Integer> forEach(final RowCallback<T> rowCallback,
+			DaoCallback<Integer> callback) {
+		return readers.submit(new Operation<Integer>() {
+			@Override
+			Integer run(final Future<Integer> task) throws Exception {
+				return dao.forEach(new RowCallback<T>() {
+					@Override
+					public boolean onRow(T model) {
+						return !task.isCancelled() && rowCallback.onRow(model);
+					}
+				});
+			}
+		}, callback);
+	}
+
+	/**
+	 * Reads the iterator into a list, stopping and closing the cursor as soon as the task is cancelled.
+	 */
+	private List<T> collect(CursorIterator<T> it, Future<?> task) {
+		List<T> result = new ArrayList<T>();
+		try {
+			while (it.hasNext()) {
+				if (task.isCancelled()) {
+					throw new CancellationException();
+				}
+				result.add(it.next());
+			}
+		} finally {
+			it.close();
+		}
+		return result;
+	}
+}
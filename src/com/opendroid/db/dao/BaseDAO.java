@@ -1,16 +1,34 @@
 package com.opendroid.db.dao;
 
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
-import android.util.Log;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.util.SparseIntArray;
 
+import com.opendroid.db.ColumnIndexCursor;
+import com.opendroid.db.DbConfiguration;
+import com.opendroid.db.DbHelper;
 import com.opendroid.db.DbModel;
+import com.opendroid.db.StatementUtils;
 import com.opendroid.db.StringUtils;
+import com.opendroid.db.dao.StatementCache.CachedStatement;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -21,8 +39,46 @@ import com.opendroid.db.StringUtils;
 public abstract class BaseDAO<T extends DbModel> implements DAO<T> {
 
 	private static final String TAG = "BaseDAO";
+
+	/** Default number of rows written per transaction by the bulk operations. */
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+
+	/**
+	 * Maximum number of ids bound into one IN list, below the 999 variables
+	 * SQLite allows per statement.
+	 */
+	public static final int MAX_IN_SIZE = 512;
+
+	private static final String OP_FIND_BY_ID = "findById";
+	private static final String OP_FIND_BY_FIELD = "findFirstByField";
+	private static final String OP_EXISTS = "exists";
+	private static final String OP_UPDATE = "update";
+	private static final String OP_DELETE = "delete";
+	private static final String OP_UPSERT = "upsert";
+	private static final String OP_COUNT = "count";
+	private static final String OP_FIND_BY_IDS = "findByIds";
+	private static final String OP_DELETE_BY_IDS = "deleteByIds";
+
+	/** Whether the SQLite library supports ON CONFLICT DO UPDATE, <b>null</b> until checked. */
+	private static volatile Boolean nativeUpsert;
+
 	protected final SQLiteDatabase db;
 	protected final Context context;
+	private final DbHelper helper;
+	private final StatementCache statements;
+	private final Map<SQLiteDatabase, StatementCache> readStatements = new HashMap<SQLiteDatabase, StatementCache>();
+	private final IdentityCache<T> identityCache;
+	private final WriteBehindBuffer<T> writeBehind;
+	private final DaoMetricsListener metrics;
+	private final int queryPlanSampling;
+	private Class<T> modelClass;
+	private EntityMapper<T> mapper;
+	private Boolean customFromCursor;
+	private Boolean customFill;
+	private Boolean lazyLoadable;
+	private String selection;
+	private String[] chunkedBlobColumns;
+	private ChunkedBlobStore blobStore;
 
 	/**
 	 * Instantiates a new base dao.
@@ -31,255 +87,2196 @@ public abstract class BaseDAO<T extends DbModel> implements DAO<T> {
 	 * @param db the db
 	 */
 	public BaseDAO(Context context, SQLiteDatabase db) {
+		this(context, db, null);
+	}
+
+	/**
+	 * Instantiates a new base dao for the given model class. DAOs declared as
+	 * <code>extends BaseDAO&lt;Model&gt;</code> do not need to pass it, the
+	 * model class is then read from the type argument.
+	 *
+	 * @param context the context
+	 * @param db the db
+	 * @param modelClass the model class. May be <b>null</b>.
+	 */
+	protected BaseDAO(Context context, SQLiteDatabase db, Class<T> modelClass) {
+		this(context, db, writerOf(DbHelper.peekInstance(), db), modelClass);
+	}
+
+	/**
+	 * Instantiates a new base dao on the database of a {@link DbHelper}.
+	 * Reads are spread over its read connection pool when one is configured,
+	 * writes go to its single writer connection.
+	 *
+	 * @param context the context
+	 * @param helper the db helper
+	 */
+	public BaseDAO(Context context, DbHelper helper) {
+		this(context, helper.getSQLiteDatabase(), helper, null);
+	}
+
+	private BaseDAO(Context context, SQLiteDatabase db, DbHelper helper,
+			Class<T> modelClass) {
 		this.context = context;
 		this.db = db;
-		Log.e("CHECK", "DB IN BASEDAO CON : "+db);
+		this.helper = helper;
+		this.modelClass = modelClass;
+		DbConfiguration configuration = DbConfiguration.getCurrent();
+		this.statements = new StatementCache(db,
+				configuration != null ? configuration.getStatementCacheSize()
+						: StatementCache.DEFAULT_MAX_SIZE);
+		int identityCacheSize = configuration != null ? configuration
+				.getIdentityCacheSize(getClass()) : 0;
+		this.identityCache = identityCacheSize > 0 ? IdentityCache
+				.<T> forDao(getClass(), identityCacheSize) : null;
+		DbConfiguration.WriteBehind writeBehindSettings = configuration != null ? configuration
+				.getWriteBehind(getClass()) : null;
+		this.writeBehind = writeBehindSettings != null ? WriteBehindBuffer
+				.forDao(this, writeBehindSettings.getMaxPending(),
+						writeBehindSettings.getIntervalMillis()) : null;
+		this.metrics = configuration != null ? configuration
+				.getMetricsListener() : null;
+		this.queryPlanSampling = configuration != null ? configuration
+				.getQueryPlanSampling() : 0;
+	}
+
+	private static DbHelper writerOf(DbHelper helper, SQLiteDatabase db) {
+		return helper != null && helper.getSQLiteDatabase() == db ? helper
+				: null;
+	}
+
+	/**
+	 * Gets the connection reads are run on. This is a connection of the read
+	 * pool when the DAO was created on the writer of a {@link DbHelper} with
+	 * one, except inside a transaction, which has to see its own writes.
+	 *
+	 * @return the database to read from
+	 */
+	protected SQLiteDatabase readDatabase() {
+		flushPendingWrites();
+		if (db.inTransaction()) {
+			return db;
+		}
+		TableVersions.transactionEnded(db);
+		return helper == null ? db : helper.getReadableDatabase();
+	}
+
+	/**
+	 * Gets the statement cache for a connection used for reading.
+	 *
+	 * @param connection the connection
+	 * @return the statement cache
+	 */
+	private StatementCache statementsFor(SQLiteDatabase connection) {
+		if (connection == db) {
+			return statements;
+		}
+		synchronized (readStatements) {
+			StatementCache cache = readStatements.get(connection);
+			if (cache == null) {
+				DbConfiguration configuration = DbConfiguration.getCurrent();
+				cache = new StatementCache(connection,
+						configuration != null ? configuration
+								.getStatementCacheSize()
+								: StatementCache.DEFAULT_MAX_SIZE);
+				readStatements.put(connection, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Gets the cache of compiled statements used by this DAO.
+	 *
+	 * @return the statement cache
+	 */
+	public StatementCache getStatementCache() {
+		return statements;
+	}
+
+	/**
+	 * Gets the identity cache shared by the instances of this DAO class.
+	 *
+	 * @return the identity cache, <b>null</b> if none is configured
+	 * @see DbConfiguration.Builder#setIdentityCacheSize(Class, int)
+	 */
+	public IdentityCache<T> getIdentityCache() {
+		return identityCache;
+	}
+
+	/**
+	 * Gets the write-behind buffer shared by the instances of this DAO class.
+	 *
+	 * @return the write-behind buffer, <b>null</b> if none is configured
+	 * @see DbConfiguration.Builder#setWriteBehind(Class, int, long)
+	 */
+	public WriteBehindBuffer<T> getWriteBehindBuffer() {
+		return writeBehind;
+	}
+
+	/**
+	 * Writes the models buffered by the write-behind buffer, if this DAO has one.
+	 *
+	 * @throws DAOException the dAO exception
+	 */
+	public void flush() throws DAOException {
+		if (writeBehind != null) {
+			writeBehind.flush();
+		}
+	}
+
+	/**
+	 * Flushes buffered writes before other reads or writes of the table, so
+	 * they see the buffered models and keep their order. Reads served from a
+	 * cache flush before looking the cache up.
+	 */
+	private void flushPendingWrites() {
+		if (writeBehind != null && !writeBehind.isFlushing()) {
+			writeBehind.flushQuietly();
+		}
+	}
+
+	/**
+	 * Runs a query on the {@link #readDatabase() read connection}. With a
+	 * {@link DaoMetricsListener} configured the cursor reports how long it was
+	 * open, and queries are sampled for full table scans when enabled.
+	 *
+	 * @param sql the sql
+	 * @param args the arguments. May be <b>null</b>.
+	 * @return the cursor
+	 */
+	protected Cursor query(String sql, String[] args) {
+		SQLiteDatabase database = readDatabase();
+		if (queryPlanSampling > 0) {
+			QueryPlanSampler.sample(queryPlanSampling, database, sql, args,
+					getClass(), metrics);
+		}
+		Cursor c = database.rawQuery(sql, args);
+		return metrics != null ? new MeteredCursor(c, getClass(), sql, metrics)
+				: c;
+	}
+
+	/**
+	 * Gets the start time of an operation, 0 when no metrics are collected.
+	 */
+	private long startTiming() {
+		return metrics != null ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Reports an operation started at {@link #startTiming()} to the metrics listener.
+	 */
+	private void record(String operation, long start, int rows) {
+		if (metrics != null) {
+			metrics.onOperation(getClass(), operation, System.nanoTime() - start,
+					rows);
+		}
+	}
+
+	/**
+	 * Closes the compiled statements held by this DAO. The database stays open.
+	 */
+	public void close() {
+		statements.close();
+		synchronized (readStatements) {
+			for (StatementCache cache : readStatements.values()) {
+				cache.close();
+			}
+			readStatements.clear();
+		}
+	}
+
+	/**
+	 * Gets the model class of this DAO.
+	 *
+	 * @return the model class
+	 * @throws IllegalStateException if it was neither passed to the constructor nor declared as type argument
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized Class<T> getModelClass() {
+		if (modelClass == null) {
+			Class<?> c = getClass();
+			while (c.getSuperclass() != BaseDAO.class) {
+				c = c.getSuperclass();
+			}
+			Type type = c.getGenericSuperclass();
+			if (type instanceof ParameterizedType) {
+				Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+				if (argument instanceof Class) {
+					modelClass = (Class<T>) argument;
+				}
+			}
+			if (modelClass == null) {
+				throw new IllegalStateException("Model class of "
+						+ getClass().getName()
+						+ " is unknown, pass it to the BaseDAO constructor");
+			}
+		}
+		return modelClass;
+	}
+
+	/**
+	 * Gets the mapper of the model, the generated one if present, otherwise
+	 * one working on the model's {@link TableMetadata}.
+	 *
+	 * @return the entity mapper
+	 */
+	protected synchronized EntityMapper<T> getMapper() {
+		if (mapper == null) {
+			mapper = Mappers.of(getModelClass());
+		}
+		return mapper;
 	}
 
 	/**
-	 * Gets the table name for DAO.
+	 * Gets the table name for DAO. Defaults to the {@link com.opendroid.db.dao.annotations.Table}
+	 * name of the model.
 	 *
 	 * @return the table name
 	 */
-	public abstract String getTableName();
+	public String getTableName() {
+		return getMapper().getTableName();
+	}
 
-	/* (non-Javadoc)
+	/**
+	 * Maps the current row of a cursor. Defaults to the mapping of the annotated
+	 * model fields, override for hand-written mapping.
+	 *
 	 * @see com.opendroid.db.dao.DAO#fromCursor(android.database.Cursor)
 	 */
-	public abstract T fromCursor(Cursor c);
+	public T fromCursor(Cursor c) {
+		return getMapper().fromCursor(c);
+	}
 
-	/* (non-Javadoc)
+	/**
+	 * Reads the current row of a cursor into an existing model, used by
+	 * {@link #scan(DbModel, RowCallback)}. Defaults to the mapping of the
+	 * annotated model fields. DAOs overriding only {@link #fromCursor(Cursor)}
+	 * map every row into a new model copied into this one, override this
+	 * method as well to scan without allocating.
+	 *
+	 * @param c the cursor
+	 * @param into the model to overwrite
+	 */
+	public void fromCursor(Cursor c, T into) {
+		rowFiller(c).fill(c, into);
+	}
+
+	/**
+	 * Gets the values of a model. Defaults to the annotated model fields
+	 * without the primary key, override for hand-written mapping.
+	 *
 	 * @see com.opendroid.db.dao.DAO#values(java.lang.Object)
 	 */
-	public abstract ContentValues values(T t);
+	public ContentValues values(T t) {
+		ContentValues values = getMapper().values(t);
+		if (t instanceof LazyLoadable) {
+			LazyLoader loader = ((LazyLoadable) t).getLazyLoader();
+			if (loader != null) {
+				loader.removeUnloaded(values);
+			}
+		}
+		return values;
+	}
+
+	private synchronized boolean hasCustomFromCursor() {
+		if (customFromCursor == null) {
+			try {
+				customFromCursor = getClass().getMethod("fromCursor",
+						Cursor.class).getDeclaringClass() != BaseDAO.class;
+			} catch (NoSuchMethodException e) {
+				customFromCursor = Boolean.TRUE;
+			}
+		}
+		return customFromCursor;
+	}
+
+	/**
+	 * Creates the mapper used to read the rows of a multi-row result. DAOs
+	 * using the default mapping read rows by index through {@link #getMapper()},
+	 * otherwise the mapper calls {@link #fromCursor(Cursor)} on a
+	 * {@link ColumnIndexCursor}, so column names are resolved once per cursor.
+	 * Override to resolve column indices up front and read rows by index
+	 * with the index based {@link com.opendroid.db.CursorUtils} extractors.
+	 *
+	 * @param c the cursor, positioned on its first row
+	 * @return the row mapper
+	 */
+	protected RowMapper<T> rowMapper(Cursor c) {
+		if (!hasCustomFromCursor()) {
+			return getMapper().rowMapper(c);
+		}
+		final Cursor indexed = new ColumnIndexCursor(c);
+		return new RowMapper<T>() {
+			@Override
+			public T mapRow(Cursor c) {
+				return fromCursor(indexed);
+			}
+		};
+	}
+
+	private synchronized boolean hasCustomFill() {
+		if (customFill == null) {
+			try {
+				customFill = getClass().getMethod("fromCursor", Cursor.class,
+						DbModel.class).getDeclaringClass() != BaseDAO.class;
+			} catch (NoSuchMethodException e) {
+				customFill = Boolean.TRUE;
+			}
+		}
+		return customFill;
+	}
+
+	/**
+	 * Creates the filler used by scans. DAOs using the default mapping fill
+	 * models by index through {@link #getMapper()}, otherwise the filler calls
+	 * {@link #fromCursor(Cursor, DbModel)} on a {@link ColumnIndexCursor}. When
+	 * only {@link #fromCursor(Cursor)} is overridden, each row is mapped by it
+	 * and its fields copied into the filled model.
+	 *
+	 * @param c the cursor, positioned on its first row
+	 * @return the row filler
+	 */
+	protected RowFiller<T> rowFiller(Cursor c) {
+		if (hasCustomFill()) {
+			final Cursor indexed = new ColumnIndexCursor(c);
+			return new RowFiller<T>() {
+				@Override
+				public void fill(Cursor c, T model) {
+					fromCursor(indexed, model);
+				}
+			};
+		}
+		if (hasCustomFromCursor()) {
+			return new ModelCopier<T>(rowMapper(c));
+		}
+		return getMapper().rowFiller(c);
+	}
+
+	/**
+	 * Creates the mapper for a cursor through {@link #rowMapper(Cursor)}. When
+	 * the model is {@link LazyLoadable} and the cursor misses some of its
+	 * columns, the mapped models get a {@link LazyLoader} for them.
+	 */
+	private RowMapper<T> mapperFor(Cursor c) {
+		final RowMapper<T> mapper = rowMapper(c);
+		if (!isLazyLoadable()) {
+			return mapper;
+		}
+		List<String> missing = new ArrayList<String>();
+		for (String column : getMapper().getColumnNames()) {
+			if (c.getColumnIndex(column) == -1) {
+				missing.add(column);
+			}
+		}
+		if (missing.isEmpty()) {
+			return mapper;
+		}
+		final String[] columns = missing.toArray(new String[missing.size()]);
+		return new RowMapper<T>() {
+			@Override
+			public T mapRow(Cursor c) {
+				T model = mapper.mapRow(c);
+				((LazyLoadable) model).setLazyLoader(new LazyLoader(
+						BaseDAO.this, model, columns));
+				return model;
+			}
+		};
+	}
+
+	private synchronized boolean isLazyLoadable() {
+		if (lazyLoadable == null) {
+			try {
+				Class<T> type = getModelClass();
+				lazyLoadable = LazyLoadable.class.isAssignableFrom(type)
+						&& TableMetadata.isTable(type);
+			} catch (IllegalStateException e) {
+				lazyLoadable = Boolean.FALSE;
+			}
+		}
+		return lazyLoadable;
+	}
+
+	/**
+	 * Gets the column list of the default queries: <code>*</code>, or the
+	 * primary key and the columns not marked lazy when the model has lazy
+	 * columns.
+	 *
+	 * @return the selected columns
+	 */
+	protected synchronized String selection() {
+		if (selection == null) {
+			String[] lazy = hasCustomFromCursor() ? new String[0]
+					: getMapper().getLazyColumnNames();
+			if (lazy.length == 0) {
+				selection = "*";
+			} else {
+				List<String> columns = new ArrayList<String>();
+				columns.add(ID);
+				List<String> lazyColumns = Arrays.asList(lazy);
+				for (String column : getMapper().getColumnNames()) {
+					if (!lazyColumns.contains(column)) {
+						columns.add(column);
+					}
+				}
+				selection = StringUtils.join(columns, ", ");
+			}
+		}
+		return selection;
+	}
+
+	/**
+	 * Builds the column list of a projection, the primary key is always selected.
+	 */
+	static String projection(String[] columns) {
+		List<String> selected = new ArrayList<String>(columns.length + 1);
+		selected.add(ID);
+		for (String column : columns) {
+			if (!ID.equals(column)) {
+				selected.add(column);
+			}
+		}
+		return StringUtils.join(selected, ", ");
+	}
+
+	/**
+	 * Opens a stream reading a {@link ColumnTypes#CHUNKED_BLOB} column of a
+	 * model, one chunk at a time.
+	 *
+	 * @param model the model
+	 * @param column the chunked column
+	 * @return the stream, <b>null</b> if no value is stored
+	 * @throws DAOException the dAO exception
+	 */
+	public BlobInputStream openBlobInputStream(T model, String column)
+			throws DAOException {
+		checkChunkedBlob(column);
+		try {
+			return blobStore().openInputStream(readDatabase(), column,
+					model.getId());
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		}
+	}
+
+	/**
+	 * Opens a stream replacing the value of a {@link ColumnTypes#CHUNKED_BLOB}
+	 * column of a stored model. Chunks are committed as they fill up, the
+	 * column holds the length of the new value once the stream is closed.
+	 *
+	 * @param model the model
+	 * @param column the chunked column
+	 * @return the stream
+	 * @throws DAOException the dAO exception
+	 */
+	public BlobOutputStream openBlobOutputStream(T model, String column)
+			throws DAOException {
+		checkChunkedBlob(column);
+		if (model.getId() <= 0) {
+			throw new IllegalArgumentException(
+					"The model has to be created before writing " + column);
+		}
+		flushPendingWrites();
+		try {
+			return blobStore().openOutputStream(column, model.getId());
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		}
+	}
+
+	private void checkChunkedBlob(String column) {
+		if (!Arrays.asList(chunkedBlobColumns()).contains(column)) {
+			throw new IllegalArgumentException(column + " is not a "
+					+ ColumnTypes.CHUNKED_BLOB + " column of " + getTableName());
+		}
+	}
+
+	private synchronized String[] chunkedBlobColumns() {
+		if (chunkedBlobColumns == null) {
+			try {
+				chunkedBlobColumns = getMapper().getChunkedBlobColumnNames();
+			} catch (IllegalStateException e) {
+				// the model class is unknown, so it has no annotated columns
+				chunkedBlobColumns = new String[0];
+			} catch (IllegalArgumentException e) {
+				// the model is not annotated with @Table
+				chunkedBlobColumns = new String[0];
+			}
+		}
+		return chunkedBlobColumns;
+	}
+
+	private synchronized ChunkedBlobStore blobStore() {
+		if (blobStore == null) {
+			blobStore = new ChunkedBlobStore(db, getTableName(),
+					ChunkedBlobStore.DEFAULT_CHUNK_SIZE);
+		}
+		return blobStore;
+	}
+
+	/**
+	 * Reads columns of a model by its primary key, used by {@link LazyLoader}.
+	 * Fails if the row does not exist (any more).
+	 */
+	void loadColumns(DbModel model, String[] columns) throws DAOException {
+		TableMetadata<T> metadata = TableMetadata.forClass(getModelClass());
+		Cursor c = null;
+		try {
+			c = query("select " + StringUtils.join(Arrays.asList(columns), ", ")
+					+ " from " + getTableName() + " where " + ID + " = ?",
+					whereArgsForId(model.getId()));
+			if (!c.moveToFirst()) {
+				// the columns must not be marked as loaded
+				throw new SQLException("Row " + model.getId() + " of "
+						+ getTableName() + " does not exist");
+			}
+			for (int i = 0; i < columns.length; i++) {
+				metadata.getColumn(columns[i]).read(c, i, model);
+			}
+		} catch (RuntimeException e) {
+			throw new DAOException(e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+
+	/**
+	 * Runs a query on this DAO's table and maps all rows. Results are served
+	 * from and stored in the {@link QueryResultCache} when it is enabled, as
+	 * raw rows mapped into new models on every hit. Results read inside a
+	 * transaction are not cached.
+	 *
+	 * @param sql the sql
+	 * @param args the arguments. May be <b>null</b>.
+	 * @return the list
+	 */
+	protected List<T> loadList(String sql, String[] args) {
+		return loadList("loadList", sql, args);
+	}
+
+	List<T> loadList(String operation, String sql, String[] args) {
+		// cached results must not hide buffered writes
+		flushPendingWrites();
+		long start = startTiming();
+		QueryResultCache cache = QueryResultCache.getInstance();
+		// rows are copied with Cursor.getType()
+		boolean cached = cache.isEnabled()
+				&& Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+		String tableName = null;
+		long version = 0;
+		Cursor c = null;
+		if (cached) {
+			tableName = getTableName();
+			QueryResultCache.Rows rows = cache.get(getClass(), tableName, sql, args);
+			if (rows != null) {
+				c = rows.newCursor();
+			} else {
+				version = TableVersions.current(tableName);
+			}
+		}
+		List<T> result = null;
+		try {
+			if (c == null) {
+				c = query(sql, args);
+				if (cached && !db.inTransaction() && cache.accepts(c.getCount())) {
+					cache.put(getClass(), tableName, version, sql, args,
+							QueryResultCache.Rows.copyOf(c));
+				}
+			}
+			result = mapAll(c);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+		record(operation, start, result.size());
+		return result;
+	}
+
+	/**
+	 * Maps every row of a cursor.
+	 *
+	 * @param c the cursor
+	 * @return the list
+	 */
+	protected List<T> mapAll(Cursor c) {
+		List<T> result = new ArrayList<T>();
+		if (c.moveToFirst()) {
+			RowMapper<T> mapper = mapperFor(c);
+			do {
+				result.add(mapper.mapRow(c));
+			} while (c.moveToNext());
+		}
+		return result;
+	}
+
+	/**
+	 * Checks if table is not empty.
+	 *
+	 * @return true, if is not empty
+	 * @throws DAOException the dAO exception
+	 */
+	public boolean isNotEmpty() throws DAOException {
+		return existsWhere(null, null);
+	}
+
+	/**
+	 * Counts all rows.
+	 *
+	 * @return the row count
+	 * @throws DAOException the dAO exception
+	 */
+	public long count() throws DAOException {
+		return countWhere(null, null);
+	}
+
+	/**
+	 * Counts the rows matching a condition.
+	 *
+	 * @param where the condition without the WHERE keyword, <b>null</b> for all rows
+	 * @param whereArgs the arguments of the condition. May be <b>null</b>.
+	 * @return the row count
+	 * @throws DAOException the dAO exception
+	 */
+	public long countWhere(String where, String[] whereArgs)
+			throws DAOException {
+		long start = startTiming();
+		StatementCache cache = statementsFor(readDatabase());
+		CachedStatement count = null;
+		try {
+			count = statement(cache, OP_COUNT, where);
+			long rows;
+			synchronized (count.statement) {
+				bindArgs(count.statement, whereArgs);
+				rows = count.statement.simpleQueryForLong();
+			}
+			record("countWhere", start, 1);
+			return rows;
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		} finally {
+			if (count != null) {
+				cache.release(count);
+			}
+		}
+	}
+
+	/**
+	 * Checks if any row matches a condition, reading at most one row.
+	 *
+	 * @param where the condition without the WHERE keyword, <b>null</b> for any row
+	 * @param whereArgs the arguments of the condition. May be <b>null</b>.
+	 * @return true, if a row matches
+	 * @throws DAOException the dAO exception
+	 */
+	public boolean existsWhere(String where, String[] whereArgs)
+			throws DAOException {
+		long start = startTiming();
+		Cursor c = null;
+		try {
+			c = query("select 1 from " + getTableName() + where(where)
+					+ " limit 1", whereArgs);
+			boolean found = c.moveToFirst();
+			record("existsWhere", start, found ? 1 : 0);
+			return found;
+		} catch (Exception e) {
+			throw new DAOException(e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+
+	/**
+	 * Gets the smallest value of a column.
+	 *
+	 * @param column the column
+	 * @return the minimum, {@link Double#NaN} if there are no values
+	 * @throws DAOException the dAO exception
+	 */
+	public double min(String column) throws DAOException {
+		return min(column, null, null);
+	}
+
+	/**
+	 * Gets the smallest value of a column over the rows matching a condition.
+	 *
+	 * @param column the column
+	 * @param where the condition without the WHERE keyword. May be <b>null</b>.
+	 * @param whereArgs the arguments of the condition. May be <b>null</b>.
+	 * @return the minimum, {@link Double#NaN} if there are no values
+	 * @throws DAOException the dAO exception
+	 */
+	public double min(String column, String where, String[] whereArgs)
+			throws DAOException {
+		return aggregate("min", "min", column, where, whereArgs);
+	}
+
+	/**
+	 * Gets the largest value of a column.
+	 *
+	 * @param column the column
+	 * @return the maximum, {@link Double#NaN} if there are no values
+	 * @throws DAOException the dAO exception
+	 */
+	public double max(String column) throws DAOException {
+		return max(column, null, null);
+	}
+
+	/**
+	 * Gets the largest value of a column over the rows matching a condition.
+	 *
+	 * @param column the column
+	 * @param where the condition without the WHERE keyword. May be <b>null</b>.
+	 * @param whereArgs the arguments of the condition. May be <b>null</b>.
+	 * @return the maximum, {@link Double#NaN} if there are no values
+	 * @throws DAOException the dAO exception
+	 */
+	public double max(String column, String where, String[] whereArgs)
+			throws DAOException {
+		return aggregate("max", "max", column, where, whereArgs);
+	}
+
+	/**
+	 * Sums a column.
+	 *
+	 * @param column the column
+	 * @return the sum, 0 if there are no values
+	 * @throws DAOException the dAO exception
+	 */
+	public double sum(String column) throws DAOException {
+		return sum(column, null, null);
+	}
+
+	/**
+	 * Sums a column over the rows matching a condition.
+	 *
+	 * @param column the column
+	 * @param where the condition without the WHERE keyword. May be <b>null</b>.
+	 * @param whereArgs the arguments of the condition. May be <b>null</b>.
+	 * @return the sum, 0 if there are no values
+	 * @throws DAOException the dAO exception
+	 */
+	public double sum(String column, String where, String[] whereArgs)
+			throws DAOException {
+		return aggregate("sum", "total", column, where, whereArgs);
+	}
+
+	/**
+	 * Averages a column.
+	 *
+	 * @param column the column
+	 * @return the average, {@link Double#NaN} if there are no values
+	 * @throws DAOException the dAO exception
+	 */
+	public double avg(String column) throws DAOException {
+		return avg(column, null, null);
+	}
+
+	/**
+	 * Averages a column over the rows matching a condition.
+	 *
+	 * @param column the column
+	 * @param where the condition without the WHERE keyword. May be <b>null</b>.
+	 * @param whereArgs the arguments of the condition. May be <b>null</b>.
+	 * @return the average, {@link Double#NaN} if there are no values
+	 * @throws DAOException the dAO exception
+	 */
+	public double avg(String column, String where, String[] whereArgs)
+			throws DAOException {
+		return aggregate("avg", "avg", column, where, whereArgs);
+	}
+
+	/**
+	 * Counts the rows per value of an integer column, e.g. a foreign key or a status.
+	 *
+	 * @param column the column to group by
+	 * @return the row counts by value, rows where the column is null are not counted
+	 * @throws DAOException the dAO exception
+	 */
+	public SparseIntArray countBy(String column) throws DAOException {
+		return countBy(column, null, null);
+	}
+
+	/**
+	 * Counts the rows matching a condition per value of an integer column.
+	 *
+	 * @param column the column to group by
+	 * @param where the condition without the WHERE keyword. May be <b>null</b>.
+	 * @param whereArgs the arguments of the condition. May be <b>null</b>.
+	 * @return the row counts by value, rows where the column is null are not counted
+	 * @throws DAOException the dAO exception
+	 */
+	public SparseIntArray countBy(String column, String where,
+			String[] whereArgs) throws DAOException {
+		long start = startTiming();
+		Cursor c = null;
+		try {
+			c = query("select " + column + ", count(*) from " + getTableName()
+					+ where(where) + " group by " + column + " order by "
+					+ column, whereArgs);
+			SparseIntArray counts = new SparseIntArray(c.getCount());
+			while (c.moveToNext()) {
+				if (!c.isNull(0)) {
+					// rows come ordered by key, so append skips the binary search
+					counts.append(c.getInt(0), c.getInt(1));
+				}
+			}
+			record("countBy", start, counts.size());
+			return counts;
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+
+	private double aggregate(String operation, String function, String column,
+			String where, String[] whereArgs) throws DAOException {
+		long start = startTiming();
+		Cursor c = null;
+		try {
+			c = query("select " + function + "(" + column + ") from "
+					+ getTableName() + where(where), whereArgs);
+			double value = c.moveToFirst() && !c.isNull(0) ? c.getDouble(0)
+					: Double.NaN;
+			record(operation, start, 1);
+			return value;
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+
+	private static String where(String where) {
+		return StringUtils.isEmpty(where) ? "" : " where " + where;
+	}
+
+	private static void bindArgs(SQLiteStatement statement, String[] args) {
+		if (args == null) {
+			return;
+		}
+		for (int i = 0; i < args.length; i++) {
+			if (args[i] == null) {
+				statement.bindNull(i + 1);
+			} else {
+				statement.bindString(i + 1, args[i]);
+			}
+		}
+	}
+
+	/**
+	 * Find resord by primary key.
+	 *
+	 * @param id the id
+	 * @return the t
+	 * @throws DAOException the dAO exception
+	 */
+	public T findById(int id) throws DAOException {
+		flushPendingWrites();
+		long start = startTiming();
+		Cursor c = null;
+		T t = null;
+
+		if (identityCache != null) {
+			t = identityCache.get(id);
+			if (t != null) {
+				record("findById", start, 1);
+				return t;
+			}
+		}
+		try {
+			c = query(sql(OP_FIND_BY_ID, null),
+					whereArgsForId(id));
+			if (c.moveToFirst()) {
+				t = mapperFor(c).mapRow(c);
+				cache(t);
+			}
+		} catch (Exception e) {
+			throw new DAOException(e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+		record("findById", start, t != null ? 1 : 0);
+		return t;
+	}
+
+	/**
+	 * Find record by primary key, reading only the given columns. The model is
+	 * not put into the identity cache.
+	 *
+	 * @param id the id
+	 * @param columns the columns to read
+	 * @return the t
+	 * @throws DAOException the dAO exception
+	 */
+	public T findById(int id, String[] columns) throws DAOException {
+		long start = startTiming();
+		Cursor c = null;
+		T t = null;
+		try {
+			c = query("select " + projection(columns) + " from "
+					+ getTableName() + " where " + ID + " = ?",
+					whereArgsForId(id));
+			if (c.moveToFirst()) {
+				t = mapperFor(c).mapRow(c);
+			}
+		} catch (Exception e) {
+			throw new DAOException(e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+		record("findById", start, t != null ? 1 : 0);
+		return t;
+	}
+
+	/**
+	 * Finds the models with the given ids. Ids held by the identity cache are
+	 * not read again, the others are read with one <code>IN (...)</code>
+	 * query per {@link #MAX_IN_SIZE} ids.
+	 *
+	 * @param ids the ids, duplicates are read once
+	 * @return the found models by id, in the order of <code>ids</code>. Ids
+	 *         without a row are left out.
+	 * @throws DAOException the dAO exception
+	 */
+	public IntObjectMap<T> findByIds(int[] ids) throws DAOException {
+		flushPendingWrites();
+		long start = startTiming();
+		IntObjectMap<T> found = new IntObjectMap<T>(ids.length);
+		int[] missing = new int[ids.length];
+		int count = 0;
+		for (int id : ids) {
+			T cached = identityCache != null ? identityCache.get(id) : null;
+			if (cached != null) {
+				found.put(id, cached);
+			} else {
+				missing[count++] = id;
+			}
+		}
+		try {
+			for (int from = 0; from < count; from += MAX_IN_SIZE) {
+				String[] args = inArgs(missing, from,
+						Math.min(MAX_IN_SIZE, count - from));
+				Cursor c = query(
+						sql(OP_FIND_BY_IDS, Integer.toString(args.length)), args);
+				try {
+					if (c.moveToFirst()) {
+						RowMapper<T> mapper = mapperFor(c);
+						do {
+							T model = mapper.mapRow(c);
+							found.put(model.getId(), model);
+							cache(model);
+						} while (c.moveToNext());
+					}
+				} finally {
+					c.close();
+				}
+			}
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		}
+		IntObjectMap<T> result = new IntObjectMap<T>(found.size());
+		for (int id : ids) {
+			T model = found.get(id);
+			if (model != null) {
+				result.put(id, model);
+			}
+		}
+		record("findByIds", start, result.size());
+		return result;
+	}
+
+	/**
+	 * Deletes the rows with the given ids in one transaction, with one
+	 * <code>IN (...)</code> statement per {@link #MAX_IN_SIZE} ids.
+	 *
+	 * @param ids the ids
+	 * @return the number of deleted rows
+	 * @throws DAOException the dAO exception
+	 */
+	public int deleteByIds(int[] ids) throws DAOException {
+		if (ids.length == 0) {
+			return 0;
+		}
+		flushPendingWrites();
+		long start = startTiming();
+		int deleted = 0;
+		boolean blobs = chunkedBlobColumns().length > 0;
+		db.beginTransaction();
+		try {
+			for (int from = 0; from < ids.length; from += MAX_IN_SIZE) {
+				String[] args = inArgs(ids, from,
+						Math.min(MAX_IN_SIZE, ids.length - from));
+				CachedStatement delete = statement(statements, OP_DELETE_BY_IDS,
+						Integer.toString(args.length));
+				try {
+					synchronized (delete.statement) {
+						for (int i = 0; i < args.length; i++) {
+							delete.statement.bindString(i + 1, args[i]);
+						}
+						deleted += executeUpdateDelete(delete.statement);
+					}
+				} finally {
+					statements.release(delete);
+				}
+			}
+			for (int id : ids) {
+				if (blobs) {
+					blobStore().deleteRow(id);
+				}
+				evict(id);
+			}
+			db.setTransactionSuccessful();
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		} finally {
+			db.endTransaction();
+		}
+		tableChanged();
+		record("deleteByIds", start, deleted);
+		return deleted;
+	}
+
+	/**
+	 * Runs an UPDATE or DELETE statement, returning the number of changed rows.
+	 */
+	private int executeUpdateDelete(SQLiteStatement statement) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			return statement.executeUpdateDelete();
+		}
+		statement.execute();
+		return (int) DatabaseUtils.longForQuery(db, "select changes()", null);
+	}
+
+	/**
+	 * Find first by field.
+	 *
+	 * @param fieldName the field name
+	 * @param value the value
+	 * @return the t
+	 * @throws DAOException the dAO exception
+	 */
+	public T findFirstByField(String fieldName, String value)
+			throws DAOException {
+		long start = startTiming();
+		Cursor c = null;
+		T t = null;
+
+		try {
+			String q = sql(OP_FIND_BY_FIELD, fieldName);
+			c = query(q, new String[] { value });
+			if (c.moveToFirst()) {
+				t = mapperFor(c).mapRow(c);
+				cache(t);
+			}
+		} catch (Exception e) {
+			throw new DAOException(e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+		record("findFirstByField", start, t != null ? 1 : 0);
+		return t;
+	}
+
+	/**
+	 * Select all.
+	 *
+	 * @return the list
+	 */
+//	public List<T> findAll() {
+//		Cursor c = null;
+//		List<T> result = null;
+//		try {
+//			c = db.rawQuery("select * from " + getTableName(), null);
+//			result = new ArrayList<T>();
+//			if (c.moveToFirst()) {
+//				do {
+//					Log.d(TAG, "COLUMN : " + c.getString(0)
+//							+ " 1: " + c.getString(1) + " 2: " + c.getString(2));
+//					result.add(fromCursor(c));
+//				} while (c.moveToNext());
+//			}
+//		} finally {
+//			if (c != null) {
+//				c.close();
+//			}
+//		}
+//		return result;
+//	}
+
+	/**
+	 * Find all by field.
+	 *
+	 * @param fieldName - field name to search by
+	 * @param value - the value of the field
+	 * @param orderConditions - the "order by" sentence. May be <b>null</b>.
+	 * @return the list
+	 */
+	public List<T> findAllByField(String fieldName, String value,
+			String orderConditions) {
+		return loadList("findAllByField", "select " + selection() + " from " + getTableName() + " where "
+				+ fieldName + " = ? " + StringUtils.safe(orderConditions),
+				new String[] { value });
+	}
+
+	/**
+	 * Find all, reading only the given columns and the primary key, see
+	 * {@link #findAllByField(String, String, String, String[])}.
+	 *
+	 * @param columns the columns to read
+	 * @return the list
+	 */
+	public List<T> findAll(String[] columns) {
+		return loadList("findAll", "select " + projection(columns) + " from "
+				+ getTableName(), null);
+	}
+
+	/**
+	 * Find all by field, reading only the given columns and the primary key.
+	 * Other fields of the returned models keep their initial value, so they
+	 * should not be written back unless the model is {@link LazyLoadable}.
+	 *
+	 * @param fieldName - field name to search by
+	 * @param value - the value of the field
+	 * @param orderConditions - the "order by" sentence. May be <b>null</b>.
+	 * @param columns the columns to read
+	 * @return the list
+	 */
+	public List<T> findAllByField(String fieldName, String value,
+			String orderConditions, String[] columns) {
+		return loadList("findAllByField", "select " + projection(columns)
+				+ " from " + getTableName() + " where " + fieldName + " = ? "
+				+ StringUtils.safe(orderConditions), new String[] { value });
+	}
+
+	/**
+	 * Find all, loading the given relations of all models in batches.
+	 *
+	 * @param fetch the relations to load
+	 * @return the list
+	 */
+	public List<T> findAll(Fetch fetch) {
+		List<T> models = findAll();
+		fetch(models, fetch);
+		return models;
+	}
+
+	/**
+	 * Find all by field, loading the given relations of all models in batches.
+	 *
+	 * @param fieldName - field name to search by
+	 * @param value - the value of the field
+	 * @param orderConditions - the "order by" sentence. May be <b>null</b>.
+	 * @param fetch the relations to load
+	 * @return the list
+	 */
+	public List<T> findAllByField(String fieldName, String value,
+			String orderConditions, Fetch fetch) {
+		List<T> models = findAllByField(fieldName, value, orderConditions);
+		fetch(models, fetch);
+		return models;
+	}
+
+	/**
+	 * Find by id, loading the given relations.
+	 *
+	 * @param id the id
+	 * @param fetch the relations to load
+	 * @return the model, <b>null</b> if not found
+	 * @throws DAOException the dAO exception
+	 */
+	public T findById(int id, Fetch fetch) throws DAOException {
+		T model = findById(id);
+		if (model != null) {
+			fetch(Collections.singletonList(model), fetch);
+		}
+		return model;
+	}
+
+	/**
+	 * Loads {@link com.opendroid.db.dao.annotations.OneToMany} relations of
+	 * already read models. The children of all models are read with one
+	 * <code>IN (...)</code> query per {@link #MAX_IN_SIZE} models and
+	 * assigned in memory, models without children get an empty list.
+	 *
+	 * @param models the models
+	 * @param fetch the relations to load
+	 * @throws IllegalArgumentException if the model has no such relation
+	 */
+	public void fetch(Collection<T> models, Fetch fetch) {
+		if (models.isEmpty()) {
+			return;
+		}
+		TableMetadata<T> metadata = TableMetadata.forClass(getModelClass());
+		for (String name : fetch.getRelations()) {
+			RelationInfo<?> relation = metadata.getRelation(name);
+			if (relation == null) {
+				throw new IllegalArgumentException(getModelClass().getName()
+						+ " has no @OneToMany field [" + name + "]");
+			}
+			fetch(models, relation);
+		}
+	}
+
+	private <C extends DbModel> void fetch(Collection<T> models,
+			RelationInfo<C> relation) {
+		long start = startTiming();
+		EntityMapper<C> childMapper = Mappers.of(relation.getModelClass());
+		int[] ids = new int[models.size()];
+		int count = 0;
+		for (T model : models) {
+			if (model.getId() > 0) {
+				ids[count++] = model.getId();
+			}
+		}
+		Map<Integer, List<C>> children = new HashMap<Integer, List<C>>();
+		String order = relation.getOrderBy().length() > 0 ? relation
+				.getOrderBy() : ID;
+		int rows = 0;
+		for (int from = 0; from < count; from += MAX_IN_SIZE) {
+			int size = Math.min(MAX_IN_SIZE, count - from);
+			String[] args = inArgs(ids, from, size);
+			Cursor c = query("select * from " + childMapper.getTableName()
+					+ " where " + relation.getForeignKey() + " in ("
+					+ inList(args.length) + ") order by " + order, args);
+			try {
+				if (c.moveToFirst()) {
+					RowMapper<C> rowMapper = childMapper.rowMapper(c);
+					int foreignKey = c.getColumnIndexOrThrow(relation
+							.getForeignKey());
+					do {
+						Integer parent = c.getInt(foreignKey);
+						List<C> list = children.get(parent);
+						if (list == null) {
+							list = new ArrayList<C>();
+							children.put(parent, list);
+						}
+						list.add(rowMapper.mapRow(c));
+						rows++;
+					} while (c.moveToNext());
+				}
+			} finally {
+				c.close();
+			}
+		}
+		for (T model : models) {
+			List<C> list = children.get(model.getId());
+			relation.set(model, list != null ? list : new ArrayList<C>());
+		}
+		record("fetch", start, rows);
+	}
+
+	/**
+	 * Converts a range of ids into the arguments of an IN list. The list is
+	 * padded to the next power of two with the last id, so only a few
+	 * statement shapes are compiled whatever the batch sizes are.
+	 */
+	static String[] inArgs(int[] ids, int from, int size) {
+		int padded = 1;
+		while (padded < size) {
+			padded <<= 1;
+		}
+		String[] args = new String[padded];
+		for (int i = 0; i < padded; i++) {
+			args[i] = Integer.toString(ids[from + Math.min(i, size - 1)]);
+		}
+		return args;
+	}
+
+	/**
+	 * Builds the placeholders of an IN list.
+	 */
+	static String inList(int size) {
+		StringBuilder list = new StringBuilder(size * 2);
+		for (int i = 0; i < size; i++) {
+			list.append(i > 0 ? ",?" : "?");
+		}
+		return list.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.opendroid.db.dao.DAO#create(java.lang.Object)
+	 */
+	public void create(T model) throws DAOException {
+		if (writeBehind != null && !writeBehind.isFlushing()) {
+			writeBehind.create(model);
+			return;
+		}
+		long start = startTiming();
+		int id = (int) db.insert(getTableName(), "0.0", values(model));
+		if (id != -1) {
+			// TODO: change type of ID field to Long
+			model.setId(id);
+			cache(model);
+		}
+		tableChanged();
+		record("create", start, id != -1 ? 1 : 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.opendroid.db.dao.DAO#update(java.lang.Object)
+	 */
+	public void update(T model) throws DAOException {
+		if (writeBehind != null && !writeBehind.isFlushing()) {
+			writeBehind.update(model);
+			evict(model.getId());
+			return;
+		}
+		long start = startTiming();
+		ContentValues values = values(model);
+		CachedStatement update = statement(OP_UPDATE, values);
+		try {
+			synchronized (update.statement) {
+				StatementUtils.bindValues(update.statement, update.columns, values);
+				update.statement.bindLong(update.columns.length + 1, model.getId());
+				update.statement.execute();
+			}
+		} finally {
+			statements.release(update);
+		}
+		cache(model);
+		tableChanged();
+		record("update", start, 1);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.opendroid.db.dao.DAO#createOrUpdate(java.lang.Object)
+	 */
+	public void createOrUpdate(T model) throws DAOException {
+		if (writeBehind != null && !writeBehind.isFlushing()) {
+			writeBehind.createOrUpdate(model);
+			evict(model.getId());
+			return;
+		}
+		writeCreateOrUpdate(model);
+	}
+
+	/**
+	 * Creates or updates a model in a single statement, bypassing the
+	 * write-behind buffer. Models without an id are created.
+	 *
+	 * @param model the model
+	 * @throws DAOException the dAO exception
+	 */
+	void writeCreateOrUpdate(T model) throws DAOException {
+		if (model.getId() <= 0) {
+			create(model);
+			return;
+		}
+		long start = startTiming();
+		boolean nativeUpsert = supportsNativeUpsert(db);
+		if (!nativeUpsert) {
+			// the fallback takes two statements, keep them atomic
+			db.beginTransaction();
+		}
+		try {
+			upsert(model, values(model));
+			if (!nativeUpsert) {
+				db.setTransactionSuccessful();
+			}
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		} finally {
+			if (!nativeUpsert) {
+				db.endTransaction();
+			}
+		}
+		cache(model);
+		tableChanged();
+		record("createOrUpdate", start, 1);
+	}
+
+	/**
+	 * Writes a model by primary key, inserting the row when it does not exist.
+	 * Uses <code>INSERT ... ON CONFLICT DO UPDATE</code> where SQLite supports
+	 * it, otherwise an UPDATE followed by an INSERT when no row was changed.
+	 * Has to run inside a transaction when the native upsert is not supported.
+	 */
+	private void upsert(T model, ContentValues values) {
+		String operation = supportsNativeUpsert(db) ? OP_UPSERT
+				: Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ? OP_UPDATE
+						: null;
+		if (operation == null) {
+			if (db.update(getTableName(), values, ID + " = ?",
+					whereArgsForId(model.getId())) == 0) {
+				insertWithId(values, model.getId());
+			}
+			return;
+		}
+		CachedStatement statement = statement(operation, values);
+		try {
+			synchronized (statement.statement) {
+				if (!executeUpsert(statement.statement, statement.columns,
+						values, model.getId())) {
+					insertWithId(values, model.getId());
+				}
+			}
+		} finally {
+			statements.release(statement);
+		}
+	}
+
+	/**
+	 * Runs a statement compiled by {@link #upsertSql(String[])}.
+	 *
+	 * @return false, if the fallback UPDATE found no row and the model still has to be inserted
+	 */
+	private boolean executeUpsert(SQLiteStatement statement, String[] columns,
+			ContentValues values, int id) {
+		StatementUtils.bindValues(statement, columns, values);
+		statement.bindLong(columns.length + 1, id);
+		if (supportsNativeUpsert(db)) {
+			statement.execute();
+			return true;
+		}
+		return statement.executeUpdateDelete() > 0;
+	}
+
+	private void insertWithId(ContentValues values, int id) {
+		values.put(ID, id);
+		db.insertOrThrow(getTableName(), "0.0", values);
+	}
+
+	/**
+	 * Gets the statement {@link #upsert(DbModel, ContentValues)} compiles for
+	 * the given columns.
+	 */
+	private String upsertSql(String[] columns) {
+		return supportsNativeUpsert(db) ? StatementUtils.upsertSql(
+				getTableName(), columns, ID) : StatementUtils.updateSql(
+				getTableName(), columns, ID);
+	}
+
+	/**
+	 * Checks once whether the SQLite library supports
+	 * <code>ON CONFLICT DO UPDATE</code>, added in SQLite 3.24.
+	 */
+	private static boolean supportsNativeUpsert(SQLiteDatabase db) {
+		Boolean supported = nativeUpsert;
+		if (supported == null) {
+			String[] version = DatabaseUtils.stringForQuery(db,
+					"select sqlite_version()", null).split("\\.");
+			int major = Integer.parseInt(version[0]);
+			int minor = version.length > 1 ? Integer.parseInt(version[1]) : 0;
+			supported = Boolean.valueOf(major > 3 || major == 3 && minor >= 24);
+			nativeUpsert = supported;
+		}
+		return supported.booleanValue();
+	}
+
+	/**
+	 * Update.
+	 *
+	 * @param models the models
+	 * @throws DAOException the dAO exception
+	 */
+	public void update(ArrayList<T> models) throws DAOException {
+		updateAll(models);
+	}
+
+	/**
+	 * Inserts all models, {@link #DEFAULT_CHUNK_SIZE} rows per transaction.
+	 * Generated ids are written back through {@link DbModel#setId(int)}.
+	 *
+	 * @param models the models
+	 * @throws DAOException the dAO exception
+	 */
+	public void createAll(Collection<T> models) throws DAOException {
+		createAll(models, DEFAULT_CHUNK_SIZE, null);
+	}
+
+	/**
+	 * Inserts all models using one compiled statement, committing every
+	 * <code>chunkSize</code> rows. Generated ids are written back through
+	 * {@link DbModel#setId(int)}.
+	 *
+	 * @param models the models
+	 * @param chunkSize rows per transaction, 0 or less for a single transaction
+	 * @param listener notified after every committed chunk. May be <b>null</b>.
+	 * @throws DAOException the dAO exception, chunks committed before the failure are kept
+	 */
+	public void createAll(Collection<T> models, int chunkSize,
+			BatchProgressListener listener) throws DAOException {
+		writeAll("createAll", models, chunkSize, listener, insertWriter());
+	}
+
+	private ValuesWriter insertWriter() {
+		return new ValuesWriter() {
+			@Override
+			String sql(String[] columns) {
+				return StatementUtils.insertSql(getTableName(), columns);
+			}
+
+			@Override
+			void write(SQLiteStatement statement, String[] columns,
+					ContentValues values, T model) {
+				long id;
+				if (statement != null) {
+					StatementUtils.bindValues(statement, columns, values);
+					id = statement.executeInsert();
+				} else {
+					id = db.insert(getTableName(), "0.0", values);
+				}
+				if (id != -1) {
+					model.setId((int) id);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Updates all models, {@link #DEFAULT_CHUNK_SIZE} rows per transaction.
+	 *
+	 * @param models the models
+	 * @throws DAOException the dAO exception
+	 */
+	public void updateAll(Collection<T> models) throws DAOException {
+		updateAll(models, DEFAULT_CHUNK_SIZE, null);
+	}
+
+	/**
+	 * Updates all models by primary key using one compiled statement,
+	 * committing every <code>chunkSize</code> rows.
+	 *
+	 * @param models the models
+	 * @param chunkSize rows per transaction, 0 or less for a single transaction
+	 * @param listener notified after every committed chunk. May be <b>null</b>.
+	 * @throws DAOException the dAO exception, chunks committed before the failure are kept
+	 */
+	public void updateAll(Collection<T> models, int chunkSize,
+			BatchProgressListener listener) throws DAOException {
+		writeAll("updateAll", models, chunkSize, listener, updateWriter());
+	}
+
+	private ValuesWriter updateWriter() {
+		return new ValuesWriter() {
+			@Override
+			String sql(String[] columns) {
+				return StatementUtils.updateSql(getTableName(), columns, ID);
+			}
+
+			@Override
+			void write(SQLiteStatement statement, String[] columns,
+					ContentValues values, T model) {
+				if (statement != null) {
+					StatementUtils.bindValues(statement, columns, values);
+					statement.bindLong(columns.length + 1, model.getId());
+					statement.execute();
+				} else {
+					db.update(getTableName(), values, ID + " = ?",
+							whereArgsForId(model.getId()));
+				}
+				evict(model.getId());
+			}
+		};
+	}
+
+	/**
+	 * Creates or updates all models, {@link #DEFAULT_CHUNK_SIZE} rows per transaction.
+	 *
+	 * @param models the models
+	 * @throws DAOException the dAO exception
+	 */
+	public void upsertAll(Collection<T> models) throws DAOException {
+		upsertAll(models, DEFAULT_CHUNK_SIZE, null);
+	}
+
+	/**
+	 * Creates or updates all models by primary key using one compiled
+	 * statement, committing every <code>chunkSize</code> rows. Models without
+	 * an id are created and get their generated id written back.
+	 *
+	 * @param models the models
+	 * @param chunkSize rows per transaction, 0 or less for a single transaction
+	 * @param listener notified after every committed chunk. May be <b>null</b>.
+	 * @throws DAOException the dAO exception, chunks committed before the failure are kept
+	 */
+	public void upsertAll(Collection<T> models, int chunkSize,
+			BatchProgressListener listener) throws DAOException {
+		writeAll("upsertAll", models, chunkSize, listener, upsertWriter());
+	}
+
+	private ValuesWriter upsertWriter() {
+		return new ValuesWriter() {
+			@Override
+			String sql(String[] columns) {
+				return upsertSql(columns);
+			}
+
+			@Override
+			void write(SQLiteStatement statement, String[] columns,
+					ContentValues values, T model) {
+				if (model.getId() <= 0) {
+					long id = db.insert(getTableName(), "0.0", values);
+					if (id != -1) {
+						model.setId((int) id);
+					}
+					return;
+				}
+				if (statement == null
+						|| !supportsNativeUpsert(db)
+						&& Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+					upsert(model, values);
+				} else if (!executeUpsert(statement, columns, values,
+						model.getId())) {
+					insertWithId(values, model.getId());
+				}
+				evict(model.getId());
+			}
+		};
+	}
+
+	/**
+	 * Deletes all given models, {@link #DEFAULT_CHUNK_SIZE} rows per transaction.
+	 *
+	 * @param models the models
+	 * @throws DAOException the dAO exception
+	 */
+	public void deleteAll(Collection<T> models) throws DAOException {
+		deleteAll(models, DEFAULT_CHUNK_SIZE, null);
+	}
+
+	/**
+	 * Deletes all given models by primary key using one compiled statement,
+	 * committing every <code>chunkSize</code> rows.
+	 *
+	 * @param models the models
+	 * @param chunkSize rows per transaction, 0 or less for a single transaction
+	 * @param listener notified after every committed chunk. May be <b>null</b>.
+	 * @throws DAOException the dAO exception, chunks committed before the failure are kept
+	 */
+	public void deleteAll(Collection<T> models, int chunkSize,
+			BatchProgressListener listener) throws DAOException {
+		writeAll("deleteAll", models, chunkSize, listener, new BatchWriter() {
+			@Override
+			void write(T model) {
+				if (statement == null) {
+					statement = db.compileStatement("DELETE FROM "
+							+ getTableName() + " WHERE " + ID + " = ?");
+				}
+				statement.bindLong(1, model.getId());
+				statement.execute();
+				if (chunkedBlobColumns().length > 0) {
+					blobStore().deleteRow(model.getId());
+				}
+				evict(model.getId());
+			}
+		});
+	}
+
+	/**
+	 * Writes the models of a bulk operation through one compiled statement.
+	 */
+	private abstract class BatchWriter {
+
+		SQLiteStatement statement;
+
+		abstract void write(T model);
+
+		void close() {
+			if (statement != null) {
+				statement.close();
+			}
+		}
+	}
+
+	/**
+	 * Batch writer binding {@link BaseDAO#values(DbModel)}. The statement is
+	 * compiled from the columns of the first model, models whose values hold a
+	 * different set of columns are written without it.
+	 */
+	private abstract class ValuesWriter extends BatchWriter {
+
+		private String[] columns;
+
+		abstract String sql(String[] columns);
+
+		abstract void write(SQLiteStatement statement, String[] columns,
+				ContentValues values, T model);
+
+		@Override
+		void write(T model) {
+			ContentValues values = values(model);
+			if (statement == null) {
+				columns = StatementUtils.columnsOf(values);
+				statement = db.compileStatement(sql(columns));
+			}
+			write(StatementUtils.hasSameColumns(columns, values) ? statement
+					: null, columns, values, model);
+		}
+	}
+
+	/**
+	 * Writes the models of a {@link WriteBehindBuffer} in the current
+	 * transaction, one row at a time. Rows violating a constraint are only
+	 * undone themselves, they are added to <code>rejected</code> and the
+	 * other rows are still written.
+	 *
+	 * @return the first constraint violation, <b>null</b> if there was none
+	 */
+	SQLiteConstraintException writeBuffered(Collection<T> creates,
+			Collection<T> updates, Collection<T> upserts, List<T> rejected) {
+		SQLiteConstraintException first = writeEach(creates, insertWriter(),
+				rejected, null);
+		first = writeEach(updates, updateWriter(), rejected, first);
+		return writeEach(upserts, upsertWriter(), rejected, first);
+	}
+
+	private SQLiteConstraintException writeEach(Collection<T> models,
+			BatchWriter writer, List<T> rejected, SQLiteConstraintException first) {
+		try {
+			for (T model : models) {
+				try {
+					writer.write(model);
+				} catch (SQLiteConstraintException e) {
+					rejected.add(model);
+					if (first == null) {
+						first = e;
+					}
+				}
+			}
+		} finally {
+			writer.close();
+		}
+		return first;
+	}
+
+	/**
+	 * Runs a bulk write in chunked transactions.
+	 */
+	private void writeAll(String operation, Collection<T> models,
+			int chunkSize, BatchProgressListener listener, BatchWriter writer)
+			throws DAOException {
+		flushPendingWrites();
+		long start = startTiming();
+		int total = models.size();
+		int size = chunkSize > 0 ? chunkSize : total;
+		int processed = 0;
+		boolean inChunk = false;
+		try {
+			for (T model : models) {
+				if (!inChunk) {
+					db.beginTransaction();
+					inChunk = true;
+				}
+				writer.write(model);
+				if (++processed % size == 0 || processed == total) {
+					db.setTransactionSuccessful();
+					db.endTransaction();
+					inChunk = false;
+					tableChanged();
+					if (listener != null) {
+						listener.onChunkCommitted(processed, total);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		} finally {
+			if (inChunk) {
+				db.endTransaction();
+			}
+			writer.close();
+		}
+		record(operation, start, processed);
+	}
+
+	/**
+	 * Delete.
+	 *
+	 * @param id the id
+	 * @throws DAOException the dAO exception
+	 */
+	public void delete(int id) throws DAOException {
+		flushPendingWrites();
+		long start = startTiming();
+		boolean blobs = chunkedBlobColumns().length > 0;
+		if (blobs) {
+			// the row and its chunks are deleted together
+			db.beginTransaction();
+		}
+		try {
+			CachedStatement delete = statement(statements, OP_DELETE, null);
+			try {
+				synchronized (delete.statement) {
+					delete.statement.bindLong(1, id);
+					delete.statement.execute();
+				}
+			} finally {
+				statements.release(delete);
+			}
+			if (blobs) {
+				blobStore().deleteRow(id);
+				db.setTransactionSuccessful();
+			}
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		} finally {
+			if (blobs) {
+				db.endTransaction();
+			}
+		}
+		evict(id);
+		tableChanged();
+		record("delete", start, 1);
+	}
+
+    @Override
+    public void delete(T model) throws DAOException {
+        delete(model.getId());
+    }
+
+	/**
+	 * Delete all.
+	 *
+	 * @throws DAOException the dAO exception
+	 */
+	public void deleteAll() throws DAOException {
+		flushPendingWrites();
+		long start = startTiming();
+		boolean blobs = chunkedBlobColumns().length > 0;
+		int deleted;
+		if (blobs) {
+			db.beginTransaction();
+		}
+		try {
+			deleted = db.delete(getTableName(), null, null);
+			if (blobs) {
+				blobStore().deleteOrphans(true);
+				db.setTransactionSuccessful();
+			}
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		} finally {
+			if (blobs) {
+				db.endTransaction();
+			}
+		}
+		if (identityCache != null) {
+			identityCache.clear();
+		}
+		tableChanged();
+		record("deleteAll", start, deleted);
+	}
 
 	/**
-	 * Checks if table is not empty.
+	 * Delete by field.
 	 *
-	 * @return true, if is not empty
-	 * @throws DAOException the dAO exception
+	 * @param fieldName the field name
+	 * @param fieldValue the field value
 	 */
-	public boolean isNotEmpty() throws DAOException {
-		Cursor c = null;
-		try {
-			c = db.rawQuery("select " + ID + " from " + getTableName(), null);
-			return c.moveToFirst();
-		} catch (Exception e) {
-			throw new DAOException(e);
-		} finally {
-			if (c != null) {
-				c.close();
+	public int deleteByField(String fieldName, String fieldValue) {
+		flushPendingWrites();
+		long start = startTiming();
+		String[] args = new String[] { fieldValue };
+		if (queryPlanSampling > 0) {
+			QueryPlanSampler.sample(queryPlanSampling, db, "delete from "
+					+ getTableName() + " where " + fieldName + " = ?", args,
+					getClass(), metrics);
+		}
+		int deleted = db.delete(getTableName(), " " + fieldName + " = ?", args);
+		if (deleted > 0 && chunkedBlobColumns().length > 0) {
+			blobStore().deleteOrphans(false);
+		}
+		if (deleted > 0) {
+			if (identityCache != null) {
+				identityCache.clear();
 			}
+			tableChanged();
 		}
+		record("deleteByField", start, deleted);
+		return deleted;
 	}
 
 	/**
-	 * Find resord by primary key.
+	 * Exists.
 	 *
 	 * @param id the id
-	 * @return the t
+	 * @return true, if successful
 	 * @throws DAOException the dAO exception
 	 */
-	public T findById(int id) throws DAOException {
-		Cursor c = null;
-		T t = null;
-
+	public boolean exists(int id) throws DAOException {
+		long start = startTiming();
+		StatementCache cache = statementsFor(readDatabase());
+		CachedStatement exists = null;
 		try {
-			c = db.rawQuery("select * from " + getTableName() + " where " + ID
-					+ " = ?", whereArgsForId(id));
-			if (c.moveToFirst()) {
-				t = fromCursor(c);
+			exists = statement(cache, OP_EXISTS, null);
+			boolean found;
+			synchronized (exists.statement) {
+				exists.statement.bindLong(1, id);
+				found = exists.statement.simpleQueryForLong() > 0;
 			}
+			record("exists", start, found ? 1 : 0);
+			return found;
 		} catch (Exception e) {
 			throw new DAOException(e);
 		} finally {
-			if (c != null) {
-				c.close();
+			if (exists != null) {
+				cache.release(exists);
 			}
 		}
-		return t;
 	}
 
 	/**
-	 * Find first by field.
+	 * Starts a query over this DAO's table. All values of the query are bound,
+	 * queries of the same shape share their SQL and compiled statement.
 	 *
-	 * @param fieldName the field name
-	 * @param value the value
-	 * @return the t
-	 * @throws DAOException the dAO exception
+	 * @return the query
 	 */
-	public T findFirstByField(String fieldName, String value)
-			throws DAOException {
-		Cursor c = null;
-		T t = null;
+	public Query<T> queryBuilder() {
+		return new Query<T>(this);
+	}
 
-		try {
-			String q = "select * from " + getTableName() + " where "
-					+ fieldName + " = ?";
-			Log.d(TAG, q);
-			c = db.rawQuery(q, new String[] { value });
-			if (c.moveToFirst()) {
-				t = fromCursor(c);
-			}
-		} catch (Exception e) {
-			throw new DAOException(e);
-		} finally {
-			if (c != null) {
-				c.close();
-			}
-		}
-		return t;
+	/**
+	 * Creates an importer streaming CSV or JSON-lines input into this DAO's
+	 * table through one compiled INSERT, in chunked transactions.
+	 *
+	 * @return the importer
+	 */
+	public BulkImporter<T> bulkImporter() {
+		return new BulkImporter<T>(this);
 	}
 
 	/**
-	 * Select all.
+	 * Creates an exporter streaming this DAO's table into a binary or CSV
+	 * file, in chunks ordered by primary key.
 	 *
-	 * @return the list
+	 * @return the exporter
 	 */
-//	public List<T> findAll() {
-//		Cursor c = null;
-//		List<T> result = null;
-//		try {
-//			c = db.rawQuery("select * from " + getTableName(), null);
-//			result = new ArrayList<T>();
-//			if (c.moveToFirst()) {
-//				do {
-//					Log.d(TAG, "COLUMN : " + c.getString(0)
-//							+ " 1: " + c.getString(1) + " 2: " + c.getString(2));
-//					result.add(fromCursor(c));
-//				} while (c.moveToNext());
-//			}
-//		} finally {
-//			if (c != null) {
-//				c.close();
-//			}
-//		}
-//		return result;
-//	}
+	public TableExporter<T> tableExporter() {
+		return new TableExporter<T>(this);
+	}
 
 	/**
-	 * Find all by field.
+	 * Find all.
 	 *
-	 * @param fieldName - field name to search by
-	 * @param value - the value of the field
-	 * @param orderConditions - the "order by" sentence. May be <b>null</b>.
 	 * @return the list
 	 */
-	public List<T> findAllByField(String fieldName, String value,
-			String orderConditions) {
-		Cursor c = null;
-		List<T> result = null;
-		try {
-			c = db.rawQuery("select * from " + getTableName() + " where "
-					+ fieldName + " = ? " + StringUtils.safe(orderConditions),
-					new String[] { value });
-			result = new ArrayList<T>();
-			if (c.moveToFirst()) {
-				do {
-					result.add(fromCursor(c));
-				} while (c.moveToNext());
-			}
-		} finally {
-			if (c != null) {
-				c.close();
-			}
-		}
-		return result;
+	public List<T> findAll() {
+		return loadList("findAll", "select " + selection() + " from " + getTableName(), null);
 	}
 
-	/* (non-Javadoc)
-	 * @see com.opendroid.db.dao.DAO#create(java.lang.Object)
+	/**
+	 * Find all.
+	 *
+	 * @param orderConditions the order conditions
+	 * @return the list
 	 */
-	public void create(T model) throws DAOException {
-		Log.e("CHECK", "DB = "+db+" MODEL = "+model);
-		int id = (int) db.insert(getTableName(), "0.0", values(model));
-		if (id != -1) {
-			// TODO: change type of ID field to Long
-			model.setId(id);
-		}
+	protected List<T> findAll(String orderConditions) {
+		return loadList("findAll", "select " + selection() + " from " + getTableName() + ' '
+				+ StringUtils.safe(orderConditions), null);
 	}
 
-	/* (non-Javadoc)
-	 * @see com.opendroid.db.dao.DAO#update(java.lang.Object)
+	/**
+	 * Iterates all rows, mapping each row only when it is read.
+	 * The returned iterator has to be closed if it is not read to the end.
+	 *
+	 * @return the iterator
 	 */
-	public void update(T model) throws DAOException {
+	public CursorIterator<T> iterateAll() {
+		return iterate(query(
+				"select " + selection() + " from " + getTableName(), null));
+	}
 
-		db.update(getTableName(), values(model), ID + " = ?",
-				whereArgsForId(model.getId()));
+	/**
+	 * Iterates all rows, mapping each row only when it is read.
+	 * The returned iterator has to be closed if it is not read to the end.
+	 *
+	 * @param orderConditions the order conditions
+	 * @return the iterator
+	 */
+	protected CursorIterator<T> iterateAll(String orderConditions) {
+		return iterate(query("select " + selection() + " from " + getTableName() + ' '
+				+ StringUtils.safe(orderConditions), null));
 	}
 
-	/* (non-Javadoc)
-	 * @see com.opendroid.db.dao.DAO#createOrUpdate(java.lang.Object)
+	/**
+	 * Iterates the rows matching a field, mapping each row only when it is read.
+	 * The returned iterator has to be closed if it is not read to the end.
+	 *
+	 * @param fieldName - field name to search by
+	 * @param value - the value of the field
+	 * @param orderConditions - the "order by" sentence. May be <b>null</b>.
+	 * @return the iterator
 	 */
-	public void createOrUpdate(T model) throws DAOException {
-		if (exists(model.getId())) {
-			update(model);
-		} else {
-			create(model);
-		}
+	public CursorIterator<T> iterateAllByField(String fieldName, String value,
+			String orderConditions) {
+		return iterate(query("select " + selection() + " from " + getTableName()
+				+ " where " + fieldName + " = ? "
+				+ StringUtils.safe(orderConditions), new String[] { value }));
 	}
 
 	/**
-	 * Update.
+	 * Passes every row to the callback until it returns false. The cursor is
+	 * closed before this method returns.
 	 *
-	 * @param models the models
-	 * @throws DAOException the dAO exception
+	 * @param callback the callback
+	 * @return the number of rows passed to the callback
 	 */
-	public void update(ArrayList<T> models) throws DAOException {
-		for (T model : models) {
-			update(model);
-		}
+	public int forEach(RowCallback<T> callback) {
+		return forEach(query(
+				"select " + selection() + " from " + getTableName(), null), callback);
 	}
 
 	/**
-	 * Delete.
+	 * Reads every row into the same model and passes it to the callback,
+	 * until the callback returns false. No model is allocated per row, so the
+	 * callback must copy what it keeps instead of keeping the model. Lazy
+	 * columns are not read.
 	 *
-	 * @param id the id
-	 * @throws DAOException the dAO exception
+	 * @param into the model reused for every row
+	 * @param callback the callback
+	 * @return the number of rows passed to the callback
 	 */
-	public void delete(int id) throws DAOException {
-		db.delete(getTableName(), " " + ID + " = ?", whereArgsForId(id));
+	public int scan(T into, RowCallback<T> callback) {
+		return scan(query("select " + selection() + " from " + getTableName(),
+				null), into, callback);
 	}
 
-    @Override
-    public void delete(T model) throws DAOException {
-        db.delete(getTableName(), " " + ID + " = ?", whereArgsForId(model.getId()));
-    }
+	/**
+	 * Reads every row matching a field into the same model, see
+	 * {@link #scan(DbModel, RowCallback)}.
+	 *
+	 * @param fieldName - field name to search by
+	 * @param value - the value of the field
+	 * @param into the model reused for every row
+	 * @param callback the callback
+	 * @return the number of rows passed to the callback
+	 */
+	public int scanByField(String fieldName, String value, T into,
+			RowCallback<T> callback) {
+		return scan(query("select " + selection() + " from " + getTableName()
+				+ " where " + fieldName + " = ?", new String[] { value }), into,
+				callback);
+	}
 
 	/**
-	 * Delete all.
+	 * Passes every row matching a field to the callback until it returns
+	 * false. The cursor is closed before this method returns.
 	 *
-	 * @throws DAOException the dAO exception
+	 * @param fieldName - field name to search by
+	 * @param value - the value of the field
+	 * @param orderConditions - the "order by" sentence. May be <b>null</b>.
+	 * @param callback the callback
+	 * @return the number of rows passed to the callback
 	 */
-	public void deleteAll() throws DAOException {
-		db.delete(getTableName(), null, null);
+	public int forEachByField(String fieldName, String value,
+			String orderConditions, RowCallback<T> callback) {
+		return forEach(query("select " + selection() + " from " + getTableName()
+				+ " where " + fieldName + " = ? "
+				+ StringUtils.safe(orderConditions), new String[] { value }),
+				callback);
 	}
 
 	/**
-	 * Delete by field.
+	 * Gets a page of rows ordered by primary key. Pages are read with keyset
+	 * pagination, so every page costs the same no matter how deep it is.
 	 *
-	 * @param fieldName the field name
-	 * @param fieldValue the field value
+	 * @param continuationToken token of the previous page, <b>null</b> for the first page
+	 * @param pageSize the page size
+	 * @return the page
+	 * @throws DAOException the dAO exception
 	 */
-	public int deleteByField(String fieldName, String fieldValue) {
-		return db.delete(getTableName(), " " + fieldName + " = ?",
-				new String[] { fieldValue });
+	public Page<T> findPage(String continuationToken, int pageSize)
+			throws DAOException {
+		return findPage(ID, false, continuationToken, pageSize, null);
 	}
 
 	/**
-	 * Exists.
+	 * Gets a page of rows ordered by a column, ties broken by primary key.
+	 * Rows are selected with <code>WHERE key &gt; ? ORDER BY key LIMIT n</code>
+	 * instead of an OFFSET, so the column should be indexed. Rows without a
+	 * value come first ascending and last descending, as SQLite orders NULLs.
+	 * Blob columns cannot be paged by.
 	 *
-	 * @param id the id
-	 * @return true, if successful
+	 * @param orderColumn the column to order by
+	 * @param descending true to order descending
+	 * @param continuationToken token of the previous page, <b>null</b> for the first page
+	 * @param pageSize the page size
+	 * @param prefetchExecutor executor loading the page after the one read in
+	 *            the background, one page ahead. May be <b>null</b>.
+	 * @return the page
 	 * @throws DAOException the dAO exception
 	 */
-	public boolean exists(int id) throws DAOException {
-		Cursor c = null;
+	public Page<T> findPage(String orderColumn, boolean descending,
+			String continuationToken, int pageSize, Executor prefetchExecutor)
+			throws DAOException {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("Page size must be positive");
+		}
+		Page<T> page = loadPage(orderColumn, descending, continuationToken,
+				pageSize, prefetchExecutor);
+		page.startPrefetch();
+		return page;
+	}
+
+	private Page<T> loadPage(final String orderColumn, final boolean descending,
+			String continuationToken, final int pageSize,
+			final Executor prefetchExecutor) throws DAOException {
+		boolean byId = ID.equals(orderColumn);
+		String direction = descending ? " desc" : "";
+		String order = byId ? " order by " + ID + direction : " order by "
+				+ orderColumn + direction + ", " + ID + direction;
+		// the storage class of the key is read so the token binds it as stored
+		String select = "select " + selection()
+				+ (byId ? "" : ", typeof(" + orderColumn + ") as _key_type")
+				+ " from " + getTableName();
+		String sql;
+		String[] args;
+		if (continuationToken == null) {
+			sql = select + order + " limit " + (pageSize + 1);
+			args = null;
+		} else {
+			PageToken after = PageToken.parse(continuationToken, byId);
+			sql = select + " where " + after.where(orderColumn, ID, byId, descending)
+					+ order + " limit " + (pageSize + 1);
+			args = after.args(byId);
+		}
 
+		long start = startTiming();
+		Cursor c = null;
+		List<T> items = new ArrayList<T>(pageSize);
+		String nextToken = null;
 		try {
-			c = db.rawQuery("select _id from " + getTableName() + " where "
-					+ ID + " = ?", whereArgsForId(id));
-			return c.moveToFirst();
+			c = query(sql, args);
+			if (c.moveToFirst()) {
+				RowMapper<T> mapper = mapperFor(c);
+				int idIndex = c.getColumnIndexOrThrow(ID);
+				do {
+					items.add(mapper.mapRow(c));
+				} while (items.size() < pageSize && c.moveToNext());
+				// a full page leaves the cursor on its last row, a short one is the last page
+				if (items.size() == pageSize) {
+					String lastRow;
+					if (byId) {
+						lastRow = PageToken.format(c.getString(idIndex));
+					} else {
+						int keyIndex = c.getColumnIndexOrThrow(orderColumn);
+						String type = c.getString(c.getColumnIndexOrThrow("_key_type"));
+						lastRow = PageToken.format(c.getString(idIndex), type,
+								PageToken.REAL.equals(type) ? PageToken.formatReal(c
+										.getDouble(keyIndex)) : c.getString(keyIndex));
+					}
+					if (c.moveToNext()) {
+						nextToken = lastRow;
+					}
+				}
+			}
 		} catch (Exception e) {
 			throw new DAOException(e);
 		} finally {
@@ -287,56 +2284,231 @@ public abstract class BaseDAO<T extends DbModel> implements DAO<T> {
 				c.close();
 			}
 		}
+		record("findPage", start, items.size());
+		return new Page<T>(items, nextToken, new Page.Loader<T>() {
+			@Override
+			public Page<T> load(String token) throws DAOException {
+				return loadPage(orderColumn, descending, token, pageSize,
+						prefetchExecutor);
+			}
+		}, prefetchExecutor);
 	}
 
 	/**
-	 * Find all.
+	 * Wraps a cursor into an iterator mapping rows through {@link #rowMapper(Cursor)}.
 	 *
-	 * @return the list
+	 * @param c the cursor
+	 * @return the iterator
 	 */
-	public List<T> findAll() {
-		Cursor c = null;
-		List<T> result = null;
+	protected CursorIterator<T> iterate(Cursor c) {
+		try {
+			return new CursorIterator<T>(c, mapperFor(c));
+		} catch (RuntimeException e) {
+			c.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Passes the rows of a cursor to the callback until it returns false, then closes the cursor.
+	 *
+	 * @param c the cursor
+	 * @param callback the callback
+	 * @return the number of rows passed to the callback
+	 */
+	protected int forEach(Cursor c, RowCallback<T> callback) {
+		long start = startTiming();
+		int count = 0;
 		try {
-			c = db.rawQuery("select * from " + getTableName(), null);
-			result = new ArrayList<T>();
 			if (c.moveToFirst()) {
+				RowMapper<T> mapper = mapperFor(c);
 				do {
-					result.add(fromCursor(c));
+					count++;
+					if (!callback.onRow(mapper.mapRow(c))) {
+						break;
+					}
 				} while (c.moveToNext());
 			}
 		} finally {
-			if (c != null) {
-				c.close();
-			}
+			c.close();
 		}
-		return result;
+		record("forEach", start, count);
+		return count;
 	}
 
 	/**
-	 * Find all.
+	 * Reads the rows of a cursor into the same model and passes it to the
+	 * callback until it returns false, then closes the cursor.
 	 *
-	 * @param orderConditions the order conditions
-	 * @return the list
+	 * @param c the cursor
+	 * @param into the model reused for every row
+	 * @param callback the callback
+	 * @return the number of rows passed to the callback
 	 */
-	protected List<T> findAll(String orderConditions) {
-		Cursor c = null;
-		List<T> result = null;
+	protected int scan(Cursor c, T into, RowCallback<T> callback) {
+		long start = startTiming();
+		int count = 0;
 		try {
-			c = db.rawQuery("select * from " + getTableName() + ' '
-					+ StringUtils.safe(orderConditions), null);
-			result = new ArrayList<T>();
 			if (c.moveToFirst()) {
+				RowFiller<T> filler = rowFiller(c);
 				do {
-					result.add(fromCursor(c));
+					count++;
+					filler.fill(c, into);
+					if (!callback.onRow(into)) {
+						break;
+					}
 				} while (c.moveToNext());
 			}
 		} finally {
-			if (c != null) {
-				c.close();
+			c.close();
+		}
+		record("scan", start, count);
+		return count;
+	}
+
+	/**
+	 * Bumps the {@link TableVersions version} of this DAO's table, so cached
+	 * query results are no longer served. Called after every write. Inside a
+	 * transaction the table is not cached until the transaction ended, and is
+	 * bumped again when its end is seen, see {@link TableVersions}.
+	 */
+	protected void tableChanged() {
+		tableChanged(db, getTableName());
+	}
+
+	/**
+	 * Ends a transaction opened by the caller, in place of
+	 * {@link SQLiteDatabase#endTransaction()}. When it was the outermost
+	 * transaction, the tables written through DAOs inside it are cached again
+	 * right away instead of on the next DAO call of this thread.
+	 *
+	 * @param db the database the transaction runs on
+	 */
+	public static void endTransaction(SQLiteDatabase db) {
+		db.endTransaction();
+		if (!db.inTransaction()) {
+			TableVersions.transactionEnded(db);
+		}
+	}
+
+	static void tableChanged(SQLiteDatabase db, String tableName) {
+		if (db.inTransaction()) {
+			TableVersions.changedInTransaction(db, tableName);
+		} else {
+			TableVersions.transactionEnded(db);
+			TableVersions.bump(tableName);
+		}
+	}
+
+	/**
+	 * Puts a model into the identity cache, if this DAO has one. Inside a
+	 * transaction the model may be rolled back, so its id is evicted instead
+	 * and read again once the transaction ended.
+	 *
+	 * @param model the model
+	 */
+	protected void cache(T model) {
+		if (identityCache != null) {
+			if (db.inTransaction()) {
+				identityCache.remove(model.getId());
+			} else {
+				identityCache.put(model.getId(), model);
 			}
 		}
-		return result;
+	}
+
+	/**
+	 * Removes a model from the identity cache, if this DAO has one.
+	 *
+	 * @param id the id
+	 */
+	protected void evict(int id) {
+		if (identityCache != null) {
+			identityCache.remove(id);
+		}
+	}
+
+	/**
+	 * Gets a cached query for an operation, building it on the first call.
+	 *
+	 * @param operation the operation
+	 * @param fieldName the field name, may be <b>null</b>
+	 * @return the sql
+	 */
+	private String sql(String operation, String fieldName) {
+		String sql = statements.getSql(operation, fieldName);
+		if (sql == null) {
+			sql = statements.putSql(operation, fieldName,
+					buildSql(operation, fieldName, null));
+		}
+		return sql;
+	}
+
+	/**
+	 * Gets a cached compiled statement for an operation, compiling it on the first call.
+	 * The statement has to be given back through {@link StatementCache#release(CachedStatement)}.
+	 *
+	 * @param cache the statement cache of the connection to run on
+	 * @param operation the operation
+	 * @param fieldName the field name, may be <b>null</b>
+	 * @return the statement
+	 */
+	private CachedStatement statement(StatementCache cache, String operation,
+			String fieldName) {
+		CachedStatement cached = cache.get(operation, fieldName);
+		if (cached == null) {
+			cached = cache.put(operation, fieldName,
+					buildSql(operation, fieldName, null), null);
+		}
+		return cached;
+	}
+
+	/**
+	 * Gets a cached compiled statement binding the given values, recompiling it
+	 * when the values hold other columns than the cached statement.
+	 *
+	 * @param operation the operation
+	 * @param values the values to bind
+	 * @return the statement
+	 */
+	private CachedStatement statement(String operation, ContentValues values) {
+		CachedStatement cached = statements.get(operation, null);
+		if (cached != null) {
+			if (StatementUtils.hasSameColumns(cached.columns, values)) {
+				return cached;
+			}
+			statements.release(cached);
+		}
+		String[] columns = StatementUtils.columnsOf(values);
+		return statements.put(operation, null,
+				buildSql(operation, null, columns), columns);
+	}
+
+	private String buildSql(String operation, String fieldName, String[] columns) {
+		if (OP_FIND_BY_ID.equals(operation)) {
+			return "select " + selection() + " from " + getTableName() + " where " + ID + " = ?";
+		} else if (OP_FIND_BY_FIELD.equals(operation)) {
+			return "select " + selection() + " from " + getTableName() + " where " + fieldName
+					+ " = ?";
+		} else if (OP_EXISTS.equals(operation)) {
+			return "select count(*) from " + getTableName() + " where " + ID
+					+ " = ?";
+		} else if (OP_UPDATE.equals(operation)) {
+			return StatementUtils.updateSql(getTableName(), columns, ID);
+		} else if (OP_COUNT.equals(operation)) {
+			return "select count(*) from " + getTableName() + where(fieldName);
+		} else if (OP_UPSERT.equals(operation)) {
+			return StatementUtils.upsertSql(getTableName(), columns, ID);
+		} else if (OP_DELETE.equals(operation)) {
+			return "delete from " + getTableName() + " where " + ID + " = ?";
+		} else if (OP_FIND_BY_IDS.equals(operation)) {
+			return "select " + selection() + " from " + getTableName() + " where " + ID
+					+ " in (" + inList(Integer.parseInt(fieldName)) + ")";
+		} else if (OP_DELETE_BY_IDS.equals(operation)) {
+			return "delete from " + getTableName() + " where " + ID + " in ("
+					+ inList(Integer.parseInt(fieldName)) + ")";
+		}
+		throw new IllegalArgumentException("Unknown operation " + operation);
 	}
 
 	/**
@@ -0,0 +1,15 @@
+package com.opendroid.db.dao;
+
+/**
+ * Receives progress of bulk operations such as {@link BaseDAO#createAll(java.util.Collection)}.
+ */
+public interface BatchProgressListener {
+
+	/**
+	 * Called after every committed chunk.
+	 *
+	 * @param processed number of models written so far
+	 * @param total     total number of models in the batch
+	 */
+	public void onChunkCommitted(int processed, int total);
+}
@@ -0,0 +1,122 @@
+package com.opendroid.db.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Reads a {@link ColumnTypes#CHUNKED_BLOB} value one chunk at a time, so at
+ * most one chunk is held in memory. The stream ends after the length the
+ * column held when it was opened. A chunk is only read while the column
+ * holds that length, so reading while the value is deleted, being rewritten
+ * or replaced by one of another length fails with an {@link IOException}.
+ * A value replaced by one of the same length between two chunk reads is
+ * not detected and the stream returns chunks of both values. Readers
+ * racing with writers of the same row should read inside a transaction.
+ */
+public class BlobInputStream extends InputStream {
+
+	private final SQLiteDatabase db;
+	private final String[] args;
+	private final String sql;
+	private final String description;
+	private final long length;
+	private long chunksRead;
+	private byte[] chunk;
+	private int limit;
+	private int position;
+	private int seq;
+	private boolean eof;
+
+	BlobInputStream(SQLiteDatabase db, String tableName, String column, int id, long length) {
+		this.db = db;
+		this.length = length;
+		this.sql = "SELECT c.data FROM " + ChunkedBlobStore.CHUNK_TABLE + " c, " + tableName + " t"
+				+ " WHERE c.owner_table = ? AND c.owner_column = ? AND c.owner_id = ? AND c.seq = ?"
+				+ " AND t." + DAO.ID + " = c.owner_id AND t." + column + " = ?";
+		this.args = new String[] { tableName, column, String.valueOf(id), null, String.valueOf(length) };
+		this.description = tableName + "." + column + " of row " + id;
+	}
+
+	/**
+	 * Gets the length of the value.
+	 *
+	 * @return the length in bytes
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return chunk[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int n = Math.min(len, limit - position);
+		System.arraycopy(chunk, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return chunk != null ? limit - position : 0;
+	}
+
+	@Override
+	public void close() {
+		chunk = null;
+		eof = true;
+	}
+
+	/**
+	 * Makes sure unread bytes are buffered, reading the next chunk if needed.
+	 *
+	 * @return false at the end of the value
+	 */
+	private boolean fill() throws IOException {
+		while (!eof && (chunk == null || position == limit)) {
+			if (chunksRead >= length) {
+				chunk = null;
+				eof = true;
+				break;
+			}
+			args[3] = String.valueOf(seq);
+			Cursor c = null;
+			try {
+				c = db.rawQuery(sql, args);
+				if (!c.moveToFirst()) {
+					throw new IOException("Chunk " + seq + " of " + description
+							+ " is missing, the value was replaced or deleted");
+				}
+				chunk = c.getBlob(0);
+				// a longer chunk could only be left over from another value
+				limit = (int) Math.min(chunk.length, length - chunksRead);
+				chunksRead += limit;
+				position = 0;
+				seq++;
+			} catch (SQLException e) {
+				throw new IOException("Could not read chunk " + seq + " of " + description + ": " + e.getMessage());
+			} finally {
+				if (c != null) {
+					c.close();
+				}
+			}
+		}
+		return !eof;
+	}
+}
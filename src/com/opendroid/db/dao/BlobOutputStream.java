@@ -0,0 +1,125 @@
+package com.opendroid.db.dao;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Writes a {@link ColumnTypes#CHUNKED_BLOB} value, holding at most one chunk
+ * in memory. Full chunks are inserted as they fill up, {@link #close()}
+ * writes the last chunk and the length of the value. A stream that is not
+ * closed leaves the column <b>null</b>.
+ */
+public class BlobOutputStream extends OutputStream {
+
+	private final SQLiteDatabase db;
+	private final String tableName;
+	private final String column;
+	private final int id;
+	private final byte[] buffer;
+	private SQLiteStatement insert;
+	private int buffered;
+	private int seq;
+	private long length;
+	private boolean closed;
+
+	BlobOutputStream(SQLiteDatabase db, String tableName, String column, int id, int chunkSize) {
+		this.db = db;
+		this.tableName = tableName;
+		this.column = column;
+		this.id = id;
+		this.buffer = new byte[chunkSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		buffer[buffered++] = (byte) b;
+		length++;
+		if (buffered == buffer.length) {
+			writeChunk();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			int n = Math.min(len, buffer.length - buffered);
+			System.arraycopy(b, off, buffer, buffered, n);
+			buffered += n;
+			length += n;
+			off += n;
+			len -= n;
+			if (buffered == buffer.length) {
+				writeChunk();
+			}
+		}
+	}
+
+	/**
+	 * Writes the last chunk and stores the length of the value in the column.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			db.beginTransaction();
+			try {
+				if (buffered > 0) {
+					writeChunk();
+				}
+				db.execSQL("UPDATE " + tableName + " SET " + column + " = ? WHERE " + DAO.ID + " = ?",
+						new Object[] { length, id });
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+			BaseDAO.tableChanged(db, tableName);
+		} catch (SQLException e) {
+			throw new IOException("Could not write " + tableName + "." + column + ": " + e.getMessage());
+		} finally {
+			if (insert != null) {
+				insert.close();
+			}
+		}
+	}
+
+	private void writeChunk() throws IOException {
+		try {
+			if (insert == null) {
+				insert = db.compileStatement("INSERT INTO " + ChunkedBlobStore.CHUNK_TABLE
+						+ " (owner_table, owner_column, owner_id, seq, data) VALUES (?, ?, ?, ?, ?)");
+			}
+			byte[] chunk = buffered == buffer.length ? buffer : copyOf(buffer, buffered);
+			insert.bindString(1, tableName);
+			insert.bindString(2, column);
+			insert.bindLong(3, id);
+			insert.bindLong(4, seq);
+			insert.bindBlob(5, chunk);
+			insert.executeInsert();
+		} catch (SQLException e) {
+			throw new IOException("Could not write " + tableName + "." + column + ": " + e.getMessage());
+		}
+		seq++;
+		buffered = 0;
+	}
+
+	private static byte[] copyOf(byte[] bytes, int length) {
+		byte[] copy = new byte[length];
+		System.arraycopy(bytes, 0, copy, 0, length);
+		return copy;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+}
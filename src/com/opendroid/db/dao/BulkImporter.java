@@ -0,0 +1,385 @@
+package com.opendroid.db.dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.StatementUtils;
+
+/**
+ * Loads large CSV or JSON-lines inputs into the table of a DAO, created by
+ * {@link BaseDAO#bulkImporter()}. The input is streamed, no models are built.
+ * Each record is bound straight into one compiled INSERT, and
+ * {@link #setChunkSize(int) chunkSize} records are committed per transaction.
+ * <p>
+ * Fields are matched to the model's columns by name ignoring case,
+ * <code>_id</code> included. Unknown fields are ignored and missing ones are
+ * stored as NULL.
+ * {@link ColumnTypes#CHUNKED_BLOB} columns cannot be imported. By default the
+ * table's non-unique indexes are dropped for the load and rebuilt afterwards,
+ * which is cheaper than updating them row by row. Unique indexes are kept, so
+ * duplicates are still rejected while loading. If the process dies during
+ * the load, the dropped indexes are missing afterwards: indexes declared on
+ * the model are created again by {@link com.opendroid.db.DbHelper} the next
+ * time the database is opened, others are lost. Keep the indexes with
+ * {@link #setDropIndexes(boolean)} on tables with indexes of the latter kind.
+ * <p>
+ * Chunks committed before a failure stay in the table.
+ *
+ * @param <T> the model type
+ */
+public class BulkImporter<T extends DbModel> {
+
+	private static final String TAG = "BulkImporter";
+
+	private final BaseDAO<T> dao;
+	private final SQLiteDatabase db;
+	private final String tableName;
+	private final String[] columns;
+	private int chunkSize = 5000;
+	private boolean dropIndexes = true;
+	private ImportListener listener;
+
+	BulkImporter(BaseDAO<T> dao) {
+		this.dao = dao;
+		this.db = dao.db;
+		this.tableName = dao.getTableName();
+		String[] valueColumns = dao.getMapper().getColumnNames();
+		this.columns = new String[valueColumns.length + 1];
+		this.columns[0] = DAO.ID;
+		System.arraycopy(valueColumns, 0, this.columns, 1, valueColumns.length);
+	}
+
+	/**
+	 * Sets the number of records committed per transaction.
+	 *
+	 * @param chunkSize the chunk size, 5000 by default
+	 * @return this importer
+	 */
+	public BulkImporter<T> setChunkSize(int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * Sets whether non-unique indexes are dropped during the load and rebuilt
+	 * afterwards. See the class description for what happens if the process
+	 * dies meanwhile.
+	 *
+	 * @param dropIndexes false to keep the indexes up to date while loading
+	 * @return this importer
+	 */
+	public BulkImporter<T> setDropIndexes(boolean dropIndexes) {
+		this.dropIndexes = dropIndexes;
+		return this;
+	}
+
+	/**
+	 * Sets the listener notified after every committed chunk.
+	 *
+	 * @param listener the listener
+	 * @return this importer
+	 */
+	public BulkImporter<T> setListener(ImportListener listener) {
+		this.listener = listener;
+		return this;
+	}
+
+	/**
+	 * Imports comma separated records. The first record names the columns.
+	 *
+	 * @param in the input, closed by the caller
+	 * @return the import result
+	 * @throws IOException if the input cannot be read
+	 * @throws DAOException if a record does not fit the header or cannot be inserted
+	 */
+	public Result importCsv(Reader in) throws IOException, DAOException {
+		return importCsv(in, ',');
+	}
+
+	/**
+	 * Imports separated records. The first record names the columns.
+	 *
+	 * @param in the input, closed by the caller
+	 * @param separator the field separator, e.g. <code>'\t'</code>
+	 * @return the import result
+	 * @throws IOException if the input cannot be read
+	 * @throws DAOException if a record does not fit the header or cannot be inserted
+	 */
+	public Result importCsv(Reader in, char separator) throws IOException, DAOException {
+		final CsvReader reader = new CsvReader(in, separator);
+		final List<String> fields = new ArrayList<String>();
+		if (!reader.read(fields)) {
+			return new Result(0, 0);
+		}
+		final String[] header = fields.toArray(new String[fields.size()]);
+		final List<String> mapped = new ArrayList<String>();
+		final int[] source = new int[header.length];
+		for (int i = 0; i < header.length; i++) {
+			String column = header[i] == null ? null : findColumn(header[i].trim());
+			if (column != null && !mapped.contains(column)) {
+				source[i] = mapped.size() + 1;
+				mapped.add(column);
+			} else {
+				source[i] = 0;
+			}
+		}
+		if (mapped.isEmpty()) {
+			throw new DAOException(new IllegalArgumentException("CSV header " + Arrays.toString(header)
+					+ " names no column of " + tableName));
+		}
+		return run(mapped.toArray(new String[mapped.size()]), new RecordSource() {
+			@Override
+			public boolean next(SQLiteStatement insert) throws IOException, DAOException {
+				while (reader.read(fields)) {
+					if (fields.size() == 1 && fields.get(0) == null) {
+						continue;
+					}
+					if (fields.size() != header.length) {
+						throw new DAOException(new IllegalArgumentException("line " + reader.getLine() + " has "
+								+ fields.size() + " fields, the header has " + header.length));
+					}
+					for (int i = 0; i < header.length; i++) {
+						if (source[i] > 0) {
+							String value = fields.get(i);
+							if (value == null) {
+								insert.bindNull(source[i]);
+							} else {
+								insert.bindString(source[i], value);
+							}
+						}
+					}
+					return true;
+				}
+				return false;
+			}
+		});
+	}
+
+	/**
+	 * Imports one JSON object per line. Blank lines are skipped.
+	 *
+	 * @param in the input, closed by the caller
+	 * @return the import result
+	 * @throws IOException if the input cannot be read
+	 * @throws DAOException if a line is no JSON object or cannot be inserted
+	 */
+	public Result importJsonLines(Reader in) throws IOException, DAOException {
+		final BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+		return run(columns, new RecordSource() {
+			private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+			private int line;
+
+			@Override
+			public boolean next(SQLiteStatement insert) throws IOException, DAOException {
+				String text;
+				while ((text = reader.readLine()) != null) {
+					line++;
+					if (text.trim().length() == 0) {
+						continue;
+					}
+					JSONObject record;
+					try {
+						record = new JSONObject(text);
+					} catch (JSONException e) {
+						throw new DAOException(new IllegalArgumentException("line " + line + " is no JSON object: "
+								+ e.getMessage()));
+					}
+					insert.clearBindings();
+					for (Iterator<?> keys = record.keys(); keys.hasNext();) {
+						String key = (String) keys.next();
+						int index = indexOf(key);
+						if (index > 0) {
+							Object value = record.opt(key);
+							StatementUtils.bindValue(insert, index, value == JSONObject.NULL ? null : value);
+						}
+					}
+					return true;
+				}
+				return false;
+			}
+
+			/**
+			 * Gets the bind index of a field, 0 if it names no column.
+			 */
+			private int indexOf(String key) {
+				Integer index = indexes.get(key);
+				if (index == null) {
+					String column = findColumn(key);
+					index = column == null ? 0 : Arrays.asList(columns).indexOf(column) + 1;
+					indexes.put(key, index);
+				}
+				return index;
+			}
+		});
+	}
+
+	private String findColumn(String name) {
+		for (String column : columns) {
+			if (column.equalsIgnoreCase(name)) {
+				return column;
+			}
+		}
+		return null;
+	}
+
+	private Result run(String[] insertColumns, RecordSource source) throws IOException, DAOException {
+		dao.flush();
+		long start = System.currentTimeMillis();
+		long rows = 0;
+		List<String> indexes = dropIndexes ? dropIndexes() : new ArrayList<String>();
+		SQLiteStatement insert = null;
+		boolean loaded = false;
+		try {
+			insert = db.compileStatement(StatementUtils.insertSql(tableName, insertColumns));
+			boolean more = true;
+			while (more) {
+				int chunk = 0;
+				db.beginTransaction();
+				try {
+					while (chunk < chunkSize && (more = source.next(insert))) {
+						insert.executeInsert();
+						chunk++;
+					}
+					db.setTransactionSuccessful();
+				} finally {
+					db.endTransaction();
+				}
+				rows += chunk;
+				if (chunk > 0 && listener != null) {
+					listener.onChunkCommitted(rows, System.currentTimeMillis() - start);
+				}
+			}
+			loaded = true;
+		} catch (SQLException e) {
+			throw new DAOException(e);
+		} finally {
+			if (insert != null) {
+				insert.close();
+			}
+			if (rows > 0) {
+				IdentityCache<T> cache = dao.getIdentityCache();
+				if (cache != null) {
+					cache.clear();
+				}
+				dao.tableChanged();
+			}
+			SQLException indexFailure = recreateIndexes(indexes);
+			// a failure of the load itself is not replaced
+			if (indexFailure != null && loaded) {
+				throw new DAOException(indexFailure);
+			}
+		}
+		return new Result(rows, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Recreates dropped indexes, all of them even if one fails.
+	 *
+	 * @return the first failure, <b>null</b> if all were created
+	 */
+	private SQLException recreateIndexes(List<String> indexes) {
+		SQLException first = null;
+		for (String index : indexes) {
+			try {
+				db.execSQL(index);
+			} catch (SQLException e) {
+				Log.e(TAG, "could not recreate index of " + tableName + ": " + index, e);
+				if (first == null) {
+					first = e;
+				}
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Drops the non-unique indexes of the table.
+	 *
+	 * @return the statements recreating them
+	 */
+	private List<String> dropIndexes() {
+		List<String> indexes = new ArrayList<String>();
+		List<String> names = new ArrayList<String>();
+		Cursor c = db.rawQuery("select name, sql from sqlite_master where type = 'index' and tbl_name = ?"
+				+ " and sql is not null", new String[] { tableName });
+		try {
+			while (c.moveToNext()) {
+				String sql = c.getString(1);
+				if (!sql.trim().toUpperCase(Locale.US).startsWith("CREATE UNIQUE")) {
+					names.add(c.getString(0));
+					indexes.add(sql);
+				}
+			}
+		} finally {
+			c.close();
+		}
+		for (String name : names) {
+			db.execSQL("DROP INDEX " + name);
+		}
+		return indexes;
+	}
+
+	/**
+	 * Binds the next record of an input.
+	 */
+	private interface RecordSource {
+		boolean next(SQLiteStatement insert) throws IOException, DAOException;
+	}
+
+	/**
+	 * Outcome of an import.
+	 */
+	public static class Result {
+
+		private final long rows;
+		private final long elapsedMillis;
+
+		Result(long rows, long elapsedMillis) {
+			this.rows = rows;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		public long getRows() {
+			return rows;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		/**
+		 * Gets the throughput of the import, indexes rebuilt included.
+		 *
+		 * @return rows per second
+		 */
+		public double getRowsPerSecond() {
+			return elapsedMillis == 0 ? rows * 1000d : rows * 1000d / elapsedMillis;
+		}
+
+		@Override
+		public String toString() {
+			return rows + " rows in " + elapsedMillis + " ms (" + Math.round(getRowsPerSecond()) + " rows/s)";
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.opendroid.db.dao;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Storage of {@link ColumnTypes#CHUNKED_BLOB} columns. The bytes are split into
+ * rows of at most {@link #DEFAULT_CHUNK_SIZE} bytes in a shared chunk table,
+ * so no single row comes near the size of a <code>CursorWindow</code>. The
+ * column itself holds the length of the stored value, <b>null</b> while none
+ * is stored.
+ */
+public class ChunkedBlobStore {
+
+	/** The table holding the chunks of all chunked columns. */
+	public static final String CHUNK_TABLE = "opendroid_blob_chunks";
+
+	/** Default size of a chunk, well below the 2 MB cursor window. */
+	public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+	private static final String CREATE_CHUNK_TABLE = "CREATE TABLE IF NOT EXISTS " + CHUNK_TABLE
+			+ " (owner_table TEXT NOT NULL, owner_column TEXT NOT NULL, owner_id INTEGER NOT NULL,"
+			+ " seq INTEGER NOT NULL, data BLOB NOT NULL,"
+			+ " PRIMARY KEY (owner_table, owner_column, owner_id, seq))";
+
+	private static final Map<SQLiteDatabase, Boolean> CREATED = new WeakHashMap<SQLiteDatabase, Boolean>();
+
+	private final SQLiteDatabase db;
+	private final String tableName;
+	private final int chunkSize;
+
+	/**
+	 * Instantiates a store for the chunked columns of a table.
+	 *
+	 * @param db        the connection to write on
+	 * @param tableName the table holding the chunked columns
+	 * @param chunkSize the chunk size in bytes
+	 */
+	public ChunkedBlobStore(SQLiteDatabase db, String tableName, int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		this.db = db;
+		this.tableName = tableName;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Opens a stream replacing the value of a column. The old value is
+	 * removed right away, every full chunk is committed on its own and the
+	 * column gets its length once the stream is closed.
+	 *
+	 * @param column the chunked column
+	 * @param id     the primary key of the row
+	 * @return the stream
+	 */
+	public BlobOutputStream openOutputStream(String column, int id) {
+		ensureChunkTable();
+		db.beginTransaction();
+		try {
+			deleteChunks(column, id);
+			db.execSQL("UPDATE " + tableName + " SET " + column + " = NULL WHERE " + DAO.ID + " = ?",
+					new Object[] { id });
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+		return new BlobOutputStream(db, tableName, column, id, chunkSize);
+	}
+
+	/**
+	 * Opens a stream reading the value of a column one chunk at a time.
+	 *
+	 * @param readDb the connection to read from
+	 * @param column the chunked column
+	 * @param id     the primary key of the row
+	 * @return the stream, <b>null</b> if the row does not exist or holds no value
+	 */
+	public BlobInputStream openInputStream(SQLiteDatabase readDb, String column, int id) {
+		Cursor c = readDb.rawQuery("SELECT " + column + " FROM " + tableName + " WHERE " + DAO.ID + " = ?",
+				new String[] { String.valueOf(id) });
+		try {
+			if (!c.moveToFirst() || c.isNull(0)) {
+				return null;
+			}
+			return new BlobInputStream(readDb, tableName, column, id, c.getLong(0));
+		} finally {
+			c.close();
+		}
+	}
+
+	/**
+	 * Deletes the chunks of one column of a row.
+	 */
+	void deleteChunks(String column, int id) {
+		db.execSQL("DELETE FROM " + CHUNK_TABLE + " WHERE owner_table = ? AND owner_column = ? AND owner_id = ?",
+				new Object[] { tableName, column, id });
+	}
+
+	/**
+	 * Deletes the chunks of all columns of a row.
+	 *
+	 * @param id the primary key of the row
+	 */
+	public void deleteRow(int id) {
+		ensureChunkTable();
+		db.execSQL("DELETE FROM " + CHUNK_TABLE + " WHERE owner_table = ? AND owner_id = ?",
+				new Object[] { tableName, id });
+	}
+
+	/**
+	 * Deletes the chunks of rows that no longer exist, or of all rows.
+	 *
+	 * @param allRows true if the table was emptied
+	 */
+	public void deleteOrphans(boolean allRows) {
+		ensureChunkTable();
+		if (allRows) {
+			db.execSQL("DELETE FROM " + CHUNK_TABLE + " WHERE owner_table = ?", new Object[] { tableName });
+		} else {
+			db.execSQL("DELETE FROM " + CHUNK_TABLE + " WHERE owner_table = ? AND owner_id NOT IN (SELECT "
+					+ DAO.ID + " FROM " + tableName + ")", new Object[] { tableName });
+		}
+	}
+
+	private void ensureChunkTable() {
+		synchronized (CREATED) {
+			if (!CREATED.containsKey(db)) {
+				db.execSQL(CREATE_CHUNK_TABLE);
+				CREATED.put(db, Boolean.TRUE);
+			}
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package com.opendroid.db.dao;
+
+import java.lang.reflect.Field;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteProgram;
+
+import com.opendroid.db.StatementUtils;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.ForeignKey;
+import com.opendroid.db.dao.annotations.Table;
+
+/**
+ * A {@link Column} field of a model, resolved once by {@link TableMetadata}.
+ * Reads and writes the field by its Java type, primitives are accessed without boxing.
+ */
+public class ColumnInfo {
+
+	private static final int INT = 0;
+	private static final int LONG = 1;
+	private static final int SHORT = 2;
+	private static final int BYTE = 3;
+	private static final int BOOLEAN = 4;
+	private static final int FLOAT = 5;
+	private static final int DOUBLE = 6;
+	private static final int INTEGER_OBJECT = 7;
+	private static final int LONG_OBJECT = 8;
+	private static final int SHORT_OBJECT = 9;
+	private static final int BYTE_OBJECT = 10;
+	private static final int BOOLEAN_OBJECT = 11;
+	private static final int FLOAT_OBJECT = 12;
+	private static final int DOUBLE_OBJECT = 13;
+	private static final int STRING = 14;
+	private static final int BLOB = 15;
+
+	private final String name;
+	private final String type;
+	private final int size;
+	private final boolean id;
+	private final boolean lazy;
+	private final boolean chunkedBlob;
+	private final Field field;
+	private final int kind;
+	private final String definition;
+
+	ColumnInfo(Column column, Field field, boolean id) {
+		this.name = column.name();
+		this.type = column.type();
+		this.size = column.size();
+		this.id = id;
+		this.lazy = column.lazy() && !id;
+		this.field = field;
+		this.kind = kindOf(field);
+		this.chunkedBlob = ColumnTypes.CHUNKED_BLOB.equalsIgnoreCase(type);
+		if (chunkedBlob && kind != INT && kind != LONG && kind != INTEGER_OBJECT && kind != LONG_OBJECT) {
+			throw new IllegalArgumentException("Field " + field.getName() + " of a " + ColumnTypes.CHUNKED_BLOB
+					+ " column holds its length and has to be an int or a long");
+		}
+		this.definition = name + " " + type + (size == -1 ? "" : "(" + size + ")") + (id ? " PRIMARY KEY" : "")
+				+ references(field.getAnnotation(ForeignKey.class));
+	}
+
+	/**
+	 * Builds the REFERENCES clause of a {@link ForeignKey} column. The table
+	 * name is read from the annotation, so self references do not recurse
+	 * into {@link TableMetadata}.
+	 */
+	private static String references(ForeignKey foreignKey) {
+		if (foreignKey == null) {
+			return "";
+		}
+		Table table = foreignKey.value().getAnnotation(Table.class);
+		if (table == null) {
+			throw new IllegalArgumentException("@ForeignKey references " + foreignKey.value().getName()
+					+ ", which is not annotated with @Table");
+		}
+		String clause = " REFERENCES " + table.name() + "(" + DAO.ID + ")";
+		return foreignKey.onDelete().length() == 0 ? clause : clause + " ON DELETE " + foreignKey.onDelete();
+	}
+
+	private static int kindOf(Field field) {
+		Class<?> t = field.getType();
+		if (t == int.class) {
+			return INT;
+		} else if (t == long.class) {
+			return LONG;
+		} else if (t == short.class) {
+			return SHORT;
+		} else if (t == byte.class) {
+			return BYTE;
+		} else if (t == boolean.class) {
+			return BOOLEAN;
+		} else if (t == float.class) {
+			return FLOAT;
+		} else if (t == double.class) {
+			return DOUBLE;
+		} else if (t == Integer.class) {
+			return INTEGER_OBJECT;
+		} else if (t == Long.class) {
+			return LONG_OBJECT;
+		} else if (t == Short.class) {
+			return SHORT_OBJECT;
+		} else if (t == Byte.class) {
+			return BYTE_OBJECT;
+		} else if (t == Boolean.class) {
+			return BOOLEAN_OBJECT;
+		} else if (t == Float.class) {
+			return FLOAT_OBJECT;
+		} else if (t == Double.class) {
+			return DOUBLE_OBJECT;
+		} else if (t == String.class) {
+			return STRING;
+		} else if (t == byte[].class) {
+			return BLOB;
+		}
+		throw new IllegalArgumentException("Unsupported @Column type " + t.getName() + " of field " + field.getName());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public boolean isId() {
+		return id;
+	}
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * Checks if the column is a {@link ColumnTypes#CHUNKED_BLOB}, which is not written by the DAO.
+	 *
+	 * @return true, if the value is stored in chunks
+	 */
+	public boolean isChunkedBlob() {
+		return chunkedBlob;
+	}
+
+	public Field getField() {
+		return field;
+	}
+
+	/**
+	 * Gets the column definition used in CREATE TABLE, e.g. <code>name VARCHAR(20)</code>.
+	 *
+	 * @return the column definition
+	 */
+	public String getDefinition() {
+		return definition;
+	}
+
+	/**
+	 * Reads the column at the given index of the current row into the model.
+	 *
+	 * @param c     the cursor
+	 * @param index the column index
+	 * @param model the model
+	 */
+	public void read(Cursor c, int index, Object model) {
+		try {
+			switch (kind) {
+				case INT:
+					field.setInt(model, c.getInt(index));
+					break;
+				case LONG:
+					field.setLong(model, c.getLong(index));
+					break;
+				case SHORT:
+					field.setShort(model, c.getShort(index));
+					break;
+				case BYTE:
+					field.setByte(model, (byte) c.getInt(index));
+					break;
+				case BOOLEAN:
+					field.setBoolean(model, c.getInt(index) == 1);
+					break;
+				case FLOAT:
+					field.setFloat(model, c.getFloat(index));
+					break;
+				case DOUBLE:
+					field.setDouble(model, c.getDouble(index));
+					break;
+				default:
+					field.set(model, c.isNull(index) ? null : readObject(c, index));
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private Object readObject(Cursor c, int index) {
+		switch (kind) {
+			case INTEGER_OBJECT:
+				return c.getInt(index);
+			case LONG_OBJECT:
+				return c.getLong(index);
+			case SHORT_OBJECT:
+				return c.getShort(index);
+			case BYTE_OBJECT:
+				return (byte) c.getInt(index);
+			case BOOLEAN_OBJECT:
+				return c.getInt(index) == 1;
+			case FLOAT_OBJECT:
+				return c.getFloat(index);
+			case DOUBLE_OBJECT:
+				return c.getDouble(index);
+			case STRING:
+				return c.getString(index);
+			default:
+				return c.getBlob(index);
+		}
+	}
+
+	/**
+	 * Gets the value of the field.
+	 *
+	 * @param model the model
+	 * @return the value, primitives boxed
+	 */
+	public Object get(Object model) {
+		try {
+			return field.get(model);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Puts the value of the field into content values.
+	 *
+	 * @param values the values
+	 * @param model  the model
+	 */
+	public void put(ContentValues values, Object model) {
+		try {
+			switch (kind) {
+				case INT:
+					values.put(name, field.getInt(model));
+					break;
+				case LONG:
+					values.put(name, field.getLong(model));
+					break;
+				case SHORT:
+					values.put(name, field.getShort(model));
+					break;
+				case BYTE:
+					values.put(name, field.getByte(model));
+					break;
+				case BOOLEAN:
+					values.put(name, field.getBoolean(model));
+					break;
+				case FLOAT:
+					values.put(name, field.getFloat(model));
+					break;
+				case DOUBLE:
+					values.put(name, field.getDouble(model));
+					break;
+				case STRING:
+					values.put(name, (String) field.get(model));
+					break;
+				case BLOB:
+					values.put(name, (byte[]) field.get(model));
+					break;
+				case INTEGER_OBJECT:
+					values.put(name, (Integer) field.get(model));
+					break;
+				case LONG_OBJECT:
+					values.put(name, (Long) field.get(model));
+					break;
+				case SHORT_OBJECT:
+					values.put(name, (Short) field.get(model));
+					break;
+				case BYTE_OBJECT:
+					values.put(name, (Byte) field.get(model));
+					break;
+				case BOOLEAN_OBJECT:
+					values.put(name, (Boolean) field.get(model));
+					break;
+				case FLOAT_OBJECT:
+					values.put(name, (Float) field.get(model));
+					break;
+				default:
+					values.put(name, (Double) field.get(model));
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Binds the value of the field.
+	 *
+	 * @param program the compiled statement
+	 * @param index   1-based bind index
+	 * @param model   the model
+	 */
+	public void bind(SQLiteProgram program, int index, Object model) {
+		try {
+			switch (kind) {
+				case INT:
+					program.bindLong(index, field.getInt(model));
+					break;
+				case LONG:
+					program.bindLong(index, field.getLong(model));
+					break;
+				case SHORT:
+					program.bindLong(index, field.getShort(model));
+					break;
+				case BYTE:
+					program.bindLong(index, field.getByte(model));
+					break;
+				case BOOLEAN:
+					program.bindLong(index, field.getBoolean(model) ? 1 : 0);
+					break;
+				case FLOAT:
+					program.bindDouble(index, field.getFloat(model));
+					break;
+				case DOUBLE:
+					program.bindDouble(index, field.getDouble(model));
+					break;
+				default:
+					StatementUtils.bindValue(program, index, field.get(model));
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
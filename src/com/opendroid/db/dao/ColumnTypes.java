@@ -7,4 +7,11 @@ public class ColumnTypes {
     public final static String INTEGER = "INT";
     public final static String VARCHAR = "VARCHAR";
     public final static String REAL = "REAL";
+    /**
+     * Large binary value stored in chunks by {@link ChunkedBlobStore}, read and
+     * written through {@link BaseDAO#openBlobInputStream(com.opendroid.db.DbModel, String)}
+     * and {@link BaseDAO#openBlobOutputStream(com.opendroid.db.DbModel, String)}.
+     * The field holds the length of the value and is not written by the DAO.
+     */
+    public final static String CHUNKED_BLOB = "CHUNKED_BLOB";
 }
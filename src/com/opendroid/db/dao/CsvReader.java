@@ -0,0 +1,118 @@
+package com.opendroid.db.dao;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Streaming reader of RFC 4180 CSV, one record per {@link #read(List)}.
+ * Quoted fields may contain separators, doubled quotes and line breaks.
+ * Empty unquoted fields are read as <b>null</b>, <code>""</code> as an empty string.
+ */
+class CsvReader {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Reader in;
+	private final char separator;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private final StringBuilder field = new StringBuilder();
+	private int position;
+	private int limit;
+	private int line;
+
+	CsvReader(Reader in, char separator) {
+		this.in = in;
+		this.separator = separator;
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @param fields cleared and filled with the fields of the record
+	 * @return false at the end of the input
+	 * @throws IOException if the input cannot be read or ends inside a quoted field
+	 */
+	boolean read(List<String> fields) throws IOException {
+		fields.clear();
+		int c = next();
+		if (c == -1) {
+			return false;
+		}
+		line++;
+		boolean quoted = false;
+		field.setLength(0);
+		while (true) {
+			if (c == '"' && field.length() == 0 && !quoted) {
+				quoted = readQuoted();
+				c = next();
+				continue;
+			}
+			if (c == -1 || c == '\n' || c == separator) {
+				fields.add(field.length() == 0 && !quoted ? null : field.toString());
+				if (c != separator) {
+					return true;
+				}
+				field.setLength(0);
+				quoted = false;
+			} else if (c != '\r') {
+				field.append((char) c);
+			}
+			c = next();
+		}
+	}
+
+	/**
+	 * Reads a quoted field up to its closing quote.
+	 */
+	private boolean readQuoted() throws IOException {
+		while (true) {
+			int c = next();
+			if (c == -1) {
+				throw new IOException("unterminated quoted field on line " + line);
+			}
+			if (c == '"') {
+				if (peek() != '"') {
+					return true;
+				}
+				next();
+			} else if (c == '\n') {
+				line++;
+			}
+			field.append((char) c);
+		}
+	}
+
+	/**
+	 * Gets the input line the last record ended on, for error messages.
+	 *
+	 * @return the line number, 1-based
+	 */
+	int getLine() {
+		return line;
+	}
+
+	private int next() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++];
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position];
+	}
+
+	private boolean fill() throws IOException {
+		limit = in.read(buffer, 0, buffer.length);
+		position = 0;
+		if (limit <= 0) {
+			limit = 0;
+			return false;
+		}
+		return true;
+	}
+}
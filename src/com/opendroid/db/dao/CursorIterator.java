@@ -0,0 +1,72 @@
+package com.opendroid.db.dao;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import android.database.Cursor;
+
+/**
+ * Iterator mapping the rows of a cursor lazily, one row per {@link #next()}.
+ * The cursor is closed once the last row was read. Callers stopping early
+ * have to {@link #close()} the iterator themselves, preferably in a
+ * <code>finally</code> block.
+ *
+ * @param <T> the model type
+ */
+public class CursorIterator<T> implements Iterator<T>, Closeable {
+
+	private final Cursor cursor;
+	private final RowMapper<T> mapper;
+	private boolean advanced;
+	private boolean hasNext;
+
+	/**
+	 * Instantiates a new cursor iterator.
+	 *
+	 * @param cursor the cursor, positioned before its first row
+	 * @param mapper mapper created for the cursor
+	 */
+	public CursorIterator(Cursor cursor, RowMapper<T> mapper) {
+		this.cursor = cursor;
+		this.mapper = mapper;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!advanced) {
+			hasNext = !cursor.isClosed() && cursor.moveToNext();
+			advanced = true;
+			if (!hasNext) {
+				close();
+			}
+		}
+		return hasNext;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		advanced = false;
+		return mapper.mapRow(cursor);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Closes the underlying cursor, further calls to {@link #hasNext()} return false.
+	 */
+	@Override
+	public void close() {
+		if (!cursor.isClosed()) {
+			cursor.close();
+		}
+		advanced = true;
+		hasNext = false;
+	}
+}
@@ -0,0 +1,24 @@
+package com.opendroid.db.dao;
+
+/**
+ * Receives the result of an {@link AsyncDAO} operation. Called on the worker
+ * thread that ran the operation, post to a Handler to update the UI.
+ *
+ * @param <R> the result type
+ */
+public interface DaoCallback<R> {
+
+	/**
+	 * Called when the operation completed.
+	 *
+	 * @param result the result, <b>null</b> for writes
+	 */
+	public void onSuccess(R result);
+
+	/**
+	 * Called when the operation failed. Not called for cancelled operations.
+	 *
+	 * @param e the failure
+	 */
+	public void onError(Exception e);
+}
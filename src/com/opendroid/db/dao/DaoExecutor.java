@@ -0,0 +1,256 @@
+package com.opendroid.db.dao;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.opendroid.db.DbConfiguration;
+
+/**
+ * Runs {@link AsyncDAO} operations and measures their queue depth and wait
+ * time. All writes of the process go through one shared single thread
+ * {@link #writer()}, so they are applied in submission order and need no
+ * locking; reads run on the bounded {@link #readers()} pool.
+ */
+public class DaoExecutor {
+
+	/** Number of reader threads when no read connection pool is configured. */
+	public static final int DEFAULT_READER_THREADS = 2;
+
+	private static DaoExecutor writer;
+	private static DaoExecutor readers;
+
+	private final ExecutorService executor;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong startedCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	/**
+	 * Instantiates a new dao executor.
+	 *
+	 * @param name    thread name prefix
+	 * @param threads number of threads
+	 */
+	public DaoExecutor(final String name, int threads) {
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Gets the shared single thread executor all async writes go through.
+	 *
+	 * @return the writer executor
+	 */
+	public static synchronized DaoExecutor writer() {
+		if (writer == null) {
+			writer = new DaoExecutor("opendroid-dao-writer", 1);
+		}
+		return writer;
+	}
+
+	/**
+	 * Gets the shared reader pool, sized like the read connection pool if one is configured.
+	 *
+	 * @return the reader executor
+	 */
+	public static synchronized DaoExecutor readers() {
+		if (readers == null) {
+			DbConfiguration configuration = DbConfiguration.getCurrent();
+			int threads = configuration != null && configuration.getReadConnectionPoolSize() > 0
+					? configuration.getReadConnectionPoolSize() : DEFAULT_READER_THREADS;
+			readers = new DaoExecutor("opendroid-dao-reader", threads);
+		}
+		return readers;
+	}
+
+	/**
+	 * An operation run by a {@link DaoExecutor}.
+	 */
+	abstract static class Operation<R> {
+
+		/**
+		 * Runs the operation.
+		 *
+		 * @param task the future of the operation, long running operations
+		 *             check {@link Future#isCancelled()} to stop early
+		 * @return the result
+		 * @throws Exception the failure
+		 */
+		abstract R run(Future<R> task) throws Exception;
+	}
+
+	/**
+	 * Submits an operation.
+	 *
+	 * @param operation the operation
+	 * @param callback  notified when the operation completes. May be <b>null</b>.
+	 * @return the future
+	 */
+	<R> Future<R> submit(Operation<R> operation, DaoCallback<R> callback) {
+		Task<R> task = new Task<R>(operation, callback);
+		queued.incrementAndGet();
+		submitted.incrementAndGet();
+		executor.execute(task);
+		return task;
+	}
+
+	private final class Task<R> extends FutureTask<R> {
+
+		private final long enqueued = System.nanoTime();
+		private final AtomicBoolean started = new AtomicBoolean();
+		private final DaoCallback<R> callback;
+
+		Task(final Operation<R> operation, DaoCallback<R> callback) {
+			this(new OperationCallable<R>(operation), callback);
+		}
+
+		private Task(OperationCallable<R> callable, DaoCallback<R> callback) {
+			super(callable);
+			callable.task = this;
+			this.callback = callback;
+		}
+
+		@Override
+		public void run() {
+			if (started.compareAndSet(false, true)) {
+				started(System.nanoTime() - enqueued);
+			}
+			try {
+				super.run();
+			} finally {
+				completed.incrementAndGet();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled && started.compareAndSet(false, true)) {
+				queued.decrementAndGet();
+			}
+			return cancelled;
+		}
+
+		@Override
+		protected void done() {
+			if (callback == null || isCancelled()) {
+				return;
+			}
+			R result;
+			try {
+				result = get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				callback.onError(cause instanceof Exception ? (Exception) cause : e);
+				return;
+			} catch (InterruptedException e) {
+				callback.onError(e);
+				return;
+			}
+			callback.onSuccess(result);
+		}
+	}
+
+	private static final class OperationCallable<R> implements Callable<R> {
+
+		private final Operation<R> operation;
+		private Future<R> task;
+
+		OperationCallable(Operation<R> operation) {
+			this.operation = operation;
+		}
+
+		@Override
+		public R call() throws Exception {
+			return operation.run(task);
+		}
+	}
+
+	private void started(long waitNanos) {
+		queued.decrementAndGet();
+		startedCount.incrementAndGet();
+		totalWaitNanos.addAndGet(waitNanos);
+		long max;
+		do {
+			max = maxWaitNanos.get();
+		} while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos));
+	}
+
+	/**
+	 * Gets the number of operations waiting to start.
+	 *
+	 * @return the queue depth
+	 */
+	public int getQueueDepth() {
+		return queued.get();
+	}
+
+	/**
+	 * Gets the number of operations submitted since the executor was created.
+	 *
+	 * @return the submitted count
+	 */
+	public long getSubmittedCount() {
+		return submitted.get();
+	}
+
+	/**
+	 * Gets the number of operations that finished, failed or were cancelled.
+	 *
+	 * @return the completed count
+	 */
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	/**
+	 * Gets the average time operations waited in the queue before starting.
+	 *
+	 * @return the average wait in milliseconds
+	 */
+	public double getAverageWaitMillis() {
+		long started = startedCount.get();
+		return started <= 0 ? 0 : totalWaitNanos.get() / 1e6 / started;
+	}
+
+	/**
+	 * Gets the longest time an operation waited in the queue before starting.
+	 *
+	 * @return the maximum wait in milliseconds
+	 */
+	public double getMaxWaitMillis() {
+		return maxWaitNanos.get() / 1e6;
+	}
+
+	/**
+	 * Stops accepting operations, queued operations still run.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Override
+	public String toString() {
+		return "DaoExecutor[queued=" + queued.get() + ", submitted=" + submitted.get()
+				+ ", completed=" + completed.get() + ", avgWaitMs=" + getAverageWaitMillis()
+				+ ", maxWaitMs=" + getMaxWaitMillis() + "]";
+	}
+}
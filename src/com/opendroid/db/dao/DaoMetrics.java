@@ -0,0 +1,126 @@
+package com.opendroid.db.dao;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.util.Log;
+
+/**
+ * {@link DaoMetricsListener} collecting latency histograms and row counts per
+ * DAO class and operation, cursor open times per DAO class and the queries
+ * found scanning whole tables.
+ */
+public class DaoMetrics implements DaoMetricsListener {
+
+	private static final String TAG = "DaoMetrics";
+	private static final int MAX_FULL_SCANS = 100;
+
+	private final Map<String, LatencyHistogram> latencies = new HashMap<String, LatencyHistogram>();
+	private final Map<String, long[]> rows = new HashMap<String, long[]>();
+	private final Map<Class<?>, LatencyHistogram> cursorTimes = new HashMap<Class<?>, LatencyHistogram>();
+	private final Map<String, String> fullScans = new LinkedHashMap<String, String>();
+
+	@Override
+	public void onOperation(Class<?> daoClass, String operation, long durationNanos, int rowCount) {
+		String key = key(daoClass, operation);
+		LatencyHistogram histogram;
+		synchronized (this) {
+			histogram = latencies.get(key);
+			if (histogram == null) {
+				histogram = new LatencyHistogram();
+				latencies.put(key, histogram);
+				rows.put(key, new long[1]);
+			}
+			rows.get(key)[0] += rowCount;
+		}
+		histogram.record(durationNanos);
+	}
+
+	@Override
+	public void onCursorClosed(Class<?> daoClass, String sql, long openNanos, int rowsRead) {
+		LatencyHistogram histogram;
+		synchronized (this) {
+			histogram = cursorTimes.get(daoClass);
+			if (histogram == null) {
+				histogram = new LatencyHistogram();
+				cursorTimes.put(daoClass, histogram);
+			}
+		}
+		histogram.record(openNanos);
+	}
+
+	@Override
+	public synchronized void onFullScan(Class<?> daoClass, String sql, String plan) {
+		if (!fullScans.containsKey(sql) && fullScans.size() < MAX_FULL_SCANS) {
+			fullScans.put(sql, plan);
+			Log.w(TAG, daoClass.getName() + " scans a whole table (" + plan + "): " + sql);
+		}
+	}
+
+	/**
+	 * Gets the latencies of an operation.
+	 *
+	 * @param daoClass  the DAO class
+	 * @param operation the name of the {@link BaseDAO} method
+	 * @return the histogram, <b>null</b> if the operation was not run
+	 */
+	public synchronized LatencyHistogram getLatency(Class<?> daoClass, String operation) {
+		return latencies.get(key(daoClass, operation));
+	}
+
+	/**
+	 * Gets the total rows read or written by an operation.
+	 *
+	 * @param daoClass  the DAO class
+	 * @param operation the name of the {@link BaseDAO} method
+	 * @return the row count
+	 */
+	public synchronized long getRows(Class<?> daoClass, String operation) {
+		long[] count = rows.get(key(daoClass, operation));
+		return count != null ? count[0] : 0;
+	}
+
+	/**
+	 * Gets how long the cursors of a DAO class were kept open.
+	 *
+	 * @param daoClass the DAO class
+	 * @return the histogram, <b>null</b> if no cursor was closed
+	 */
+	public synchronized LatencyHistogram getCursorOpenTime(Class<?> daoClass) {
+		return cursorTimes.get(daoClass);
+	}
+
+	/**
+	 * Gets the queries found scanning a whole table, with the scanning step of their plan.
+	 *
+	 * @return the plans by query
+	 */
+	public synchronized Map<String, String> getFullScans() {
+		return new LinkedHashMap<String, String>(fullScans);
+	}
+
+	public synchronized void reset() {
+		latencies.clear();
+		rows.clear();
+		cursorTimes.clear();
+		fullScans.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder out = new StringBuilder();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			out.append(entry.getKey()).append(": ").append(entry.getValue()).append(", rows=")
+					.append(rows.get(entry.getKey())[0]).append('\n');
+		}
+		for (Map.Entry<Class<?>, LatencyHistogram> entry : cursorTimes.entrySet()) {
+			out.append(entry.getKey().getName()).append(" cursors: ").append(entry.getValue()).append('\n');
+		}
+		return out.toString();
+	}
+
+	private static String key(Class<?> daoClass, String operation) {
+		return daoClass.getName() + '.' + operation;
+	}
+}
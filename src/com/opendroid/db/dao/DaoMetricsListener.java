@@ -0,0 +1,40 @@
+package com.opendroid.db.dao;
+
+/**
+ * Receives timings and row counts of the operations run by {@link BaseDAO}s,
+ * see {@link com.opendroid.db.DbConfiguration.Builder#setMetricsListener(DaoMetricsListener)}.
+ * Called on the thread running the operation, so implementations have to be
+ * thread safe and fast. {@link DaoMetrics} collects the events into histograms.
+ */
+public interface DaoMetricsListener {
+
+	/**
+	 * Called after an operation completed.
+	 *
+	 * @param daoClass      the DAO class
+	 * @param operation     the name of the {@link BaseDAO} method
+	 * @param durationNanos the duration
+	 * @param rows          the rows read or written
+	 */
+	void onOperation(Class<?> daoClass, String operation, long durationNanos, int rows);
+
+	/**
+	 * Called when a cursor opened by a DAO is closed.
+	 *
+	 * @param daoClass  the DAO class
+	 * @param sql       the query
+	 * @param openNanos the time the cursor was open
+	 * @param rowsRead  the rows moved over
+	 */
+	void onCursorClosed(Class<?> daoClass, String sql, long openNanos, int rowsRead);
+
+	/**
+	 * Called when a sampled query plan scans a whole table, see
+	 * {@link com.opendroid.db.DbConfiguration.Builder#setQueryPlanSampling(int)}.
+	 *
+	 * @param daoClass the DAO class
+	 * @param sql      the query
+	 * @param plan     the scanning step of the plan
+	 */
+	void onFullScan(Class<?> daoClass, String sql, String plan);
+}
@@ -0,0 +1,117 @@
+package com.opendroid.db.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteProgram;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * Maps a {@link DbModel} annotated with {@link com.opendroid.db.dao.annotations.Table}
+ * to its table. Implementations are generated at build time by the opendroid-dao
+ * annotation processor as <code>&lt;Model&gt;_Mapper</code> in the package of the
+ * model, and are looked up through {@link Mappers#get(Class)}.
+ *
+ * @param <T> the model type
+ */
+public abstract class EntityMapper<T extends DbModel> {
+
+	/**
+	 * Gets the table name.
+	 *
+	 * @return the table name
+	 */
+	public abstract String getTableName();
+
+	/**
+	 * Gets the CREATE TABLE statement for the table.
+	 *
+	 * @return the create statement
+	 */
+	public abstract String getCreateTableStatement();
+
+	/**
+	 * Gets the CREATE INDEX statements of the indexes declared on the model.
+	 *
+	 * @return the index statements, empty if none are declared
+	 */
+	public String[] getCreateIndexStatements() {
+		return new String[0];
+	}
+
+	/**
+	 * Gets the columns written by {@link #values(DbModel)} and {@link #bind(SQLiteProgram, DbModel)},
+	 * in bind order. The primary key and {@link ColumnTypes#CHUNKED_BLOB} columns are not included.
+	 *
+	 * @return the column names
+	 */
+	public abstract String[] getColumnNames();
+
+	/**
+	 * Gets the {@link ColumnTypes#CHUNKED_BLOB} columns, which are not written
+	 * by {@link #values(DbModel)} and {@link #bind(SQLiteProgram, DbModel)}.
+	 *
+	 * @return the chunked column names, empty if there are none
+	 */
+	public String[] getChunkedBlobColumnNames() {
+		return new String[0];
+	}
+
+	/**
+	 * Gets the {@link com.opendroid.db.dao.annotations.Column#lazy() lazy} columns,
+	 * which are not read by the default queries.
+	 *
+	 * @return the lazy column names, empty if there are none
+	 */
+	public String[] getLazyColumnNames() {
+		return new String[0];
+	}
+
+	/**
+	 * Creates a mapper reading the rows of the given cursor by index. Columns
+	 * missing from the cursor are left at their initial value.
+	 *
+	 * @param c the cursor
+	 * @return the row mapper
+	 */
+	public abstract RowMapper<T> rowMapper(Cursor c);
+
+	/**
+	 * Creates a filler reading the rows of the given cursor by index into an
+	 * existing model. Generated and reflective mappers fill the model in place,
+	 * by default rows are mapped by {@link #rowMapper(Cursor)} and their fields
+	 * copied into the model.
+	 *
+	 * @param c the cursor
+	 * @return the row filler
+	 */
+	public RowFiller<T> rowFiller(Cursor c) {
+		return new ModelCopier<T>(rowMapper(c));
+	}
+
+	/**
+	 * Gets the values of a model, the primary key is not included.
+	 *
+	 * @param model the model
+	 * @return the values
+	 */
+	public abstract ContentValues values(T model);
+
+	/**
+	 * Binds the values of a model, in the order of {@link #getColumnNames()}, starting at bind index 1.
+	 *
+	 * @param program the compiled statement
+	 * @param model   the model
+	 */
+	public abstract void bind(SQLiteProgram program, T model);
+
+	/**
+	 * Maps the current row of a cursor.
+	 *
+	 * @param c the cursor
+	 * @return the model
+	 */
+	public T fromCursor(Cursor c) {
+		return rowMapper(c).mapRow(c);
+	}
+}
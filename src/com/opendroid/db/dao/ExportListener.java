@@ -0,0 +1,15 @@
+package com.opendroid.db.dao;
+
+/**
+ * Receives progress of a {@link TableExporter}.
+ */
+public interface ExportListener {
+
+	/**
+	 * Called after every chunk written to disk.
+	 *
+	 * @param rows   number of rows written by this run
+	 * @param lastId primary key of the last written row
+	 */
+	public void onChunkWritten(long rows, long lastId);
+}
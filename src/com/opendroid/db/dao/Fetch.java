@@ -0,0 +1,31 @@
+package com.opendroid.db.dao;
+
+/**
+ * The {@link com.opendroid.db.dao.annotations.OneToMany} relations a finder
+ * loads along with its models, named by field.
+ * <pre>
+ * List&lt;Order&gt; orders = orderDAO.findAll(Fetch.of("items"));
+ * </pre>
+ */
+public final class Fetch {
+
+	private final String[] relations;
+
+	private Fetch(String[] relations) {
+		this.relations = relations;
+	}
+
+	/**
+	 * Creates a fetch of the given relations.
+	 *
+	 * @param relations the names of the {@link com.opendroid.db.dao.annotations.OneToMany} fields
+	 * @return the fetch
+	 */
+	public static Fetch of(String... relations) {
+		return new Fetch(relations.clone());
+	}
+
+	public String[] getRelations() {
+		return relations.clone();
+	}
+}
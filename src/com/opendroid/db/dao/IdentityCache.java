@@ -0,0 +1,136 @@
+package com.opendroid.db.dao;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU identity map of models keyed by primary key. Caches are shared
+ * by all instances of a DAO class, see {@link #forDao(Class, int)}, and are
+ * kept consistent by the writes going through {@link BaseDAO}.
+ *
+ * @param <T> the model type
+ */
+public class IdentityCache<T> {
+
+	private static final Map<Class<?>, IdentityCache<?>> CACHES = new HashMap<Class<?>, IdentityCache<?>>();
+
+	private final int maxSize;
+	private final LinkedHashMap<Integer, T> models;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Instantiates a new identity cache.
+	 *
+	 * @param maxSize maximum number of cached models
+	 */
+	public IdentityCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.models = new LinkedHashMap<Integer, T>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+				if (size() > IdentityCache.this.maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Gets the cache shared by all instances of a DAO class, creating it on first use.
+	 *
+	 * @param daoClass the DAO class
+	 * @param maxSize  maximum number of cached models, used when the cache is created
+	 * @return the identity cache
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> IdentityCache<T> forDao(Class<?> daoClass, int maxSize) {
+		synchronized (CACHES) {
+			IdentityCache<T> cache = (IdentityCache<T>) CACHES.get(daoClass);
+			if (cache == null) {
+				cache = new IdentityCache<T>(maxSize);
+				CACHES.put(daoClass, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Clears all identity caches, e.g. when the database is closed.
+	 */
+	public static void clearAll() {
+		synchronized (CACHES) {
+			for (IdentityCache<?> cache : CACHES.values()) {
+				cache.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets a cached model.
+	 *
+	 * @param id the id
+	 * @return the model or <b>null</b> if it is not cached
+	 */
+	public synchronized T get(int id) {
+		T model = models.get(id);
+		if (model != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return model;
+	}
+
+	public synchronized void put(int id, T model) {
+		models.put(id, model);
+	}
+
+	public synchronized void remove(int id) {
+		models.remove(id);
+	}
+
+	public synchronized void clear() {
+		models.clear();
+	}
+
+	public synchronized int size() {
+		return models.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * Gets the share of lookups served from the cache.
+	 *
+	 * @return the hit ratio between 0 and 1
+	 */
+	public synchronized double getHitRatio() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "IdentityCache[size=" + models.size() + "/" + maxSize + ", hits=" + hits
+				+ ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+}
@@ -0,0 +1,15 @@
+package com.opendroid.db.dao;
+
+/**
+ * Receives progress of a {@link BulkImporter}.
+ */
+public interface ImportListener {
+
+	/**
+	 * Called after every committed chunk.
+	 *
+	 * @param rows          number of rows imported so far
+	 * @param elapsedMillis time since the import started
+	 */
+	public void onChunkCommitted(long rows, long elapsedMillis);
+}
@@ -0,0 +1,205 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Map from primitive int keys to objects, iterated in insertion order, as
+ * returned by {@link BaseDAO#findByIds(int[])}. Keys are never boxed: entries
+ * are kept in parallel arrays, and an open addressing table of entry
+ * positions finds them by key. Entries cannot be removed.
+ * <pre>
+ * for (int i = 0; i &lt; map.size(); i++) {
+ *     int id = map.keyAt(i);
+ *     Post post = map.valueAt(i);
+ * }
+ * </pre>
+ *
+ * @param <V> the value type
+ */
+public class IntObjectMap<V> {
+
+	private int[] keys;
+	private Object[] values;
+	private int[] slots;
+	private int size;
+
+	/**
+	 * Instantiates a new map.
+	 */
+	public IntObjectMap() {
+		this(8);
+	}
+
+	/**
+	 * Instantiates a new map sized for the given number of entries.
+	 *
+	 * @param capacity the expected number of entries
+	 */
+	public IntObjectMap(int capacity) {
+		capacity = Math.max(capacity, 4);
+		keys = new int[capacity];
+		values = new Object[capacity];
+		slots = new int[tableSize(capacity)];
+	}
+
+	private static int tableSize(int capacity) {
+		int size = 8;
+		while (size < capacity * 2) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	/**
+	 * Maps a key to a value. A key already present keeps its position.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 * @return the previous value, <b>null</b> if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		int slot = find(key);
+		if (slots[slot] != 0) {
+			int index = slots[slot] - 1;
+			V previous = (V) values[index];
+			values[index] = value;
+			return previous;
+		}
+		if (size == keys.length) {
+			grow();
+			slot = find(key);
+		}
+		keys[size] = key;
+		values[size] = value;
+		slots[slot] = ++size;
+		return null;
+	}
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param key the key
+	 * @return the value, <b>null</b> if the key is not mapped
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int index = slots[find(key)];
+		return index == 0 ? null : (V) values[index - 1];
+	}
+
+	public boolean containsKey(int key) {
+		return slots[find(key)] != 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the key at a position, in insertion order.
+	 *
+	 * @param index the position, 0 to {@link #size()} - 1
+	 * @return the key
+	 */
+	public int keyAt(int index) {
+		checkIndex(index);
+		return keys[index];
+	}
+
+	/**
+	 * Gets the value at a position, in insertion order.
+	 *
+	 * @param index the position, 0 to {@link #size()} - 1
+	 * @return the value
+	 */
+	@SuppressWarnings("unchecked")
+	public V valueAt(int index) {
+		checkIndex(index);
+		return (V) values[index];
+	}
+
+	/**
+	 * Copies the values into a list, in insertion order.
+	 *
+	 * @return the values
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		List<V> list = new ArrayList<V>(size);
+		for (int i = 0; i < size; i++) {
+			list.add((V) values[i]);
+		}
+		return list;
+	}
+
+	/**
+	 * Copies the keys into an array, in insertion order.
+	 *
+	 * @return the keys
+	 */
+	public int[] keys() {
+		int[] copy = new int[size];
+		System.arraycopy(keys, 0, copy, 0, size);
+		return copy;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+	}
+
+	/**
+	 * Gets the slot holding a key, or the empty slot it would be put into.
+	 */
+	private int find(int key) {
+		int mask = slots.length - 1;
+		int slot = hash(key) & mask;
+		while (slots[slot] != 0 && keys[slots[slot] - 1] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void grow() {
+		int capacity = keys.length * 2;
+		int[] newKeys = new int[capacity];
+		Object[] newValues = new Object[capacity];
+		System.arraycopy(keys, 0, newKeys, 0, size);
+		System.arraycopy(values, 0, newValues, 0, size);
+		keys = newKeys;
+		values = newValues;
+		slots = new int[tableSize(capacity)];
+		int mask = slots.length - 1;
+		for (int i = 0; i < size; i++) {
+			int slot = hash(keys[i]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = i + 1;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder("{");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				out.append(", ");
+			}
+			out.append(keys[i]).append('=').append(values[i]);
+		}
+		return out.append('}').toString();
+	}
+}
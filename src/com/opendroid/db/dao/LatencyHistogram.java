@@ -0,0 +1,90 @@
+package com.opendroid.db.dao;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies in power-of-two microsecond buckets. Bucket
+ * <code>i</code> counts latencies below <code>2^i</code> microseconds, so
+ * percentiles are reported as the upper bound of their bucket.
+ */
+public class LatencyHistogram {
+
+	private static final int BUCKETS = 32;
+
+	private final long[] buckets = new long[BUCKETS];
+	private long count;
+	private long totalNanos;
+	private long maxNanos;
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param nanos the latency
+	 */
+	public synchronized void record(long nanos) {
+		long micros = nanos / 1000;
+		int bucket = micros <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+		buckets[Math.min(bucket, BUCKETS - 1)]++;
+		count++;
+		totalNanos += nanos;
+		if (nanos > maxNanos) {
+			maxNanos = nanos;
+		}
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getMeanMicros() {
+		return count == 0 ? 0 : totalNanos / count / 1000;
+	}
+
+	public synchronized long getMaxMicros() {
+		return maxNanos / 1000;
+	}
+
+	/**
+	 * Gets the latency below which the given share of the recorded latencies falls.
+	 *
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the upper bound of the bucket holding the percentile, in microseconds
+	 */
+	public synchronized long getPercentileMicros(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100d);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets[i];
+			if (seen >= Math.max(rank, 1)) {
+				return Math.min(1L << i, getMaxMicros());
+			}
+		}
+		return getMaxMicros();
+	}
+
+	/**
+	 * Gets the number of latencies per bucket.
+	 *
+	 * @return the bucket counts
+	 */
+	public synchronized long[] getBuckets() {
+		return buckets.clone();
+	}
+
+	public synchronized void reset() {
+		Arrays.fill(buckets, 0);
+		count = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "count=" + count + ", mean=" + getMeanMicros() + "us, p50=" + getPercentileMicros(50)
+				+ "us, p90=" + getPercentileMicros(90) + "us, p99=" + getPercentileMicros(99)
+				+ "us, max=" + getMaxMicros() + "us";
+	}
+}
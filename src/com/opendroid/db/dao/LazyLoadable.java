@@ -0,0 +1,33 @@
+package com.opendroid.db.dao;
+
+/**
+ * Implemented by models with columns that are not always read, either
+ * {@link com.opendroid.db.dao.annotations.Column#lazy() lazy} columns or
+ * columns left out of a projection. DAOs hand such models a
+ * {@link LazyLoader}, which getters call before returning a column:
+ *
+ * <pre>
+ * public byte[] getPhoto() throws DAOException {
+ *     if (loader != null) {
+ *         loader.load("photo");
+ *     }
+ *     return photo;
+ * }
+ * </pre>
+ */
+public interface LazyLoadable {
+
+	/**
+	 * Sets the loader of the columns that were not read with the model.
+	 *
+	 * @param loader the loader, <b>null</b> when all columns were read
+	 */
+	void setLazyLoader(LazyLoader loader);
+
+	/**
+	 * Gets the loader set by {@link #setLazyLoader(LazyLoader)}.
+	 *
+	 * @return the loader, may be <b>null</b>
+	 */
+	LazyLoader getLazyLoader();
+}
@@ -0,0 +1,105 @@
+package com.opendroid.db.dao;
+
+import android.content.ContentValues;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * Loads the columns of a {@link LazyLoadable} model that were not read with
+ * it, one query by primary key per call. Columns that are still unloaded are
+ * left out when the model is written, so their stored values are kept.
+ */
+public final class LazyLoader {
+
+	private final BaseDAO<?> dao;
+	private final DbModel model;
+	private final String[] columns;
+	private boolean[] loaded;
+
+	LazyLoader(BaseDAO<?> dao, DbModel model, String[] columns) {
+		this.dao = dao;
+		this.model = model;
+		this.columns = columns;
+	}
+
+	/**
+	 * Checks if a column of the model holds its stored value.
+	 *
+	 * @param column the column name
+	 * @return true, if the column was read with the model or loaded since
+	 */
+	public synchronized boolean isLoaded(String column) {
+		int i = indexOf(column);
+		return i < 0 || loaded != null && loaded[i];
+	}
+
+	/**
+	 * Reads a column into the model, unless it is loaded already.
+	 *
+	 * @param column the column name
+	 * @throws DAOException the dAO exception, also if the row was deleted
+	 */
+	public synchronized void load(String column) throws DAOException {
+		int i = indexOf(column);
+		if (i < 0 || loaded != null && loaded[i]) {
+			return;
+		}
+		dao.loadColumns(model, new String[] { column });
+		markLoaded(i);
+	}
+
+	/**
+	 * Reads all columns that are not loaded yet into the model, in one query.
+	 *
+	 * @throws DAOException the dAO exception, also if the row was deleted
+	 */
+	public synchronized void loadAll() throws DAOException {
+		int pending = 0;
+		for (int i = 0; i < columns.length; i++) {
+			if (loaded == null || !loaded[i]) {
+				pending++;
+			}
+		}
+		if (pending == 0) {
+			return;
+		}
+		String[] missing = new String[pending];
+		int n = 0;
+		for (int i = 0; i < columns.length; i++) {
+			if (loaded == null || !loaded[i]) {
+				missing[n++] = columns[i];
+			}
+		}
+		dao.loadColumns(model, missing);
+		for (int i = 0; i < columns.length; i++) {
+			markLoaded(i);
+		}
+	}
+
+	/**
+	 * Removes the columns that are not loaded from values about to be written.
+	 */
+	synchronized void removeUnloaded(ContentValues values) {
+		for (int i = 0; i < columns.length; i++) {
+			if (loaded == null || !loaded[i]) {
+				values.remove(columns[i]);
+			}
+		}
+	}
+
+	private void markLoaded(int i) {
+		if (loaded == null) {
+			loaded = new boolean[columns.length];
+		}
+		loaded[i] = true;
+	}
+
+	private int indexOf(String column) {
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].equals(column)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
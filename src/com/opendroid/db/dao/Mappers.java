@@ -0,0 +1,75 @@
+package com.opendroid.db.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * Looks up the {@link EntityMapper}s of annotated models. Every model class is
+ * looked up once, the result is cached for the lifetime of the process.
+ */
+public class Mappers {
+
+	/** Suffix of the generated mapper class names. */
+	public static final String SUFFIX = "_Mapper";
+
+	private static final Map<Class<?>, EntityMapper<?>> MAPPERS = new HashMap<Class<?>, EntityMapper<?>>();
+
+	/**
+	 * Gets the generated mapper for a model class.
+	 *
+	 * @param modelClass the model class
+	 * @return the mapper or <b>null</b> if none was generated
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends DbModel> EntityMapper<T> get(Class<T> modelClass) {
+		synchronized (MAPPERS) {
+			if (MAPPERS.containsKey(modelClass)) {
+				return (EntityMapper<T>) MAPPERS.get(modelClass);
+			}
+		}
+		EntityMapper<?> mapper = load(modelClass);
+		synchronized (MAPPERS) {
+			MAPPERS.put(modelClass, mapper);
+		}
+		return (EntityMapper<T>) mapper;
+	}
+
+	/**
+	 * Gets the mapper for a {@link com.opendroid.db.dao.annotations.Table} annotated model class,
+	 * the generated one if present, otherwise one working on the cached {@link TableMetadata}.
+	 *
+	 * @param modelClass the model class
+	 * @return the mapper
+	 */
+	public static <T extends DbModel> EntityMapper<T> of(Class<T> modelClass) {
+		EntityMapper<T> mapper = get(modelClass);
+		return mapper != null ? mapper : TableMetadata.forClass(modelClass).getReflectiveMapper();
+	}
+
+	/**
+	 * Gets the name of the mapper generated for a model class.
+	 *
+	 * @param modelClass the model class
+	 * @return the mapper class name
+	 */
+	public static String mapperClassName(Class<?> modelClass) {
+		String name = modelClass.getName();
+		int packageEnd = name.lastIndexOf('.') + 1;
+		return name.substring(0, packageEnd) + name.substring(packageEnd).replace('$', '_') + SUFFIX;
+	}
+
+	private static EntityMapper<?> load(Class<?> modelClass) {
+		try {
+			Class<?> mapperClass = Class.forName(mapperClassName(modelClass), true, modelClass.getClassLoader());
+			return (EntityMapper<?>) mapperClass.newInstance();
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (InstantiationException e) {
+			throw new IllegalStateException(e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
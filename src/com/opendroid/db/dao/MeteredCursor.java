@@ -0,0 +1,33 @@
+package com.opendroid.db.dao;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+/**
+ * Cursor reporting how long it was open and how many rows were moved over to
+ * a {@link DaoMetricsListener} when it is closed.
+ */
+class MeteredCursor extends CursorWrapper {
+
+	private final Class<?> daoClass;
+	private final String sql;
+	private final DaoMetricsListener listener;
+	private final long opened = System.nanoTime();
+
+	MeteredCursor(Cursor cursor, Class<?> daoClass, String sql, DaoMetricsListener listener) {
+		super(cursor);
+		this.daoClass = daoClass;
+		this.sql = sql;
+		this.listener = listener;
+	}
+
+	@Override
+	public void close() {
+		if (isClosed()) {
+			return;
+		}
+		int rows = isAfterLast() ? getCount() : getPosition() + 1;
+		super.close();
+		listener.onCursorClosed(daoClass, sql, System.nanoTime() - opened, rows);
+	}
+}
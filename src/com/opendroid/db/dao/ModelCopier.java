@@ -0,0 +1,93 @@
+package com.opendroid.db.dao;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.database.Cursor;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * {@link RowFiller} for mappings that can only create models: every row is
+ * mapped into a new model whose fields are then copied into the filled one.
+ * Models of a {@link com.opendroid.db.dao.annotations.Table} get the fields
+ * of the columns read by the cursor, so columns missing from the cursor keep
+ * their value, other models get all their non-static, non-final fields.
+ *
+ * @param <T> the model type
+ */
+final class ModelCopier<T extends DbModel> implements RowFiller<T> {
+
+	private static final Map<Class<?>, Field[]> FIELDS = new HashMap<Class<?>, Field[]>();
+
+	private final RowMapper<T> mapper;
+	private Class<?> modelClass;
+	private Field[] fields;
+
+	ModelCopier(RowMapper<T> mapper) {
+		this.mapper = mapper;
+	}
+
+	@Override
+	public void fill(Cursor c, T model) {
+		T row = mapper.mapRow(c);
+		if (row.getClass() != model.getClass()) {
+			throw new IllegalStateException("Row mapped to a " + row.getClass().getName() + ", cannot fill a "
+					+ model.getClass().getName());
+		}
+		if (model.getClass() != modelClass) {
+			modelClass = model.getClass();
+			fields = fieldsOf(modelClass, c);
+		}
+		try {
+			for (Field field : fields) {
+				field.set(model, field.get(row));
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Field[] fieldsOf(Class<?> modelClass, Cursor c) {
+		if (!TableMetadata.isTable(modelClass)) {
+			return allFields(modelClass);
+		}
+		ColumnInfo[] columns = TableMetadata.forClass((Class<DbModel>) modelClass).getColumns();
+		List<Field> fields = new ArrayList<Field>(columns.length);
+		for (ColumnInfo column : columns) {
+			if (c.getColumnIndex(column.getName()) != -1) {
+				fields.add(column.getField());
+			}
+		}
+		return fields.toArray(new Field[fields.size()]);
+	}
+
+	/**
+	 * Gets the non-static, non-final fields of a class and its superclasses.
+	 */
+	static Field[] allFields(Class<?> modelClass) {
+		synchronized (FIELDS) {
+			Field[] fields = FIELDS.get(modelClass);
+			if (fields == null) {
+				List<Field> list = new ArrayList<Field>();
+				for (Class<?> c = modelClass; c != null && c != Object.class; c = c.getSuperclass()) {
+					for (Field field : c.getDeclaredFields()) {
+						int modifiers = field.getModifiers();
+						if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+							field.setAccessible(true);
+							list.add(field);
+						}
+					}
+				}
+				fields = list.toArray(new Field[list.size()]);
+				FIELDS.put(modelClass, fields);
+			}
+			return fields;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.opendroid.db.dao;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A page of a keyset paginated query, see {@link BaseDAO#findPage(String, int)}.
+ * Holds the rows of the page and the continuation token the next page starts
+ * after. When a prefetch executor was given, the next page is loaded in the
+ * background once this page is handed out, so reading stays one page ahead.
+ *
+ * @param <T> the model type
+ */
+public class Page<T> {
+
+	/**
+	 * Loads the page following a continuation token.
+	 */
+	interface Loader<T> {
+		Page<T> load(String continuationToken) throws DAOException;
+	}
+
+	private final List<T> items;
+	private final String continuationToken;
+	private final Loader<T> loader;
+	private final Executor prefetchExecutor;
+	private FutureTask<Page<T>> prefetch;
+
+	Page(List<T> items, String continuationToken, Loader<T> loader, Executor prefetchExecutor) {
+		this.items = items;
+		this.continuationToken = continuationToken;
+		this.loader = loader;
+		this.prefetchExecutor = prefetchExecutor;
+	}
+
+	/**
+	 * Starts loading the next page in the background, unless this is the last
+	 * page, there is no prefetch executor or the prefetch was already started.
+	 * Pages loaded by a prefetch do not prefetch on their own.
+	 */
+	void startPrefetch() {
+		if (prefetch != null || continuationToken == null || prefetchExecutor == null) {
+			return;
+		}
+		prefetch = new FutureTask<Page<T>>(new Callable<Page<T>>() {
+			@Override
+			public Page<T> call() throws Exception {
+				return loader.load(continuationToken);
+			}
+		});
+		prefetchExecutor.execute(prefetch);
+	}
+
+	/**
+	 * Gets the rows of this page.
+	 *
+	 * @return the items
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * Gets the token to pass to {@link BaseDAO#findPage(String, int)} for the next page.
+	 *
+	 * @return the continuation token, <b>null</b> on the last page
+	 */
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	/**
+	 * Checks if there is a page after this one.
+	 *
+	 * @return true, if there are more rows
+	 */
+	public boolean hasNext() {
+		return continuationToken != null;
+	}
+
+	/**
+	 * Gets the next page, waiting for the prefetch if one is running. The
+	 * returned page starts prefetching the page after it.
+	 *
+	 * @return the next page, <b>null</b> on the last page
+	 * @throws DAOException the dAO exception
+	 */
+	public Page<T> next() throws DAOException {
+		if (continuationToken == null) {
+			return null;
+		}
+		Page<T> next = prefetch == null ? loader.load(continuationToken) : awaitPrefetch();
+		next.startPrefetch();
+		return next;
+	}
+
+	private Page<T> awaitPrefetch() throws DAOException {
+		try {
+			return prefetch.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DAOException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof DAOException) {
+				throw (DAOException) cause;
+			}
+			throw new DAOException(cause instanceof Exception ? (Exception) cause : e);
+		}
+	}
+
+	/**
+	 * Cancels a running prefetch of the next page.
+	 */
+	public void cancelPrefetch() {
+		if (prefetch != null) {
+			prefetch.cancel(false);
+		}
+	}
+}
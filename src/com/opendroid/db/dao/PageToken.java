@@ -0,0 +1,137 @@
+package com.opendroid.db.dao;
+
+/**
+ * The continuation token of a {@link Page}, the primary key and order key of
+ * the last row read. Tokens of pages ordered by primary key are the plain id,
+ * others are <code>id:</code> followed by the storage class of the key, as
+ * returned by SQLite's <code>typeof()</code>, and the key itself:
+ * <code>i</code> integer, <code>r</code> real, <code>t</code> text and
+ * <code>n</code> null. Keys are bound as they were stored, reals keep every
+ * digit and NULL keys continue at the rows following them in SQLite order
+ * (NULL before any value).
+ */
+final class PageToken {
+
+	static final String INTEGER = "integer";
+	static final String REAL = "real";
+	static final String TEXT = "text";
+	static final String NULL = "null";
+
+	private final String id;
+	private final char type;
+	private final String key;
+
+	private PageToken(String id, char type, String key) {
+		this.id = id;
+		this.type = type;
+		this.key = key;
+	}
+
+	/**
+	 * Formats the token of a page ordered by primary key.
+	 *
+	 * @param id the id of the last row
+	 * @return the token
+	 */
+	static String format(String id) {
+		return id;
+	}
+
+	/**
+	 * Formats the token of a page ordered by a column.
+	 *
+	 * @param id the id of the last row
+	 * @param storageClass the <code>typeof()</code> of the key
+	 * @param key the key, see {@link #formatReal(double)} for reals
+	 * @return the token
+	 */
+	static String format(String id, String storageClass, String key) {
+		char type;
+		if (INTEGER.equals(storageClass)) {
+			type = 'i';
+		} else if (REAL.equals(storageClass)) {
+			type = 'r';
+		} else if (TEXT.equals(storageClass)) {
+			type = 't';
+		} else if (NULL.equals(storageClass)) {
+			return id + ":n";
+		} else {
+			throw new IllegalArgumentException("Cannot page by a column holding " + storageClass + " values");
+		}
+		return id + ':' + type + key;
+	}
+
+	/**
+	 * Formats a real key so it is read back to the same value.
+	 *
+	 * @param value the key
+	 * @return the key text
+	 */
+	static String formatReal(double value) {
+		if (Double.isInfinite(value)) {
+			// SQLite reads an overflowing literal as infinity
+			return value > 0 ? "9e999" : "-9e999";
+		}
+		return Double.toString(value);
+	}
+
+	/**
+	 * Parses a token.
+	 *
+	 * @param token the token
+	 * @param byId true if the page is ordered by primary key
+	 * @return the token
+	 */
+	static PageToken parse(String token, boolean byId) {
+		int separator = token.indexOf(':');
+		String id = separator < 0 ? token : token.substring(0, separator);
+		try {
+			Long.parseLong(id);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid continuation token [" + token + "]");
+		}
+		if (byId) {
+			return new PageToken(id, 'n', null);
+		}
+		char type = separator < 0 || separator == token.length() - 1 ? 0 : token.charAt(separator + 1);
+		if ("irtn".indexOf(type) < 0 || type == 'n' && token.length() > separator + 2) {
+			throw new IllegalArgumentException("Invalid continuation token [" + token + "]");
+		}
+		return new PageToken(id, type, type == 'n' ? null : token.substring(separator + 2));
+	}
+
+	/**
+	 * Gets the condition selecting the rows after this token.
+	 *
+	 * @param column the order column
+	 * @param idColumn the primary key column, breaking ties
+	 * @param byId true if the page is ordered by primary key
+	 * @param descending true if the page is ordered descending
+	 * @return the condition, its arguments are {@link #args(boolean)}
+	 */
+	String where(String column, String idColumn, boolean byId, boolean descending) {
+		String compare = descending ? " < ?" : " > ?";
+		if (byId) {
+			return idColumn + compare;
+		}
+		if (key == null) {
+			// NULLs sort first, so ascending every value follows and descending only NULLs do
+			return descending ? column + " is null and " + idColumn + compare
+					: "(" + column + " is null and " + idColumn + compare + ") or " + column + " is not null";
+		}
+		String value = type == 'i' ? "cast(? as integer)" : type == 'r' ? "cast(? as real)" : "?";
+		String where = column + (descending ? " <= " : " >= ") + value + " and (" + column
+				+ (descending ? " < " : " > ") + value + " or " + idColumn + compare + ")";
+		return descending ? "(" + where + ") or " + column + " is null" : where;
+	}
+
+	/**
+	 * Gets the arguments of {@link #where(String, String, boolean, boolean)}.
+	 *
+	 * @param byId true if the page is ordered by primary key
+	 * @return the arguments
+	 */
+	String[] args(boolean byId) {
+		return byId || key == null ? new String[] { id } : new String[] { key, key, id };
+	}
+}
@@ -0,0 +1,457 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * Fluent query over the table of a DAO, created by {@link BaseDAO#queryBuilder()}.
+ * Values are never written into the SQL, every value, limit and offset is a
+ * bound argument. The SQL therefore only depends on the shape of the query
+ * (columns, operators, number of IN values, ordering), equal shapes get the
+ * same cached SQL string and so share the statement SQLite compiled for it.
+ * <p>
+ * Conditions are joined in the order they are added, AND binding tighter than
+ * OR as in SQL. A query is not thread-safe, but may be run more than once.
+ * <pre>
+ * List&lt;Post&gt; posts = dao.queryBuilder()
+ *         .where("author").eq(author)
+ *         .and("created").between(from, to)
+ *         .orderBy("created", true)
+ *         .limit(20)
+ *         .list();
+ * </pre>
+ *
+ * @param <T> the model type
+ */
+public class Query<T extends DbModel> {
+
+	private static final int MAX_SHAPES = 128;
+	private static final Map<String, String> SHAPES = new LinkedHashMap<String, String>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > MAX_SHAPES;
+		}
+	};
+
+	private final BaseDAO<T> dao;
+	private final StringBuilder where = new StringBuilder();
+	private final List<String> whereArgs = new ArrayList<String>();
+	private final StringBuilder orderBy = new StringBuilder();
+	private String[] columns;
+	private Fetch fetch;
+	private int limit = -1;
+	private int offset;
+
+	Query(BaseDAO<T> dao) {
+		this.dao = dao;
+	}
+
+	/**
+	 * Starts the first condition, same as {@link #and(String)}.
+	 *
+	 * @param column the column
+	 * @return the condition
+	 */
+	public Condition where(String column) {
+		return and(column);
+	}
+
+	/**
+	 * Starts a condition joined with AND.
+	 *
+	 * @param column the column
+	 * @return the condition
+	 */
+	public Condition and(String column) {
+		return new Condition(" and ", column);
+	}
+
+	/**
+	 * Starts a condition joined with OR.
+	 *
+	 * @param column the column
+	 * @return the condition
+	 */
+	public Condition or(String column) {
+		return new Condition(" or ", column);
+	}
+
+	/**
+	 * Orders by a column, ascending. Columns are ordered by in call order.
+	 *
+	 * @param column the column
+	 * @return this query
+	 */
+	public Query<T> orderBy(String column) {
+		return orderBy(column, false);
+	}
+
+	/**
+	 * Orders by a column. Columns are ordered by in call order.
+	 *
+	 * @param column the column
+	 * @param descending true to order descending
+	 * @return this query
+	 */
+	public Query<T> orderBy(String column, boolean descending) {
+		if (orderBy.length() > 0) {
+			orderBy.append(", ");
+		}
+		orderBy.append(column);
+		if (descending) {
+			orderBy.append(" desc");
+		}
+		return this;
+	}
+
+	/**
+	 * Limits the number of rows read.
+	 *
+	 * @param limit the maximum number of rows, -1 for no limit
+	 * @return this query
+	 */
+	public Query<T> limit(int limit) {
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * Limits the number of rows read, skipping the first rows.
+	 *
+	 * @param limit the maximum number of rows, -1 for no limit
+	 * @param offset the number of rows to skip
+	 * @return this query
+	 */
+	public Query<T> limit(int limit, int offset) {
+		this.limit = limit;
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 * Reads only the given columns and the primary key, see
+	 * {@link BaseDAO#findAll(String[])}.
+	 *
+	 * @param columns the columns, <b>null</b> for all columns
+	 * @return this query
+	 */
+	public Query<T> columns(String... columns) {
+		this.columns = columns;
+		return this;
+	}
+
+	/**
+	 * Loads relations of the models read by {@link #list()} and {@link #first()},
+	 * see {@link BaseDAO#fetch(java.util.Collection, Fetch)}.
+	 *
+	 * @param fetch the relations to load
+	 * @return this query
+	 */
+	public Query<T> fetch(Fetch fetch) {
+		this.fetch = fetch;
+		return this;
+	}
+
+	/**
+	 * Reads all matching rows.
+	 *
+	 * @return the models
+	 */
+	public List<T> list() {
+		List<T> models = dao.loadList("query", getSql(), getArgs());
+		if (fetch != null) {
+			dao.fetch(models, fetch);
+		}
+		return models;
+	}
+
+	/**
+	 * Reads the first matching row.
+	 *
+	 * @return the model, <b>null</b> if no row matches
+	 */
+	public T first() {
+		int previous = limit;
+		limit = 1;
+		try {
+			List<T> result = list();
+			return result.isEmpty() ? null : result.get(0);
+		} finally {
+			limit = previous;
+		}
+	}
+
+	/**
+	 * Iterates the matching rows, mapping each row only when it is read.
+	 * The returned iterator has to be closed if it is not read to the end.
+	 *
+	 * @return the iterator
+	 */
+	public CursorIterator<T> iterate() {
+		return dao.iterate(dao.query(getSql(), getArgs()));
+	}
+
+	/**
+	 * Passes every matching row to the callback until it returns false. The
+	 * cursor is closed before this method returns.
+	 *
+	 * @param callback the callback
+	 * @return the number of rows passed to the callback
+	 */
+	public int forEach(RowCallback<T> callback) {
+		return dao.forEach(dao.query(getSql(), getArgs()), callback);
+	}
+
+	/**
+	 * Reads every matching row into the same model, see
+	 * {@link BaseDAO#scan(DbModel, RowCallback)}.
+	 *
+	 * @param into the model reused for every row
+	 * @param callback the callback
+	 * @return the number of rows passed to the callback
+	 */
+	public int scan(T into, RowCallback<T> callback) {
+		return dao.scan(dao.query(getSql(), getArgs()), into, callback);
+	}
+
+	/**
+	 * Counts the matching rows through a compiled statement, ordering and
+	 * limit are ignored.
+	 *
+	 * @return the row count
+	 * @throws DAOException the dAO exception
+	 */
+	public long count() throws DAOException {
+		return dao.countWhere(whereOrNull(), whereArgsOrNull());
+	}
+
+	/**
+	 * Checks if any row matches, reading at most one row.
+	 *
+	 * @return true, if a row matches
+	 * @throws DAOException the dAO exception
+	 */
+	public boolean exists() throws DAOException {
+		return dao.existsWhere(whereOrNull(), whereArgsOrNull());
+	}
+
+	/**
+	 * Gets the SQL of this query's shape. Equal shapes return the same instance.
+	 *
+	 * @return the sql
+	 */
+	public String getSql() {
+		String selection = columns == null ? dao.selection() : BaseDAO.projection(columns);
+		String shape = new StringBuilder(dao.getTableName()).append('\u0001').append(selection)
+				.append('\u0001').append(where).append('\u0001').append(orderBy).append('\u0001')
+				.append(limit >= 0).append(offset > 0).toString();
+		synchronized (SHAPES) {
+			String sql = SHAPES.get(shape);
+			if (sql == null) {
+				sql = buildSql(selection);
+				SHAPES.put(shape, sql);
+			}
+			return sql;
+		}
+	}
+
+	private String buildSql(String selection) {
+		StringBuilder sql = new StringBuilder("select ").append(selection).append(" from ")
+				.append(dao.getTableName());
+		if (where.length() > 0) {
+			sql.append(" where ").append(where);
+		}
+		if (orderBy.length() > 0) {
+			sql.append(" order by ").append(orderBy);
+		}
+		if (limit >= 0) {
+			sql.append(" limit ?");
+		} else if (offset > 0) {
+			sql.append(" limit -1");
+		}
+		if (offset > 0) {
+			sql.append(" offset ?");
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * Gets the arguments bound to {@link #getSql()}, in bind order.
+	 *
+	 * @return the arguments
+	 */
+	public String[] getArgs() {
+		List<String> args = new ArrayList<String>(whereArgs);
+		if (limit >= 0) {
+			args.add(Integer.toString(limit));
+		}
+		if (offset > 0) {
+			args.add(Integer.toString(offset));
+		}
+		return args.toArray(new String[args.size()]);
+	}
+
+	private String whereOrNull() {
+		return where.length() > 0 ? where.toString() : null;
+	}
+
+	private String[] whereArgsOrNull() {
+		return whereArgs.isEmpty() ? null : whereArgs.toArray(new String[whereArgs.size()]);
+	}
+
+	/**
+	 * Converts a value to its bound string, booleans are stored as 1 and 0.
+	 */
+	private static String arg(Object value) {
+		if (value instanceof Boolean) {
+			return ((Boolean) value) ? "1" : "0";
+		}
+		return String.valueOf(value);
+	}
+
+	/**
+	 * A condition on one column, completed by one of its operators.
+	 */
+	public final class Condition {
+
+		private final String connector;
+		private final String column;
+
+		private Condition(String connector, String column) {
+			this.connector = connector;
+			this.column = column;
+		}
+
+		/**
+		 * Matches rows equal to the value, <b>null</b> matches rows without a value.
+		 *
+		 * @param value the value
+		 * @return the query
+		 */
+		public Query<T> eq(Object value) {
+			return value == null ? isNull() : compare(" = ?", value);
+		}
+
+		/**
+		 * Matches rows not equal to the value, <b>null</b> matches rows with a value.
+		 *
+		 * @param value the value
+		 * @return the query
+		 */
+		public Query<T> notEq(Object value) {
+			return value == null ? isNotNull() : compare(" <> ?", value);
+		}
+
+		public Query<T> lt(Object value) {
+			return compare(" < ?", value);
+		}
+
+		public Query<T> le(Object value) {
+			return compare(" <= ?", value);
+		}
+
+		public Query<T> gt(Object value) {
+			return compare(" > ?", value);
+		}
+
+		public Query<T> ge(Object value) {
+			return compare(" >= ?", value);
+		}
+
+		/**
+		 * Matches rows against a LIKE pattern.
+		 *
+		 * @param pattern the pattern, e.g. <code>"abc%"</code>
+		 * @return the query
+		 */
+		public Query<T> like(String pattern) {
+			return compare(" like ?", pattern);
+		}
+
+		/**
+		 * Matches rows between two values, both inclusive.
+		 *
+		 * @param from the lower bound
+		 * @param to the upper bound
+		 * @return the query
+		 */
+		public Query<T> between(Object from, Object to) {
+			start().append(" between ? and ?");
+			whereArgs.add(arg(from));
+			whereArgs.add(arg(to));
+			return Query.this;
+		}
+
+		/**
+		 * Matches rows equal to one of the values. Lists of the same size
+		 * share their SQL, no values match no rows.
+		 *
+		 * @param values the values
+		 * @return the query
+		 */
+		public Query<T> in(Object... values) {
+			return in(" in (", values);
+		}
+
+		public Query<T> in(Collection<?> values) {
+			return in(values.toArray());
+		}
+
+		/**
+		 * Matches rows equal to none of the values, no values match all rows.
+		 *
+		 * @param values the values
+		 * @return the query
+		 */
+		public Query<T> notIn(Object... values) {
+			return in(" not in (", values);
+		}
+
+		public Query<T> notIn(Collection<?> values) {
+			return notIn(values.toArray());
+		}
+
+		public Query<T> isNull() {
+			start().append(" is null");
+			return Query.this;
+		}
+
+		public Query<T> isNotNull() {
+			start().append(" is not null");
+			return Query.this;
+		}
+
+		private Query<T> compare(String operator, Object value) {
+			if (value == null) {
+				throw new IllegalArgumentException("null cannot be compared, use isNull() for column [" + column + "]");
+			}
+			start().append(operator);
+			whereArgs.add(arg(value));
+			return Query.this;
+		}
+
+		private Query<T> in(String operator, Object[] values) {
+			StringBuilder sql = start().append(operator);
+			for (int i = 0; i < values.length; i++) {
+				sql.append(i > 0 ? ", ?" : "?");
+				whereArgs.add(arg(values[i]));
+			}
+			sql.append(')');
+			return Query.this;
+		}
+
+		private StringBuilder start() {
+			if (where.length() > 0) {
+				where.append(connector);
+			}
+			return where.append(column);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.opendroid.db.dao;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+/**
+ * Runs EXPLAIN QUERY PLAN for a sample of the queries of all DAOs and reports
+ * the ones scanning a whole table. Meant for debug builds, every sampled query
+ * is planned twice.
+ */
+final class QueryPlanSampler {
+
+	private static final String TAG = "QueryPlanSampler";
+	private static final AtomicInteger QUERIES = new AtomicInteger();
+
+	private QueryPlanSampler() {
+	}
+
+	/**
+	 * Explains every <code>rate</code>th query.
+	 *
+	 * @param rate     1 to explain every query
+	 * @param db       the connection the query runs on
+	 * @param sql      the query
+	 * @param args     the arguments, may be <b>null</b>
+	 * @param daoClass the DAO class running the query
+	 * @param listener notified of full scans, logged if <b>null</b>
+	 */
+	static void sample(int rate, SQLiteDatabase db, String sql, String[] args, Class<?> daoClass,
+			DaoMetricsListener listener) {
+		if (QUERIES.getAndIncrement() % rate != 0) {
+			return;
+		}
+		Cursor c = null;
+		try {
+			c = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+			int detail = c.getColumnIndex("detail");
+			if (detail < 0) {
+				detail = c.getColumnCount() - 1;
+			}
+			while (c.moveToNext()) {
+				String step = c.getString(detail);
+				if (isFullScan(step)) {
+					if (listener != null) {
+						listener.onFullScan(daoClass, sql, step);
+					} else {
+						Log.w(TAG, daoClass.getSimpleName() + " scans a whole table (" + step + "): " + sql);
+					}
+					return;
+				}
+			}
+		} catch (RuntimeException e) {
+			Log.w(TAG, "could not explain " + sql, e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a plan step reads a whole table, as in <code>SCAN TABLE t</code>
+	 * or <code>SCAN t</code>, and not an index.
+	 */
+	static boolean isFullScan(String step) {
+		return step != null && step.startsWith("SCAN ") && step.indexOf(" INDEX") < 0
+				&& !step.startsWith("SCAN CONSTANT") && !step.startsWith("SCAN SUBQUERY");
+	}
+}
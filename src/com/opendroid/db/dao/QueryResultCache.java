@@ -0,0 +1,331 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+/**
+ * Process-wide cache of query results, keyed by the class reading them,
+ * normalized SQL and arguments. Results are cached as raw {@link Rows}, every
+ * hit maps them into new models, so callers never share a model instance.
+ * Every entry remembers the {@link TableVersions version} of its table when it
+ * was loaded and is dropped instead of served once the table changed.
+ *
+ * <p>The budget is counted in cached rows, every entry also costs one unit.
+ * Least recently used entries are evicted when it is exceeded. A budget of 0
+ * disables the cache.</p>
+ */
+public class QueryResultCache {
+
+	private static final QueryResultCache INSTANCE = new QueryResultCache();
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private volatile int budget;
+	private int weight;
+	private long hits;
+	private long misses;
+	private long staleHits;
+	private long evictions;
+
+	/**
+	 * Gets the process-wide cache.
+	 *
+	 * @return the query result cache
+	 */
+	public static QueryResultCache getInstance() {
+		return INSTANCE;
+	}
+
+	QueryResultCache() {
+	}
+
+	public boolean isEnabled() {
+		return budget > 0;
+	}
+
+	public int getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets the budget, in rows. Evicts entries if the cache holds more.
+	 *
+	 * @param budget the budget, 0 to disable the cache
+	 */
+	public synchronized void setBudget(int budget) {
+		this.budget = Math.max(0, budget);
+		trim();
+	}
+
+	/**
+	 * Gets a cached result.
+	 *
+	 * @param owner     the class reading the result, e.g. the DAO
+	 * @param tableName the table the query reads
+	 * @param sql       the sql
+	 * @param args      the arguments, may be <b>null</b>
+	 * @return the cached rows or <b>null</b> if none are cached for the current table version
+	 */
+	public synchronized Rows get(Class<?> owner, String tableName, String sql, String[] args) {
+		Key key = new Key(owner, sql, args);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		if (entry.version != TableVersions.current(tableName)) {
+			staleHits++;
+			misses++;
+			entries.remove(key);
+			weight -= entry.weight();
+			return null;
+		}
+		hits++;
+		return entry.rows;
+	}
+
+	/**
+	 * Checks if a result of the given number of rows fits into the budget.
+	 *
+	 * @param rowCount the number of rows
+	 * @return true, if such a result would be cached
+	 */
+	public boolean accepts(int rowCount) {
+		return rowCount + 1 <= budget;
+	}
+
+	/**
+	 * Caches a result. The table version has to be read before the query runs,
+	 * so a write that happens meanwhile makes the entry stale. Results of
+	 * tables with writes that are not {@link TableVersions#isCommitted(String)
+	 * committed} yet are not cached.
+	 *
+	 * @param owner     the class reading the result, e.g. the DAO
+	 * @param tableName the table the query reads
+	 * @param version   the table version read before the query
+	 * @param sql       the sql
+	 * @param args      the arguments, may be <b>null</b>
+	 * @param rows      the result
+	 */
+	public synchronized void put(Class<?> owner, String tableName, long version, String sql, String[] args,
+			Rows rows) {
+		if (!accepts(rows.size()) || !TableVersions.isCommitted(tableName)) {
+			return;
+		}
+		Entry entry = new Entry(version, rows);
+		Entry previous = entries.put(new Key(owner, sql, args), entry);
+		if (previous != null) {
+			weight -= previous.weight();
+		}
+		weight += entry.weight();
+		trim();
+	}
+
+	private void trim() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (weight > budget && it.hasNext()) {
+			weight -= it.next().weight();
+			it.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the number of units in use, see the class description.
+	 *
+	 * @return the weight
+	 */
+	public synchronized int getWeight() {
+		return weight;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Gets the number of lookups that found an entry of an older table version.
+	 *
+	 * @return the stale hit count
+	 */
+	public synchronized long getStaleHitCount() {
+		return staleHits;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "QueryResultCache[entries=" + entries.size() + ", weight=" + weight + "/" + budget
+				+ ", hits=" + hits + ", misses=" + misses + ", stale=" + staleHits
+				+ ", evictions=" + evictions + "]";
+	}
+
+	/**
+	 * Collapses whitespace, so queries differing only in formatting share an entry.
+	 *
+	 * @param sql the sql
+	 * @return the normalized sql
+	 */
+	static String normalize(String sql) {
+		StringBuilder normalized = new StringBuilder(sql.length());
+		boolean space = false;
+		boolean quoted = false;
+		for (int i = 0; i < sql.length(); i++) {
+			char ch = sql.charAt(i);
+			if (ch == '\'') {
+				quoted = !quoted;
+			}
+			if (!quoted && Character.isWhitespace(ch)) {
+				space = normalized.length() > 0;
+				continue;
+			}
+			if (space) {
+				normalized.append(' ');
+				space = false;
+			}
+			normalized.append(ch);
+		}
+		return normalized.toString();
+	}
+
+	private static final class Entry {
+
+		final long version;
+		final Rows rows;
+
+		Entry(long version, Rows rows) {
+			this.version = version;
+			this.rows = rows;
+		}
+
+		int weight() {
+			return rows.size() + 1;
+		}
+	}
+
+	static final class Key {
+
+		private final Class<?> owner;
+		private final String sql;
+		private final String[] args;
+		private final int hash;
+
+		Key(Class<?> owner, String sql, String[] args) {
+			this.owner = owner;
+			this.sql = normalize(sql);
+			this.args = args != null ? args.clone() : null;
+			this.hash = (owner.hashCode() * 31 + this.sql.hashCode()) * 31 + Arrays.hashCode(args);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return hash == other.hash && owner == other.owner && sql.equals(other.sql)
+					&& Arrays.equals(args, other.args);
+		}
+	}
+
+	/**
+	 * The raw rows of a result, values as stored: <b>null</b>, Long, Double,
+	 * String or byte[].
+	 */
+	public static final class Rows {
+
+		private final String[] columns;
+		private final List<Object[]> values;
+
+		Rows(String[] columns, List<Object[]> values) {
+			this.columns = columns;
+			this.values = values;
+		}
+
+		/**
+		 * Copies the rows of a cursor, starting at the first row. Needs
+		 * {@link Cursor#getType(int)}, available since Honeycomb.
+		 *
+		 * @param c the cursor
+		 * @return the rows
+		 */
+		public static Rows copyOf(Cursor c) {
+			String[] columns = c.getColumnNames();
+			List<Object[]> values = new ArrayList<Object[]>(c.getCount());
+			if (c.moveToFirst()) {
+				do {
+					Object[] row = new Object[columns.length];
+					for (int i = 0; i < row.length; i++) {
+						switch (c.getType(i)) {
+						case Cursor.FIELD_TYPE_NULL:
+							break;
+						case Cursor.FIELD_TYPE_INTEGER:
+							row[i] = c.getLong(i);
+							break;
+						case Cursor.FIELD_TYPE_FLOAT:
+							row[i] = c.getDouble(i);
+							break;
+						case Cursor.FIELD_TYPE_BLOB:
+							row[i] = c.getBlob(i);
+							break;
+						default:
+							row[i] = c.getString(i);
+						}
+					}
+					values.add(row);
+				} while (c.moveToNext());
+			}
+			return new Rows(columns, values);
+		}
+
+		public int size() {
+			return values.size();
+		}
+
+		/**
+		 * Creates a cursor over the rows. Blobs are copied, so models mapped
+		 * from it do not share them.
+		 *
+		 * @return the cursor
+		 */
+		public Cursor newCursor() {
+			MatrixCursor c = new MatrixCursor(columns, values.size());
+			for (Object[] row : values) {
+				Object[] copy = row.clone();
+				for (int i = 0; i < copy.length; i++) {
+					if (copy[i] instanceof byte[]) {
+						copy[i] = ((byte[]) copy[i]).clone();
+					}
+				}
+				c.addRow(copy);
+			}
+			return c;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.opendroid.db.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteProgram;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * {@link EntityMapper} for models without a generated mapper, working on the
+ * fields resolved once by {@link TableMetadata}. Every value is read and
+ * written through {@link java.lang.reflect.Field}, so generated mappers are
+ * faster for large results.
+ *
+ * @param <T> the model type
+ */
+class ReflectiveMapper<T extends DbModel> extends EntityMapper<T> {
+
+	private final TableMetadata<T> metadata;
+	private final ColumnInfo[] columns;
+	private final ColumnInfo[] valueColumns;
+	private final String[] valueColumnNames;
+
+	ReflectiveMapper(TableMetadata<T> metadata) {
+		this.metadata = metadata;
+		this.columns = metadata.getColumns();
+		this.valueColumnNames = metadata.getValueColumnNames();
+		this.valueColumns = new ColumnInfo[valueColumnNames.length];
+		int i = 0;
+		for (ColumnInfo column : columns) {
+			if (!column.isId() && !column.isChunkedBlob()) {
+				valueColumns[i++] = column;
+			}
+		}
+	}
+
+	@Override
+	public String getTableName() {
+		return metadata.getTableName();
+	}
+
+	@Override
+	public String getCreateTableStatement() {
+		return metadata.getCreateTableStatement();
+	}
+
+	@Override
+	public String[] getCreateIndexStatements() {
+		return metadata.getCreateIndexStatements();
+	}
+
+	@Override
+	public String[] getChunkedBlobColumnNames() {
+		return metadata.getChunkedBlobColumnNames();
+	}
+
+	@Override
+	public String[] getLazyColumnNames() {
+		return metadata.getLazyColumnNames();
+	}
+
+	@Override
+	public String[] getColumnNames() {
+		return valueColumnNames.clone();
+	}
+
+	@Override
+	public RowMapper<T> rowMapper(Cursor c) {
+		return new Reader(c);
+	}
+
+	@Override
+	public RowFiller<T> rowFiller(Cursor c) {
+		return new Reader(c);
+	}
+
+	/**
+	 * Reads the rows of one cursor through the column indices resolved up front.
+	 */
+	private class Reader implements RowMapper<T>, RowFiller<T> {
+
+		private final int[] indexes = new int[columns.length];
+
+		Reader(Cursor c) {
+			for (int i = 0; i < columns.length; i++) {
+				indexes[i] = c.getColumnIndex(columns[i].getName());
+			}
+		}
+
+		@Override
+		public T mapRow(Cursor c) {
+			T model = metadata.newInstance();
+			fill(c, model);
+			return model;
+		}
+
+		@Override
+		public void fill(Cursor c, T model) {
+			for (int i = 0; i < columns.length; i++) {
+				if (indexes[i] != -1) {
+					columns[i].read(c, indexes[i], model);
+				}
+			}
+		}
+	}
+
+	@Override
+	public ContentValues values(T model) {
+		ContentValues values = new ContentValues(valueColumns.length);
+		for (ColumnInfo column : valueColumns) {
+			column.put(values, model);
+		}
+		return values;
+	}
+
+	@Override
+	public void bind(SQLiteProgram program, T model) {
+		for (int i = 0; i < valueColumns.length; i++) {
+			valueColumns[i].bind(program, i + 1, model);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.opendroid.db.dao;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.annotations.OneToMany;
+
+/**
+ * A {@link OneToMany} field of a model, resolved once by {@link TableMetadata}.
+ *
+ * @param <C> the type of the referencing models
+ */
+public class RelationInfo<C extends DbModel> {
+
+	private final Field field;
+	private final Class<C> modelClass;
+	private final String foreignKey;
+	private final String orderBy;
+
+	private RelationInfo(Field field, Class<C> modelClass, String foreignKey, String orderBy) {
+		this.field = field;
+		this.modelClass = modelClass;
+		this.foreignKey = foreignKey;
+		this.orderBy = orderBy;
+	}
+
+	static RelationInfo<?> of(Field field, OneToMany oneToMany) {
+		if (!field.getType().isAssignableFrom(ArrayList.class)) {
+			throw new IllegalArgumentException("@OneToMany field " + field.getName() + " has to be a List");
+		}
+		if (!TableMetadata.isTable(oneToMany.model())) {
+			throw new IllegalArgumentException("@OneToMany field " + field.getName() + " references "
+					+ oneToMany.model().getName() + ", which is not annotated with @Table");
+		}
+		return create(field, oneToMany.model(), oneToMany);
+	}
+
+	private static <C extends DbModel> RelationInfo<C> create(Field field, Class<C> modelClass, OneToMany oneToMany) {
+		return new RelationInfo<C>(field, modelClass, oneToMany.foreignKey(), oneToMany.orderBy());
+	}
+
+	public String getName() {
+		return field.getName();
+	}
+
+	public Class<C> getModelClass() {
+		return modelClass;
+	}
+
+	public String getForeignKey() {
+		return foreignKey;
+	}
+
+	/**
+	 * Gets the order of the children of one model.
+	 *
+	 * @return the order by clause without the keywords, empty to order by primary key
+	 */
+	public String getOrderBy() {
+		return orderBy;
+	}
+
+	/**
+	 * Sets the children of a model.
+	 *
+	 * @param model    the model
+	 * @param children the children
+	 */
+	public void set(Object model, List<C> children) {
+		try {
+			field.set(model, children);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Could not set " + field.getName(), e);
+		}
+	}
+}
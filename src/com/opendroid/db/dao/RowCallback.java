@@ -0,0 +1,17 @@
+package com.opendroid.db.dao;
+
+/**
+ * Receives the rows of a streaming query such as {@link BaseDAO#forEach(RowCallback)}.
+ *
+ * @param <T> the model type
+ */
+public interface RowCallback<T> {
+
+	/**
+	 * Called for every row, in result order.
+	 *
+	 * @param model the mapped row
+	 * @return true to continue, false to stop reading and close the cursor
+	 */
+	public boolean onRow(T model);
+}
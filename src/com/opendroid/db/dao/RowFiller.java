@@ -0,0 +1,22 @@
+package com.opendroid.db.dao;
+
+import android.database.Cursor;
+
+/**
+ * Reads the current row of a cursor into an existing model, the allocation
+ * free counterpart of {@link RowMapper}. A filler is created for one cursor
+ * by {@link EntityMapper#rowFiller(Cursor)}, so it resolves column indices once.
+ *
+ * @param <T> the model type
+ */
+public interface RowFiller<T> {
+
+	/**
+	 * Reads the current row into the model. Fields of columns missing from
+	 * the cursor keep their value.
+	 *
+	 * @param c     the cursor the filler was created for, positioned on a row
+	 * @param model the model to overwrite
+	 */
+	public void fill(Cursor c, T model);
+}
@@ -0,0 +1,21 @@
+package com.opendroid.db.dao;
+
+import android.database.Cursor;
+
+/**
+ * Maps the current row of a cursor to a model. A mapper is created for one
+ * cursor by {@link BaseDAO#rowMapper(Cursor)}, so it can resolve column
+ * indices once and read every row by index.
+ *
+ * @param <T> the model type
+ */
+public interface RowMapper<T> {
+
+	/**
+	 * Maps the current row.
+	 *
+	 * @param c the cursor the mapper was created for, positioned on a row
+	 * @return the model
+	 */
+	public T mapRow(Cursor c);
+}
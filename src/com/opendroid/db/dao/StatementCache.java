@@ -0,0 +1,314 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Bounded LRU cache of compiled statements and SQL strings owned by a DAO,
+ * keyed by operation and field name. Compiled statements are closed when they
+ * are evicted, when the cache is closed, or when {@link #closeAll(SQLiteDatabase)}
+ * is called for their database.
+ *
+ * <p>Statements handed out by {@link #get(String, String)} and
+ * {@link #put(String, String, String, String[])} hold an extra reference, so an
+ * eviction never closes a statement that is still in use. Callers give it back
+ * with {@link #release(CachedStatement)}. A {@link SQLiteStatement} must not be
+ * bound by two threads at once, callers synchronize on the statement while
+ * binding and executing it.</p>
+ *
+ * <p>Lookups of compiled statements and of SQL strings are counted
+ * separately, so {@link #getHitRatio()} only measures statement reuse.</p>
+ */
+public class StatementCache {
+
+	/** Default number of compiled statements kept per DAO. */
+	public static final int DEFAULT_MAX_SIZE = 16;
+
+	private static final Map<StatementCache, Boolean> CACHES = new WeakHashMap<StatementCache, Boolean>();
+
+	private final SQLiteDatabase db;
+	private final int maxSize;
+	private final Key probe = new Key();
+	private final LinkedHashMap<Key, CachedStatement> statements;
+	private final LinkedHashMap<Key, String> sql;
+
+	private int hits;
+	private int misses;
+	private int evictions;
+	private int sqlHits;
+	private int sqlMisses;
+	private boolean closed;
+
+	/**
+	 * Instantiates a new statement cache.
+	 *
+	 * @param db      database statements are compiled against
+	 * @param maxSize maximum number of compiled statements
+	 */
+	public StatementCache(SQLiteDatabase db, int maxSize) {
+		this.db = db;
+		this.maxSize = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+		this.statements = new LinkedHashMap<Key, CachedStatement>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+				if (size() > StatementCache.this.maxSize) {
+					evictions++;
+					closeStatement(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		this.sql = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+				return size() > StatementCache.this.maxSize;
+			}
+		};
+		synchronized (CACHES) {
+			CACHES.put(this, Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Gets a compiled statement.
+	 *
+	 * @param operation the operation
+	 * @param field     the field name, may be <b>null</b>
+	 * @return the cached statement or <b>null</b> if it is not cached, must be given back through {@link #release(CachedStatement)}
+	 */
+	public synchronized CachedStatement get(String operation, String field) {
+		CachedStatement statement = statements.get(probe.set(operation, field));
+		if (statement != null) {
+			hits++;
+			statement.statement.acquireReference();
+		} else {
+			misses++;
+		}
+		return statement;
+	}
+
+	/**
+	 * Compiles and caches a statement, replacing and closing a cached statement with the same key.
+	 *
+	 * @param operation the operation
+	 * @param field     the field name, may be <b>null</b>
+	 * @param sql       the sql to compile
+	 * @param columns   the columns bound by the statement, may be <b>null</b>
+	 * @return the cached statement, must be given back through {@link #release(CachedStatement)}
+	 */
+	public synchronized CachedStatement put(String operation, String field, String sql, String[] columns) {
+		if (closed) {
+			throw new IllegalStateException("Statement cache is closed");
+		}
+		CachedStatement statement = new CachedStatement(db.compileStatement(sql), columns);
+		CachedStatement previous = statements.put(new Key(operation, field), statement);
+		if (previous != null) {
+			closeStatement(previous);
+		}
+		statement.statement.acquireReference();
+		return statement;
+	}
+
+	/**
+	 * Gives back a statement obtained from this cache.
+	 *
+	 * @param statement the statement
+	 */
+	public void release(CachedStatement statement) {
+		statement.statement.releaseReference();
+	}
+
+	/**
+	 * Gets a cached SQL string for queries that return rows and cannot be run as compiled statements.
+	 *
+	 * @param operation the operation
+	 * @param field     the field name, may be <b>null</b>
+	 * @return the sql or <b>null</b> if it is not cached
+	 */
+	public synchronized String getSql(String operation, String field) {
+		String cached = sql.get(probe.set(operation, field));
+		if (cached != null) {
+			sqlHits++;
+		} else {
+			sqlMisses++;
+		}
+		return cached;
+	}
+
+	/**
+	 * Caches a SQL string.
+	 *
+	 * @param operation the operation
+	 * @param field     the field name, may be <b>null</b>
+	 * @param query     the sql
+	 * @return the sql
+	 */
+	public synchronized String putSql(String operation, String field, String query) {
+		sql.put(new Key(operation, field), query);
+		return query;
+	}
+
+	/**
+	 * Gets the number of compiled statement lookups served from the cache.
+	 *
+	 * @return the hit count
+	 */
+	public synchronized int getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of compiled statement lookups that had to compile.
+	 *
+	 * @return the miss count
+	 */
+	public synchronized int getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Gets the share of compiled statement lookups served from the cache.
+	 *
+	 * @return the hit ratio between 0 and 1
+	 */
+	public synchronized double getHitRatio() {
+		int lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * Gets the number of compiled statements closed because the cache was full.
+	 *
+	 * @return the eviction count
+	 */
+	public synchronized int getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * Gets the number of SQL string lookups served from the cache.
+	 *
+	 * @return the hit count
+	 */
+	public synchronized int getSqlHitCount() {
+		return sqlHits;
+	}
+
+	/**
+	 * Gets the number of SQL string lookups that had to build the SQL.
+	 *
+	 * @return the miss count
+	 */
+	public synchronized int getSqlMissCount() {
+		return sqlMisses;
+	}
+
+	/**
+	 * Gets the number of cached compiled statements.
+	 *
+	 * @return the size
+	 */
+	public synchronized int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Closes all compiled statements. The cache can not be used afterwards.
+	 */
+	public synchronized void close() {
+		closed = true;
+		for (CachedStatement statement : statements.values()) {
+			closeStatement(statement);
+		}
+		statements.clear();
+		sql.clear();
+		synchronized (CACHES) {
+			CACHES.remove(this);
+		}
+	}
+
+	/**
+	 * Closes every statement cache holding statements compiled against the given database.
+	 *
+	 * @param db the database being closed
+	 */
+	public static void closeAll(SQLiteDatabase db) {
+		List<StatementCache> caches = new ArrayList<StatementCache>();
+		synchronized (CACHES) {
+			for (StatementCache cache : CACHES.keySet()) {
+				if (cache.db == db) {
+					caches.add(cache);
+				}
+			}
+		}
+		for (StatementCache cache : caches) {
+			cache.close();
+		}
+	}
+
+	private static void closeStatement(CachedStatement cached) {
+		cached.statement.close();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "StatementCache[size=" + statements.size() + ", hits=" + hits
+				+ ", misses=" + misses + ", evictions=" + evictions + ", sqlHits=" + sqlHits
+				+ ", sqlMisses=" + sqlMisses + "]";
+	}
+
+	/**
+	 * A compiled statement and the columns it binds.
+	 */
+	public static final class CachedStatement {
+
+		public final SQLiteStatement statement;
+		public final String[] columns;
+
+		CachedStatement(SQLiteStatement statement, String[] columns) {
+			this.statement = statement;
+			this.columns = columns;
+		}
+	}
+
+	private static final class Key {
+
+		private String operation;
+		private String field;
+
+		Key() {
+		}
+
+		Key(String operation, String field) {
+			set(operation, field);
+		}
+
+		Key set(String operation, String field) {
+			this.operation = operation;
+			this.field = field;
+			return this;
+		}
+
+		@Override
+		public int hashCode() {
+			return operation.hashCode() * 31 + (field == null ? 0 : field.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return operation.equals(other.operation)
+					&& (field == null ? other.field == null : field.equals(other.field));
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package com.opendroid.db.dao;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import android.database.Cursor;
+import android.os.Build;
+import android.util.Base64;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * Streams the rows of a DAO's table into a file, created by
+ * {@link BaseDAO#tableExporter()}. Rows are read in chunks ordered by
+ * primary key, so memory use does not grow with the table, and written
+ * through a buffered {@link FileChannel}.
+ * <p>
+ * After every chunk the last exported id and the file length are saved to a
+ * <code>.checkpoint</code> file next to the export. An interrupted export
+ * continues from there when it is started again. The checkpoint is removed
+ * once the whole table was written.
+ * <p>
+ * {@link Format#BINARY} files are big-endian and start with {@link #MAGIC},
+ * the column count as int and each column name as a string. Each row then
+ * holds one value per column: a type byte, one of the <code>TYPE_*</code>
+ * constants, followed by
+ * <ul>
+ * <li>nothing for {@link #TYPE_NULL}</li>
+ * <li>8 bytes for {@link #TYPE_LONG} and {@link #TYPE_DOUBLE}</li>
+ * <li>an int length and the bytes for {@link #TYPE_BLOB}, and for
+ * {@link #TYPE_STRING} in UTF-8</li>
+ * </ul>
+ * {@link Format#CSV} files have a header row. NULL is written as an empty
+ * field, an empty string as <code>""</code>, and blobs in Base64.
+ * <p>
+ * Column types are only known from API 11, older devices export every value
+ * as a string.
+ *
+ * @param <T> the model type
+ */
+public class TableExporter<T extends DbModel> {
+
+	/** Output formats. */
+	public enum Format {
+		BINARY, CSV
+	}
+
+	/** First int of a binary export, "ODX1". */
+	public static final int MAGIC = 0x4F445831;
+
+	public static final byte TYPE_NULL = 0;
+	public static final byte TYPE_LONG = 1;
+	public static final byte TYPE_DOUBLE = 2;
+	public static final byte TYPE_STRING = 3;
+	public static final byte TYPE_BLOB = 4;
+
+	private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String UTF_8 = "UTF-8";
+
+	private final BaseDAO<T> dao;
+	private Format format = Format.BINARY;
+	private int chunkSize = 1000;
+	private ExportListener listener;
+	private ByteBuffer buffer;
+	private FileChannel channel;
+	private final StringBuilder line = new StringBuilder();
+
+	TableExporter(BaseDAO<T> dao) {
+		this.dao = dao;
+	}
+
+	/**
+	 * Sets the output format.
+	 *
+	 * @param format the format, {@link Format#BINARY} by default
+	 * @return this exporter
+	 */
+	public TableExporter<T> setFormat(Format format) {
+		this.format = format;
+		return this;
+	}
+
+	/**
+	 * Sets the number of rows read per query and per checkpoint.
+	 *
+	 * @param chunkSize the chunk size, 1000 by default
+	 * @return this exporter
+	 */
+	public TableExporter<T> setChunkSize(int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * Sets the listener notified after every written chunk.
+	 *
+	 * @param listener the listener
+	 * @return this exporter
+	 */
+	public TableExporter<T> setListener(ExportListener listener) {
+		this.listener = listener;
+		return this;
+	}
+
+	/**
+	 * Exports the table, continuing an interrupted export of the same format
+	 * into the file. Otherwise the file is overwritten.
+	 *
+	 * @param file the export file
+	 * @return the number of rows written by this call
+	 * @throws IOException if the file cannot be written
+	 * @throws DAOException the dAO exception
+	 */
+	public long export(File file) throws IOException, DAOException {
+		dao.flush();
+		File checkpointFile = new File(file.getPath() + CHECKPOINT_SUFFIX);
+		long[] checkpoint = readCheckpoint(checkpointFile);
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			channel = out.getChannel();
+			buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long lastId = Long.MIN_VALUE;
+			boolean headerWritten = false;
+			if (checkpoint != null && checkpoint[1] <= channel.size()) {
+				lastId = checkpoint[0];
+				channel.truncate(checkpoint[1]);
+				channel.position(checkpoint[1]);
+				headerWritten = true;
+			} else {
+				channel.truncate(0);
+			}
+			String sql = "select * from " + dao.getTableName() + " where " + DAO.ID + " > ? order by "
+					+ DAO.ID + " limit " + chunkSize;
+			long rows = 0;
+			int read;
+			do {
+				read = 0;
+				Cursor c = dao.query(sql, new String[] { Long.toString(lastId) });
+				try {
+					if (!headerWritten) {
+						writeHeader(c.getColumnNames());
+						headerWritten = true;
+					}
+					int idIndex = c.getColumnIndexOrThrow(DAO.ID);
+					int columnCount = c.getColumnCount();
+					while (c.moveToNext()) {
+						if (format == Format.BINARY) {
+							writeBinaryRow(c, columnCount);
+						} else {
+							writeCsvRow(c, columnCount);
+						}
+						lastId = c.getLong(idIndex);
+						read++;
+					}
+				} finally {
+					c.close();
+				}
+				drain();
+				if (read > 0) {
+					rows += read;
+					channel.force(false);
+					writeCheckpoint(checkpointFile, lastId, channel.position());
+					if (listener != null) {
+						listener.onChunkWritten(rows, lastId);
+					}
+				}
+			} while (read == chunkSize);
+			checkpointFile.delete();
+			return rows;
+		} finally {
+			channel = null;
+			buffer = null;
+			out.close();
+		}
+	}
+
+	private void writeHeader(String[] columns) throws IOException {
+		if (format == Format.BINARY) {
+			ensure(8);
+			buffer.putInt(MAGIC);
+			buffer.putInt(columns.length);
+			for (String column : columns) {
+				writeBytes(column.getBytes(UTF_8));
+			}
+		} else {
+			line.setLength(0);
+			for (int i = 0; i < columns.length; i++) {
+				if (i > 0) {
+					line.append(',');
+				}
+				appendCsv(line, columns[i]);
+			}
+			writeLine();
+		}
+	}
+
+	private void writeBinaryRow(Cursor c, int columnCount) throws IOException {
+		for (int i = 0; i < columnCount; i++) {
+			int type = typeOf(c, i);
+			ensure(9);
+			buffer.put((byte) type);
+			switch (type) {
+			case TYPE_NULL:
+				break;
+			case TYPE_LONG:
+				buffer.putLong(c.getLong(i));
+				break;
+			case TYPE_DOUBLE:
+				buffer.putDouble(c.getDouble(i));
+				break;
+			case TYPE_BLOB:
+				writeBytes(c.getBlob(i));
+				break;
+			default:
+				writeBytes(c.getString(i).getBytes(UTF_8));
+				break;
+			}
+		}
+	}
+
+	private void writeCsvRow(Cursor c, int columnCount) throws IOException {
+		line.setLength(0);
+		for (int i = 0; i < columnCount; i++) {
+			if (i > 0) {
+				line.append(',');
+			}
+			switch (typeOf(c, i)) {
+			case TYPE_NULL:
+				break;
+			case TYPE_LONG:
+				line.append(c.getLong(i));
+				break;
+			case TYPE_DOUBLE:
+				line.append(c.getDouble(i));
+				break;
+			case TYPE_BLOB:
+				line.append(Base64.encodeToString(c.getBlob(i), Base64.NO_WRAP));
+				break;
+			default:
+				appendCsv(line, c.getString(i));
+				break;
+			}
+		}
+		writeLine();
+	}
+
+	/**
+	 * Gets the storage class of a value, the <code>TYPE_*</code> constants
+	 * match the <code>Cursor.FIELD_TYPE_*</code> ones.
+	 */
+	private static int typeOf(Cursor c, int index) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			return c.getType(index);
+		}
+		return c.isNull(index) ? TYPE_NULL : TYPE_STRING;
+	}
+
+	/**
+	 * Appends a CSV field, quoted when it holds a separator, quote or line
+	 * break, or is empty so it is not read back as NULL.
+	 */
+	static void appendCsv(StringBuilder line, String value) {
+		boolean quote = value.length() == 0;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char ch = value.charAt(i);
+			quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+		}
+		if (!quote) {
+			line.append(value);
+			return;
+		}
+		line.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"') {
+				line.append('"');
+			}
+			line.append(ch);
+		}
+		line.append('"');
+	}
+
+	private void writeLine() throws IOException {
+		line.append('\n');
+		byte[] bytes = line.toString().getBytes(UTF_8);
+		if (bytes.length > buffer.capacity()) {
+			drain();
+			writeFully(ByteBuffer.wrap(bytes));
+		} else {
+			ensure(bytes.length);
+			buffer.put(bytes);
+		}
+	}
+
+	/**
+	 * Writes a length-prefixed byte array, large arrays bypass the buffer.
+	 */
+	private void writeBytes(byte[] bytes) throws IOException {
+		ensure(4);
+		buffer.putInt(bytes.length);
+		if (bytes.length > buffer.remaining()) {
+			drain();
+		}
+		if (bytes.length > buffer.capacity()) {
+			writeFully(ByteBuffer.wrap(bytes));
+		} else {
+			buffer.put(bytes);
+		}
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			drain();
+		}
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer source) throws IOException {
+		while (source.hasRemaining()) {
+			channel.write(source);
+		}
+	}
+
+	/**
+	 * Reads the last id and file length of an interrupted export.
+	 *
+	 * @return the checkpoint, <b>null</b> if there is none for the current format
+	 */
+	private long[] readCheckpoint(File checkpointFile) {
+		if (!checkpointFile.exists()) {
+			return null;
+		}
+		BufferedReader in = null;
+		try {
+			in = new BufferedReader(new FileReader(checkpointFile));
+			String[] parts = in.readLine().split(" ");
+			if (parts.length != 3 || !parts[0].equals(format.name())) {
+				return null;
+			}
+			return new long[] { Long.parseLong(parts[1]), Long.parseLong(parts[2]) };
+		} catch (Exception e) {
+			return null;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces the checkpoint through a rename, so it is never seen half written.
+	 */
+	private void writeCheckpoint(File checkpointFile, long lastId, long length) throws IOException {
+		File tmp = new File(checkpointFile.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write((format.name() + " " + lastId + " " + length).getBytes(UTF_8));
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(checkpointFile)) {
+			throw new IOException("could not write " + checkpointFile);
+		}
+	}
+}
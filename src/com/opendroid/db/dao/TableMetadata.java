@@ -0,0 +1,316 @@
+package com.opendroid.db.dao;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.StatementUtils;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.ForeignKey;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Index;
+import com.opendroid.db.dao.annotations.Indexed;
+import com.opendroid.db.dao.annotations.OneToMany;
+import com.opendroid.db.dao.annotations.Table;
+
+/**
+ * Metadata of a {@link Table} annotated model, read once per class from its
+ * {@link Column}, {@link Id}, {@link Indexed} and {@link OneToMany} fields and shared by schema creation and the
+ * default mapping of {@link BaseDAO}. Holds the resolved fields and the SQL
+ * built from them, so annotations are only read once. Values are still read
+ * and written through reflective field access for every row.
+ *
+ * @param <T> the model type
+ */
+public class TableMetadata<T extends DbModel> {
+
+	private static final Map<Class<?>, TableMetadata<?>> REGISTRY = new HashMap<Class<?>, TableMetadata<?>>();
+
+	private final Class<T> modelClass;
+	private final String tableName;
+	private final ColumnInfo[] columns;
+	private final ColumnInfo idColumn;
+	private final String[] valueColumnNames;
+	private final String[] lazyColumnNames;
+	private final String[] chunkedBlobColumnNames;
+	private final String createTableSql;
+	private final String[] createIndexSql;
+	private final String insertSql;
+	private final String updateSql;
+	private final Map<String, RelationInfo<?>> relations;
+	private final Constructor<T> constructor;
+	private EntityMapper<T> reflectiveMapper;
+
+	/**
+	 * Gets the metadata of a model class, reading it on first use.
+	 *
+	 * @param modelClass the model class
+	 * @return the table metadata
+	 * @throws IllegalArgumentException if the class is not annotated with {@link Table}
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends DbModel> TableMetadata<T> forClass(Class<T> modelClass) {
+		synchronized (REGISTRY) {
+			TableMetadata<T> metadata = (TableMetadata<T>) REGISTRY.get(modelClass);
+			if (metadata == null) {
+				metadata = new TableMetadata<T>(modelClass);
+				REGISTRY.put(modelClass, metadata);
+			}
+			return metadata;
+		}
+	}
+
+	/**
+	 * Checks if a model class is annotated with {@link Table}.
+	 *
+	 * @param modelClass the model class
+	 * @return true, if the class maps to a table
+	 */
+	public static boolean isTable(Class<?> modelClass) {
+		return modelClass.getAnnotation(Table.class) != null;
+	}
+
+	private TableMetadata(Class<T> modelClass) {
+		Table table = modelClass.getAnnotation(Table.class);
+		if (table == null) {
+			throw new IllegalArgumentException(modelClass.getName() + " is not annotated with @Table");
+		}
+		this.modelClass = modelClass;
+		this.tableName = table.name();
+
+		LinkedList<Class<?>> hierarchy = new LinkedList<Class<?>>();
+		for (Class<?> c = modelClass; c != null && c != Object.class; c = c.getSuperclass()) {
+			hierarchy.addFirst(c);
+		}
+		List<ColumnInfo> columnList = new ArrayList<ColumnInfo>();
+		List<String> valueColumns = new ArrayList<String>();
+		List<String> indexes = new ArrayList<String>();
+		List<String> lazyColumns = new ArrayList<String>();
+		List<String> chunkedBlobColumns = new ArrayList<String>();
+		Map<String, RelationInfo<?>> relationMap = new HashMap<String, RelationInfo<?>>();
+		ColumnInfo id = null;
+		for (Class<?> c : hierarchy) {
+			for (Field field : c.getDeclaredFields()) {
+				OneToMany oneToMany = field.getAnnotation(OneToMany.class);
+				if (oneToMany != null && !Modifier.isStatic(field.getModifiers())) {
+					field.setAccessible(true);
+					relationMap.put(field.getName(), RelationInfo.of(field, oneToMany));
+					continue;
+				}
+				Column column = field.getAnnotation(Column.class);
+				if (column == null || Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				field.setAccessible(true);
+				ColumnInfo info = new ColumnInfo(column, field, field.getAnnotation(Id.class) != null);
+				if (info.isId()) {
+					if (id != null) {
+						throw new IllegalStateException("Only one primary key can be defined, please correct column [" + column.name() + "]");
+					}
+					id = info;
+				} else if (info.isChunkedBlob()) {
+					chunkedBlobColumns.add(info.getName());
+				} else {
+					valueColumns.add(info.getName());
+				}
+				columnList.add(info);
+				if (info.isLazy()) {
+					lazyColumns.add(info.getName());
+				}
+				Indexed indexed = field.getAnnotation(Indexed.class);
+				if (indexed != null) {
+					indexes.add(StatementUtils.createIndexSql(tableName, indexed.name(),
+							new String[] { info.getName() }, indexed.unique(), indexed.where()));
+				} else if (field.getAnnotation(ForeignKey.class) != null) {
+					indexes.add(StatementUtils.createIndexSql(tableName, null, new String[] { info.getName() },
+							false, null));
+				}
+			}
+		}
+		this.relations = relationMap;
+		this.columns = columnList.toArray(new ColumnInfo[columnList.size()]);
+		this.idColumn = id;
+		this.valueColumnNames = valueColumns.toArray(new String[valueColumns.size()]);
+		this.lazyColumnNames = lazyColumns.toArray(new String[lazyColumns.size()]);
+		this.chunkedBlobColumnNames = chunkedBlobColumns.toArray(new String[chunkedBlobColumns.size()]);
+		this.createTableSql = buildCreateTable();
+		for (Index index : table.indexes()) {
+			if (index.columns().length == 0) {
+				throw new IllegalArgumentException("@Index of " + modelClass.getName() + " needs at least one column");
+			}
+			for (String column : index.columns()) {
+				if (!hasColumn(column)) {
+					throw new IllegalArgumentException("@Index of " + modelClass.getName() + " names unknown column [" + column + "]");
+				}
+			}
+			indexes.add(StatementUtils.createIndexSql(tableName, index.name(), index.columns(), index.unique(),
+					index.where()));
+		}
+		this.createIndexSql = indexes.toArray(new String[indexes.size()]);
+		this.insertSql = StatementUtils.insertSql(tableName, valueColumnNames);
+		this.updateSql = id != null ? StatementUtils.updateSql(tableName, valueColumnNames, id.getName()) : null;
+		try {
+			this.constructor = modelClass.getDeclaredConstructor();
+			this.constructor.setAccessible(true);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(modelClass.getName() + " needs a no-argument constructor", e);
+		}
+	}
+
+	private String buildCreateTable() {
+		StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(tableName).append(" (");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns[i].getDefinition());
+		}
+		return sql.append(')').toString();
+	}
+
+	private boolean hasColumn(String name) {
+		return getColumn(name) != null;
+	}
+
+	public Class<T> getModelClass() {
+		return modelClass;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Gets all columns, in declaration order, superclass columns first.
+	 *
+	 * @return the columns
+	 */
+	public ColumnInfo[] getColumns() {
+		return columns.clone();
+	}
+
+	/**
+	 * Gets a column by name.
+	 *
+	 * @param name the column name
+	 * @return the column, <b>null</b> if the model has no such column
+	 */
+	public ColumnInfo getColumn(String name) {
+		for (ColumnInfo column : columns) {
+			if (column.getName().equals(name)) {
+				return column;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets a {@link OneToMany} relation by field name.
+	 *
+	 * @param name the field name
+	 * @return the relation, <b>null</b> if the model has no such relation
+	 */
+	public RelationInfo<?> getRelation(String name) {
+		return relations.get(name);
+	}
+
+	/**
+	 * Gets the primary key column.
+	 *
+	 * @return the id column, <b>null</b> if none is declared
+	 */
+	public ColumnInfo getIdColumn() {
+		return idColumn;
+	}
+
+	/**
+	 * Gets the columns written by inserts and updates, the primary key and
+	 * {@link ColumnTypes#CHUNKED_BLOB} columns are not included.
+	 *
+	 * @return the column names
+	 */
+	public String[] getValueColumnNames() {
+		return valueColumnNames.clone();
+	}
+
+	/**
+	 * Gets the columns marked {@link Column#lazy() lazy}.
+	 *
+	 * @return the column names
+	 */
+	public String[] getLazyColumnNames() {
+		return lazyColumnNames.clone();
+	}
+
+	/**
+	 * Gets the {@link ColumnTypes#CHUNKED_BLOB} columns.
+	 *
+	 * @return the column names
+	 */
+	public String[] getChunkedBlobColumnNames() {
+		return chunkedBlobColumnNames.clone();
+	}
+
+	public String getCreateTableStatement() {
+		return createTableSql;
+	}
+
+	/**
+	 * Gets the CREATE INDEX statements of the {@link Indexed} and {@link ForeignKey}
+	 * fields, followed by the {@link Table#indexes()}.
+	 *
+	 * @return the index statements
+	 */
+	public String[] getCreateIndexStatements() {
+		return createIndexSql.clone();
+	}
+
+	/**
+	 * Gets the INSERT statement binding {@link #getValueColumnNames()}.
+	 *
+	 * @return the insert sql
+	 */
+	public String getInsertStatement() {
+		return insertSql;
+	}
+
+	/**
+	 * Gets the UPDATE statement binding {@link #getValueColumnNames()} followed by the id.
+	 *
+	 * @return the update sql, <b>null</b> if no primary key is declared
+	 */
+	public String getUpdateStatement() {
+		return updateSql;
+	}
+
+	/**
+	 * Creates a new, empty model.
+	 *
+	 * @return the model
+	 */
+	public T newInstance() {
+		try {
+			return constructor.newInstance();
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not instantiate " + modelClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Gets a mapper reading and writing models through the cached fields.
+	 *
+	 * @return the reflective mapper
+	 */
+	public synchronized EntityMapper<T> getReflectiveMapper() {
+		if (reflectiveMapper == null) {
+			reflectiveMapper = new ReflectiveMapper<T>(this);
+		}
+		return reflectiveMapper;
+	}
+}
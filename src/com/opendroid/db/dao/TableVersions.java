@@ -0,0 +1,171 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide version counters per table. Every write through a {@link BaseDAO}
+ * bumps the counter of its table, so results cached under an older version
+ * are known to be stale.
+ * <p>
+ * Writes inside a transaction are visible to other connections only once it
+ * commits, so such tables are also counted as uncommitted and their results
+ * are not cached until the transaction ended, which bumps them again. The
+ * end is seen right after transactions opened by the library, after
+ * {@link BaseDAO#endTransaction(android.database.sqlite.SQLiteDatabase)}, on
+ * the next DAO call of the writing thread, or once that thread died. A
+ * caller ending its transaction on the database directly and then keeping
+ * its thread away from DAOs keeps the tables it wrote uncached.
+ */
+public class TableVersions {
+
+	private static final ConcurrentHashMap<String, AtomicLong> VERSIONS = new ConcurrentHashMap<String, AtomicLong>();
+	private static final ConcurrentHashMap<String, AtomicLong> UNCOMMITTED = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * Tables written per open transaction, by writing thread and database.
+	 */
+	private static final Map<Thread, Map<Object, Set<String>>> PENDING = new HashMap<Thread, Map<Object, Set<String>>>();
+	private static final AtomicInteger PENDING_THREADS = new AtomicInteger();
+
+	/**
+	 * Gets the current version of a table.
+	 *
+	 * @param tableName the table name
+	 * @return the version
+	 */
+	public static long current(String tableName) {
+		return counter(VERSIONS, tableName).get();
+	}
+
+	/**
+	 * Marks a table as changed.
+	 *
+	 * @param tableName the table name
+	 * @return the new version
+	 */
+	public static long bump(String tableName) {
+		return counter(VERSIONS, tableName).incrementAndGet();
+	}
+
+	/**
+	 * Checks if no transaction holds uncommitted writes of a table.
+	 * Transactions of threads that died are ended first.
+	 *
+	 * @param tableName the table name
+	 * @return true, if the table can be cached
+	 */
+	public static boolean isCommitted(String tableName) {
+		AtomicLong uncommitted = UNCOMMITTED.get(tableName);
+		if (uncommitted == null || uncommitted.get() == 0) {
+			return true;
+		}
+		endDeadThreads();
+		return uncommitted.get() == 0;
+	}
+
+	/**
+	 * Marks a table as changed by a transaction of the current thread that
+	 * has not ended yet.
+	 *
+	 * @param transaction the database the transaction runs on
+	 * @param tableName the table name
+	 */
+	static void changedInTransaction(Object transaction, String tableName) {
+		Thread thread = Thread.currentThread();
+		synchronized (PENDING) {
+			Map<Object, Set<String>> pending = PENDING.get(thread);
+			if (pending == null) {
+				pending = new HashMap<Object, Set<String>>();
+				PENDING.put(thread, pending);
+				PENDING_THREADS.incrementAndGet();
+			}
+			Set<String> tables = pending.get(transaction);
+			if (tables == null) {
+				tables = new HashSet<String>();
+				pending.put(transaction, tables);
+			}
+			// counted before the bump, so a reader seeing the new version sees the table as uncommitted
+			if (tables.add(tableName)) {
+				counter(UNCOMMITTED, tableName).incrementAndGet();
+			}
+		}
+		bump(tableName);
+	}
+
+	/**
+	 * Bumps the tables changed by the ended transaction of the current thread
+	 * and marks them as committed again. Has to be called outside the transaction.
+	 *
+	 * @param transaction the database the transaction ran on
+	 */
+	static void transactionEnded(Object transaction) {
+		if (PENDING_THREADS.get() == 0) {
+			return;
+		}
+		Thread thread = Thread.currentThread();
+		Set<String> tables;
+		synchronized (PENDING) {
+			Map<Object, Set<String>> pending = PENDING.get(thread);
+			if (pending == null) {
+				return;
+			}
+			tables = pending.remove(transaction);
+			if (pending.isEmpty()) {
+				PENDING.remove(thread);
+				PENDING_THREADS.decrementAndGet();
+			}
+		}
+		if (tables != null) {
+			committed(tables);
+		}
+	}
+
+	/**
+	 * Ends the transactions of threads that died, their connections ended
+	 * them one way or the other.
+	 */
+	private static void endDeadThreads() {
+		List<Set<String>> ended = new ArrayList<Set<String>>();
+		synchronized (PENDING) {
+			for (Iterator<Map.Entry<Thread, Map<Object, Set<String>>>> i = PENDING.entrySet().iterator(); i.hasNext();) {
+				Map.Entry<Thread, Map<Object, Set<String>>> entry = i.next();
+				if (!entry.getKey().isAlive()) {
+					ended.addAll(entry.getValue().values());
+					i.remove();
+					PENDING_THREADS.decrementAndGet();
+				}
+			}
+		}
+		for (Set<String> tables : ended) {
+			committed(tables);
+		}
+	}
+
+	private static void committed(Set<String> tables) {
+		for (String tableName : tables) {
+			bump(tableName);
+			counter(UNCOMMITTED, tableName).decrementAndGet();
+		}
+	}
+
+	private static AtomicLong counter(ConcurrentHashMap<String, AtomicLong> counters, String tableName) {
+		AtomicLong counter = counters.get(tableName);
+		if (counter == null) {
+			AtomicLong created = new AtomicLong();
+			counter = counters.putIfAbsent(tableName, created);
+			if (counter == null) {
+				counter = created;
+			}
+		}
+		return counter;
+	}
+}
@@ -0,0 +1,400 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.util.Log;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * Buffers the creates and updates of a DAO class in memory and writes them as
+ * one transaction once <code>maxPending</code> models are buffered or
+ * <code>intervalMillis</code> passed since the first buffered write. Repeated
+ * updates of the same id are coalesced into one. Models violating a constraint
+ * are dropped when they are flushed, so they do not block later flushes.
+ * Enabled per DAO class through
+ * {@link com.opendroid.db.DbConfiguration.Builder#setWriteBehind(Class, int, long)}.
+ *
+ * <p>Buffered models get their id only when they are flushed. Reads and other
+ * writes of the DAO flush the buffer first, so they always see the buffered
+ * writes. All buffers are flushed durably when the app goes to the
+ * background (API 14 and above), call {@link #flushAll()} from
+ * <code>onPause</code> on older versions.</p>
+ *
+ * @param <T> the model type
+ */
+public class WriteBehindBuffer<T extends DbModel> {
+
+	private static final String TAG = "WriteBehindBuffer";
+
+	private static final Map<Class<?>, WriteBehindBuffer<?>> BUFFERS = new HashMap<Class<?>, WriteBehindBuffer<?>>();
+	private static ScheduledExecutorService scheduler;
+	private static boolean callbacksRegistered;
+
+	private volatile BaseDAO<T> dao;
+	private final int maxPending;
+	private final long intervalMillis;
+	private final Object flushLock = new Object();
+
+	private List<T> creates = new ArrayList<T>();
+	private LinkedHashMap<Integer, T> updates = new LinkedHashMap<Integer, T>();
+	private LinkedHashMap<Integer, T> upserts = new LinkedHashMap<Integer, T>();
+	private ScheduledFuture<?> scheduledFlush;
+	private volatile Thread flushingThread;
+	private long flushes;
+	private long flushedModels;
+	private long coalesced;
+	private long rejected;
+
+	WriteBehindBuffer(BaseDAO<T> dao, int maxPending, long intervalMillis) {
+		this.dao = dao;
+		this.maxPending = Math.max(1, maxPending);
+		this.intervalMillis = intervalMillis;
+	}
+
+	/**
+	 * Gets the buffer shared by all instances of a DAO class, creating it on first use.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends DbModel> WriteBehindBuffer<T> forDao(BaseDAO<T> dao, int maxPending, long intervalMillis) {
+		synchronized (BUFFERS) {
+			WriteBehindBuffer<T> buffer = (WriteBehindBuffer<T>) BUFFERS.get(dao.getClass());
+			if (buffer == null) {
+				buffer = new WriteBehindBuffer<T>(dao, maxPending, intervalMillis);
+				BUFFERS.put(dao.getClass(), buffer);
+			} else if (!buffer.dao.db.isOpen()) {
+				// the helper was closed and reopened, write through the new connection
+				buffer.dao = dao;
+			}
+			if (!callbacksRegistered && dao.context != null
+					&& Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+				dao.context.getApplicationContext().registerComponentCallbacks(new BackgroundFlusher());
+				callbacksRegistered = true;
+			}
+			return buffer;
+		}
+	}
+
+	/**
+	 * Flushes the buffers of all DAO classes, then checkpoints the write-ahead log if one is used,
+	 * so the buffered writes are on disk when this method returns.
+	 */
+	public static void flushAll() {
+		List<WriteBehindBuffer<?>> buffers;
+		synchronized (BUFFERS) {
+			buffers = new ArrayList<WriteBehindBuffer<?>>(BUFFERS.values());
+		}
+		for (WriteBehindBuffer<?> buffer : buffers) {
+			buffer.flushQuietly();
+			buffer.checkpoint();
+		}
+	}
+
+	void create(T model) throws DAOException {
+		boolean full;
+		synchronized (this) {
+			creates.add(model);
+			full = pendingCount() >= maxPending;
+			scheduleFlush();
+		}
+		if (full) {
+			flush();
+		}
+	}
+
+	void update(T model) throws DAOException {
+		boolean full;
+		synchronized (this) {
+			if (model.getId() <= 0 && creates.contains(model)) {
+				// the pending create writes the current state of the model
+				coalesced++;
+				return;
+			}
+			if (upserts.containsKey(model.getId())) {
+				// an update of a row the pending upsert may create has to stay an upsert
+				upserts.put(model.getId(), model);
+				coalesced++;
+				return;
+			}
+			if (updates.put(model.getId(), model) != null) {
+				coalesced++;
+			}
+			full = pendingCount() >= maxPending;
+			scheduleFlush();
+		}
+		if (full) {
+			flush();
+		}
+	}
+
+	void createOrUpdate(T model) throws DAOException {
+		if (model.getId() <= 0) {
+			create(model);
+			return;
+		}
+		boolean full;
+		synchronized (this) {
+			boolean pendingUpdate = updates.remove(model.getId()) != null;
+			if (upserts.put(model.getId(), model) != null || pendingUpdate) {
+				coalesced++;
+			}
+			full = pendingCount() >= maxPending;
+			scheduleFlush();
+		}
+		if (full) {
+			flush();
+		}
+	}
+
+	private int pendingCount() {
+		return creates.size() + updates.size() + upserts.size();
+	}
+
+	/**
+	 * Gets the number of buffered models.
+	 *
+	 * @return the pending count
+	 */
+	public synchronized int getPendingCount() {
+		return pendingCount();
+	}
+
+	public synchronized long getFlushCount() {
+		return flushes;
+	}
+
+	public synchronized long getFlushedModelCount() {
+		return flushedModels;
+	}
+
+	/**
+	 * Gets the number of writes saved by coalescing writes of the same model.
+	 *
+	 * @return the coalesced count
+	 */
+	public synchronized long getCoalescedCount() {
+		return coalesced;
+	}
+
+	/**
+	 * Gets the number of buffered models dropped because they violated a constraint.
+	 *
+	 * @return the rejected count
+	 */
+	public synchronized long getRejectedCount() {
+		return rejected;
+	}
+
+	/**
+	 * Checks if the calling thread is flushing this buffer.
+	 *
+	 * @return true, if flushing
+	 */
+	boolean isFlushing() {
+		return flushingThread == Thread.currentThread();
+	}
+
+	/**
+	 * Writes all buffered models in one transaction. Models violating a
+	 * constraint are dropped and the others written, the first violation is
+	 * thrown afterwards. If the write fails otherwise, the models are
+	 * buffered again.
+	 *
+	 * @throws DAOException the dAO exception
+	 */
+	public void flush() throws DAOException {
+		if (isFlushing()) {
+			return;
+		}
+		synchronized (this) {
+			if (pendingCount() == 0) {
+				return;
+			}
+		}
+		BaseDAO<T> dao = this.dao;
+		SQLiteDatabase db = dao.db;
+		List<T> pendingCreates = null;
+		LinkedHashMap<Integer, T> pendingUpdates = null;
+		LinkedHashMap<Integer, T> pendingUpserts = null;
+		List<T> rejects = new ArrayList<T>();
+		SQLiteConstraintException rejection = null;
+		boolean written = false;
+		try {
+			// begun before taking the flush lock: a thread inside a transaction
+			// flushing before its reads would otherwise wait for the flush lock
+			// held by a flush waiting for its connection
+			db.beginTransaction();
+			try {
+				synchronized (flushLock) {
+					synchronized (this) {
+						if (scheduledFlush != null) {
+							scheduledFlush.cancel(false);
+							scheduledFlush = null;
+						}
+						if (pendingCount() == 0) {
+							// flushed meanwhile, an unsuccessful end would fail an enclosing transaction
+							db.setTransactionSuccessful();
+							return;
+						}
+						pendingCreates = creates;
+						pendingUpdates = updates;
+						pendingUpserts = upserts;
+						creates = new ArrayList<T>();
+						updates = new LinkedHashMap<Integer, T>();
+						upserts = new LinkedHashMap<Integer, T>();
+					}
+					flushingThread = Thread.currentThread();
+					try {
+						rejection = dao.writeBuffered(pendingCreates, pendingUpdates.values(),
+								pendingUpserts.values(), rejects);
+						db.setTransactionSuccessful();
+					} finally {
+						flushingThread = null;
+					}
+				}
+			} finally {
+				db.endTransaction();
+			}
+			written = true;
+		} catch (RuntimeException e) {
+			throw new DAOException(e);
+		} finally {
+			if (pendingCreates != null) {
+				synchronized (this) {
+					if (written) {
+						flushes++;
+						flushedModels += pendingCreates.size() + pendingUpdates.size() + pendingUpserts.size()
+								- rejects.size();
+						rejected += rejects.size();
+					} else {
+						requeue(pendingCreates, pendingUpdates, pendingUpserts);
+					}
+				}
+			}
+		}
+		if (written) {
+			dao.tableChanged();
+		}
+		if (rejection != null) {
+			for (T model : rejects) {
+				Log.w(TAG, "dropped buffered write of " + dao.getTableName() + " row " + model.getId() + ": " + model);
+			}
+			throw new DAOException(rejection);
+		}
+	}
+
+	/**
+	 * Puts models of a failed flush back in front of the models buffered meanwhile.
+	 */
+	private void requeue(List<T> failedCreates, LinkedHashMap<Integer, T> failedUpdates,
+			LinkedHashMap<Integer, T> failedUpserts) {
+		failedCreates.addAll(creates);
+		creates = failedCreates;
+		failedUpdates.putAll(updates);
+		updates = failedUpdates;
+		failedUpserts.putAll(upserts);
+		upserts = failedUpserts;
+		scheduleFlush();
+	}
+
+	/**
+	 * Flushes, logging instead of throwing failures. Failed models stay buffered.
+	 */
+	void flushQuietly() {
+		try {
+			flush();
+		} catch (DAOException e) {
+			Log.e(TAG, "flush of " + dao.getTableName() + " failed", e);
+		}
+	}
+
+	private void checkpoint() {
+		SQLiteDatabase db = dao.db;
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN || !db.isWriteAheadLoggingEnabled()) {
+			return;
+		}
+		Cursor c = null;
+		try {
+			c = db.rawQuery("PRAGMA wal_checkpoint(FULL)", null);
+			c.moveToFirst();
+		} catch (RuntimeException e) {
+			Log.w(TAG, "checkpoint failed", e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+
+	private void scheduleFlush() {
+		if (scheduledFlush != null || intervalMillis <= 0) {
+			return;
+		}
+		scheduledFlush = scheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (WriteBehindBuffer.this) {
+					scheduledFlush = null;
+				}
+				flushQuietly();
+			}
+		}, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private static synchronized ScheduledExecutorService scheduler() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "opendroid-dao-write-behind");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return scheduler;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "WriteBehindBuffer[pending=" + pendingCount() + ", flushes=" + flushes
+				+ ", flushed=" + flushedModels + ", coalesced=" + coalesced + ", rejected=" + rejected + "]";
+	}
+
+	/**
+	 * Flushes all buffers when the app's UI is hidden.
+	 */
+	private static class BackgroundFlusher implements ComponentCallbacks2 {
+
+		@Override
+		public void onTrimMemory(int level) {
+			if (level >= TRIM_MEMORY_UI_HIDDEN) {
+				flushAll();
+			}
+		}
+
+		@Override
+		public void onConfigurationChanged(Configuration newConfig) {
+		}
+
+		@Override
+		public void onLowMemory() {
+			flushAll();
+		}
+	}
+}
@@ -28,4 +28,10 @@ public @interface Column {
     String name();
     String type();
     int size() default -1;
+
+    /**
+     * Leaves the column out of the default queries, for heavy text and blob
+     * columns. Models read it through {@link com.opendroid.db.dao.LazyLoadable}.
+     */
+    boolean lazy() default false;
 }
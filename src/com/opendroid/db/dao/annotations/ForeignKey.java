@@ -0,0 +1,25 @@
+package com.opendroid.db.dao.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * Declares the {@link Column} of a field as reference to the primary key of
+ * another model. The column gets a <code>REFERENCES</code> clause and an index,
+ * unless the field is {@link Indexed} itself. SQLite only enforces the
+ * constraint while <code>PRAGMA foreign_keys</code> is on.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = ElementType.FIELD)
+public @interface ForeignKey {
+
+	/** The referenced model. */
+	Class<? extends DbModel> value();
+
+	/** Action on deletion of the referenced row, e.g. <code>CASCADE</code>, none by default. */
+	String onDelete() default "";
+}
@@ -0,0 +1,25 @@
+package com.opendroid.db.dao.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An index over one or more columns, declared through {@link Table#indexes()}.
+ * Use {@link Indexed} for an index over a single column.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Index {
+
+	/** The index name, defaults to <code>idx_&lt;table&gt;_&lt;columns&gt;</code>. */
+	String name() default "";
+
+	/** The indexed column names, in index order. */
+	String[] columns();
+
+	boolean unique() default false;
+
+	/** Condition of a partial index, without the WHERE keyword. Needs SQLite 3.8.0 (API 21). */
+	String where() default "";
+}
@@ -0,0 +1,22 @@
+package com.opendroid.db.dao.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indexes the {@link Column} of a field.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = ElementType.FIELD)
+public @interface Indexed {
+
+	/** The index name, defaults to <code>idx_&lt;table&gt;_&lt;column&gt;</code>. */
+	String name() default "";
+
+	boolean unique() default false;
+
+	/** Condition of a partial index, without the WHERE keyword. Needs SQLite 3.8.0 (API 21). */
+	String where() default "";
+}
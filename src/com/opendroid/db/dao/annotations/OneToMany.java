@@ -0,0 +1,28 @@
+package com.opendroid.db.dao.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.opendroid.db.DbModel;
+
+/**
+ * Marks a <code>List</code> field holding the models referencing this model
+ * through their {@link ForeignKey} column. The field is not stored, it is
+ * filled by the finders of {@link com.opendroid.db.dao.BaseDAO} taking a
+ * {@link com.opendroid.db.dao.Fetch}, for a whole batch of models at once.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = ElementType.FIELD)
+public @interface OneToMany {
+
+	/** The referencing model. */
+	Class<? extends DbModel> model();
+
+	/** The column of the referencing model holding this model's id. */
+	String foreignKey();
+
+	/** Order of the children of one model, e.g. <code>"position"</code>. By primary key if empty. */
+	String orderBy() default "";
+}
@@ -26,4 +26,7 @@ import java.lang.annotation.Target;
 @Target(value = ElementType.TYPE)
 public @interface Table {
     String name();
+
+    /** Indexes over one or more columns, single columns can also use {@link Indexed}. */
+    Index[] indexes() default {};
 }
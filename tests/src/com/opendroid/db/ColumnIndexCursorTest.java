@@ -0,0 +1,80 @@
+package com.opendroid.db;
+
+import junit.framework.TestCase;
+import android.database.MatrixCursor;
+
+public class ColumnIndexCursorTest extends TestCase {
+
+	private static class CountingCursor extends MatrixCursor {
+		int lookups;
+
+		CountingCursor(String[] columnNames) {
+			super(columnNames);
+		}
+
+		@Override
+		public int getColumnIndex(String columnName) {
+			lookups++;
+			return super.getColumnIndex(columnName);
+		}
+	}
+
+	private CountingCursor rows;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		rows = new CountingCursor(new String[] { "_id", "name" });
+		rows.addRow(new Object[] { 1, "a" });
+		rows.addRow(new Object[] { 2, "b" });
+		rows.addRow(new Object[] { 3, "c" });
+	}
+
+	public void testResolvesEveryColumnOnce() {
+		ColumnIndexCursor c = new ColumnIndexCursor(rows);
+		StringBuilder names = new StringBuilder();
+		while (c.moveToNext()) {
+			assertEquals(c.getPosition() + 1, c.getInt(c.getColumnIndex("_id")));
+			names.append(c.getString(c.getColumnIndex("name")));
+		}
+		assertEquals("abc", names.toString());
+		assertEquals(2, rows.lookups);
+	}
+
+	public void testCachesMissingColumns() {
+		ColumnIndexCursor c = new ColumnIndexCursor(rows);
+		assertEquals(-1, c.getColumnIndex("missing"));
+		assertEquals(-1, c.getColumnIndex("missing"));
+		assertEquals(1, rows.lookups);
+	}
+
+	public void testGetColumnIndexOrThrow() {
+		ColumnIndexCursor c = new ColumnIndexCursor(rows);
+		assertEquals(1, c.getColumnIndexOrThrow("name"));
+		try {
+			c.getColumnIndexOrThrow("missing");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(2, rows.lookups);
+	}
+
+	public void testCursorUtilsThroughWrapper() {
+		ColumnIndexCursor c = new ColumnIndexCursor(rows);
+		c.moveToLast();
+		assertEquals(3, CursorUtils.extractIntOrNull(c, "_id").intValue());
+		assertEquals("c", CursorUtils.extractStringOrNull(c, "name"));
+	}
+
+	public void testIndexBasedExtractors() {
+		int[] indexes = CursorUtils.columnIndexes(rows, "name", "missing", "_id");
+		assertEquals(1, indexes[0]);
+		assertEquals(-1, indexes[1]);
+		assertEquals(0, indexes[2]);
+		rows.moveToFirst();
+		assertEquals("a", CursorUtils.extractStringOrNull(rows, indexes[0]));
+		assertEquals(1, CursorUtils.extractIntOrNull(rows, indexes[2]).intValue());
+		assertEquals(3, rows.lookups);
+	}
+}
@@ -0,0 +1,156 @@
+package com.opendroid.db;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.test.AndroidTestCase;
+
+import com.opendroid.db.dao.BaseDAO;
+import com.opendroid.db.dao.DAOException;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Table;
+
+public class ReadConnectionPoolDatabaseTest extends AndroidTestCase {
+
+	private static final String DATABASE = "read_pool_test.db";
+
+	@Table(name = "entry")
+	public static class Entry implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "name", type = "TEXT")
+		String name;
+
+		Entry() {
+		}
+
+		Entry(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	public static class EntryDAO extends BaseDAO<Entry> {
+		public EntryDAO(Context context, DbHelper helper) {
+			super(context, helper);
+		}
+
+		SQLiteDatabase reader() {
+			return readDatabase();
+		}
+	}
+
+	private DbHelper helper;
+	private EntryDAO dao;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		getContext().deleteDatabase(DATABASE);
+		helper = DbHelper.init(getContext(), new DbConfiguration.Builder()
+				.setDatabaseName(DATABASE)
+				.setModels(Collections.<DbModel> singletonList(new Entry()))
+				.setWriteAheadLogging(true)
+				.setReadConnectionPoolSize(2)
+				.build());
+		dao = new EntryDAO(getContext(), helper);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (helper != null) {
+			helper.close();
+		}
+		getContext().deleteDatabase(DATABASE);
+		super.tearDown();
+	}
+
+	public void testConnectionsAreHandedOutRoundRobin() {
+		ReadConnectionPool pool = helper.getReadConnectionPool();
+		assertNotNull(pool);
+		assertEquals(2, pool.size());
+		Set<SQLiteDatabase> connections = new HashSet<SQLiteDatabase>();
+		for (int i = 0; i < 4; i++) {
+			SQLiteDatabase connection = helper.getReadableDatabase();
+			assertNotSame(helper.getSQLiteDatabase(), connection);
+			connections.add(connection);
+		}
+		assertEquals(2, connections.size());
+	}
+
+	public void testPoolConnectionsAreReadOnly() {
+		try {
+			helper.getReadableDatabase().execSQL("insert into entry (name) values ('x')");
+			fail();
+		} catch (SQLiteException e) {
+			// expected
+		}
+	}
+
+	public void testReadsSeeCommittedWrites() throws DAOException {
+		dao.create(new Entry("a"));
+		dao.create(new Entry("b"));
+		assertEquals(2, dao.findAll().size());
+		assertEquals(2, dao.findAll().size());
+	}
+
+	public void testTransactionReadsItsOwnWrites() throws DAOException {
+		SQLiteDatabase writer = helper.getSQLiteDatabase();
+		writer.beginTransaction();
+		try {
+			dao.create(new Entry("a"));
+			assertSame(writer, dao.reader());
+			assertEquals(1, dao.findAll().size());
+		} finally {
+			BaseDAO.endTransaction(writer);
+		}
+		assertNotSame(writer, dao.reader());
+		assertEquals(0, dao.findAll().size());
+	}
+
+	public void testReaderDoesNotWaitForOpenWriteTransaction() throws Exception {
+		dao.create(new Entry("a"));
+		SQLiteDatabase writer = helper.getSQLiteDatabase();
+		writer.beginTransaction();
+		try {
+			writer.execSQL("insert into entry (name) values ('b')");
+			final int[] count = { -1 };
+			Thread reader = new Thread() {
+				@Override
+				public void run() {
+					count[0] = dao.findAll().size();
+				}
+			};
+			reader.start();
+			reader.join(5000);
+			assertFalse(reader.isAlive());
+			assertEquals(1, count[0]);
+		} finally {
+			BaseDAO.endTransaction(writer);
+		}
+	}
+
+	public void testCloseClosesPool() {
+		SQLiteDatabase connection = helper.getReadableDatabase();
+		DbHelper closed = helper;
+		helper = null;
+		closed.close();
+		assertFalse(connection.isOpen());
+		assertNull(closed.getReadConnectionPool());
+	}
+}
@@ -0,0 +1,71 @@
+package com.opendroid.db;
+
+import java.util.Collections;
+import java.util.List;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+public class SchemaMigratorDatabaseTest extends AndroidTestCase {
+
+	private SQLiteDatabase db;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		db = SQLiteDatabase.create(null);
+		db.execSQL("CREATE TABLE post (_id INTEGER PRIMARY KEY, title VARCHAR(80), body TEXT, legacy TEXT)");
+		db.execSQL("CREATE TABLE comment (_id INTEGER PRIMARY KEY,"
+				+ " post_id INTEGER REFERENCES post(_id) ON DELETE CASCADE)");
+		for (int i = 1; i <= 3; i++) {
+			db.execSQL("INSERT INTO post (_id, title, body, legacy) VALUES (?, ?, ?, ?)",
+					new Object[] { i, "title " + i, "body " + i, "legacy" });
+			db.execSQL("INSERT INTO comment (post_id) VALUES (?)", new Object[] { i });
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		db.close();
+		super.tearDown();
+	}
+
+	private void migrate() {
+		List<DbModel> models = Collections.<DbModel> singletonList(new SchemaMigratorTest.Post());
+		db.beginTransaction();
+		try {
+			new SchemaMigrator(models, null, null).migrate(db, 1, 2);
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	public void testRebuildKeepsRowsAndReferences() {
+		migrate();
+		assertEquals(3, DatabaseUtils.longForQuery(db, "SELECT count(*) FROM post WHERE body IS NOT NULL", null));
+		assertEquals("title 2", DatabaseUtils.stringForQuery(db, "SELECT title FROM post WHERE _id = 2", null));
+		assertEquals(0, DatabaseUtils.longForQuery(db,
+				"SELECT count(*) FROM sqlite_master WHERE name LIKE '_migrating_%'", null));
+		String comment = DatabaseUtils.stringForQuery(db,
+				"SELECT sql FROM sqlite_master WHERE type = 'table' AND name = 'comment'", null);
+		assertTrue(comment, comment.contains("REFERENCES post(_id)"));
+		assertEquals(3, DatabaseUtils.longForQuery(db, "SELECT count(*) FROM comment", null));
+
+		db.execSQL("PRAGMA foreign_keys=ON");
+		db.execSQL("DELETE FROM post WHERE _id = 1");
+		assertEquals("the reference still cascades", 2,
+				DatabaseUtils.longForQuery(db, "SELECT count(*) FROM comment", null));
+	}
+
+	public void testRebuildRefusedWhileForeignKeysAreEnforced() {
+		db.execSQL("PRAGMA foreign_keys=ON");
+		try {
+			migrate();
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+		assertEquals(3, DatabaseUtils.longForQuery(db, "SELECT count(*) FROM comment", null));
+	}
+}
@@ -0,0 +1,110 @@
+package com.opendroid.db;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.opendroid.db.SchemaMigrator.LiveColumn;
+import com.opendroid.db.SchemaMigrator.TableDiff;
+import com.opendroid.db.dao.ColumnInfo;
+import com.opendroid.db.dao.TableMetadata;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Table;
+
+public class SchemaMigratorTest extends TestCase {
+
+	@Table(name = "post")
+	public static class Post implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "title", type = "VARCHAR", size = 80)
+		String title;
+		@Column(name = "body", type = "TEXT")
+		String body;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	private final ColumnInfo[] columns = TableMetadata.forClass(Post.class).getColumns();
+	private final Map<String, LiveColumn> live = new HashMap<String, LiveColumn>();
+
+	@Override
+	protected void setUp() {
+		live.put("_id", new LiveColumn("INTEGER", true));
+		live.put("title", new LiveColumn("varchar(80)", false));
+		live.put("body", new LiveColumn("TEXT", false));
+	}
+
+	public void testUnchangedTable() {
+		TableDiff diff = SchemaMigrator.diff(live, columns);
+		assertFalse(diff.rebuild);
+		assertTrue(diff.added.isEmpty());
+		assertEquals(Arrays.asList("_id", "title", "body"), diff.kept);
+		assertEquals("the live columns are not modified", 3, live.size());
+	}
+
+	public void testAddedColumn() {
+		live.remove("body");
+		TableDiff diff = SchemaMigrator.diff(live, columns);
+		assertFalse(diff.rebuild);
+		assertEquals(1, diff.added.size());
+		assertEquals("body", diff.added.get(0).getName());
+	}
+
+	public void testRemovedColumnRebuilds() {
+		live.put("legacy", new LiveColumn("TEXT", false));
+		TableDiff diff = SchemaMigrator.diff(live, columns);
+		assertTrue(diff.rebuild);
+		assertEquals(Arrays.asList("_id", "title", "body"), diff.kept);
+	}
+
+	public void testRetypedColumnRebuilds() {
+		live.put("title", new LiveColumn("VARCHAR(40)", false));
+		assertTrue(SchemaMigrator.diff(live, columns).rebuild);
+	}
+
+	public void testChangedPrimaryKeyRebuilds() {
+		live.put("_id", new LiveColumn("INTEGER", false));
+		assertTrue(SchemaMigrator.diff(live, columns).rebuild);
+		live.remove("_id");
+		TableDiff diff = SchemaMigrator.diff(live, columns);
+		assertTrue(diff.rebuild);
+		assertTrue("a missing id is not added", diff.added.isEmpty());
+	}
+
+	public void testRenameCreateStatement() {
+		assertEquals("CREATE TABLE _migrating_post (_id INTEGER PRIMARY KEY, title TEXT)",
+				SchemaMigrator.renameCreateStatement("CREATE TABLE post (_id INTEGER PRIMARY KEY, title TEXT)",
+						"post", "_migrating_post"));
+		assertEquals("create table if not exists _migrating_post(_id INTEGER)",
+				SchemaMigrator.renameCreateStatement("create table if not exists post(_id INTEGER)", "post",
+						"_migrating_post"));
+	}
+
+	public void testRenameCreateStatementOnlyRenamesTheTable() {
+		assertEquals("CREATE TABLE _migrating_post (_id INTEGER PRIMARY KEY, parent INTEGER REFERENCES post(_id))",
+				SchemaMigrator.renameCreateStatement(
+						"CREATE TABLE post (_id INTEGER PRIMARY KEY, parent INTEGER REFERENCES post(_id))", "post",
+						"_migrating_post"));
+	}
+
+	public void testRenameCreateStatementOfAnotherTable() {
+		try {
+			SchemaMigrator.renameCreateStatement("CREATE TABLE posts (_id INTEGER)", "post", "_migrating_post");
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.opendroid.db;
+
+import junit.framework.TestCase;
+
+public class StatementUtilsTest extends TestCase {
+
+	public void testInsertSql() {
+		assertEquals("INSERT INTO post (title,body) VALUES (?,?)",
+				StatementUtils.insertSql("post", new String[] { "title", "body" }));
+	}
+
+	public void testInsertSqlSingleColumn() {
+		assertEquals("INSERT INTO post (title) VALUES (?)", StatementUtils.insertSql("post", new String[] { "title" }));
+	}
+
+	public void testUpdateSqlBindsKeyLast() {
+		assertEquals("UPDATE post SET title = ?,body = ? WHERE _id = ?",
+				StatementUtils.updateSql("post", new String[] { "title", "body" }, "_id"));
+	}
+
+	public void testUpsertSql() {
+		assertEquals("INSERT INTO post (title,body,_id) VALUES (?,?,?)"
+				+ " ON CONFLICT(_id) DO UPDATE SET title = excluded.title,body = excluded.body",
+				StatementUtils.upsertSql("post", new String[] { "title", "body" }, "_id"));
+	}
+
+	public void testUpsertSqlWithoutValueColumns() {
+		assertEquals("INSERT INTO post (_id) VALUES (?) ON CONFLICT(_id) DO NOTHING",
+				StatementUtils.upsertSql("post", new String[0], "_id"));
+	}
+
+	public void testCreateIndexSqlDefaultName() {
+		assertEquals("CREATE INDEX IF NOT EXISTS idx_post_author_created ON post (author, created)",
+				StatementUtils.createIndexSql("post", null, new String[] { "author", "created" }, false, null));
+		assertEquals("CREATE INDEX IF NOT EXISTS idx_post_author ON post (author)",
+				StatementUtils.createIndexSql("post", "", new String[] { "author" }, false, ""));
+	}
+
+	public void testCreateUniquePartialIndexSql() {
+		assertEquals("CREATE UNIQUE INDEX IF NOT EXISTS post_slug ON post (slug) WHERE deleted = 0",
+				StatementUtils.createIndexSql("post", "post_slug", new String[] { "slug" }, true, "deleted = 0"));
+	}
+}
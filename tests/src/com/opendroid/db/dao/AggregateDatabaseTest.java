@@ -0,0 +1,139 @@
+package com.opendroid.db.dao;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.util.SparseIntArray;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Table;
+
+public class AggregateDatabaseTest extends AndroidTestCase {
+
+	@Table(name = "purchase")
+	public static class Purchase implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "customer", type = "INTEGER")
+		Integer customer;
+		@Column(name = "amount", type = "REAL")
+		Double amount;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	public static class PurchaseDAO extends BaseDAO<Purchase> {
+		public PurchaseDAO(Context context, SQLiteDatabase db) {
+			super(context, db);
+		}
+	}
+
+	private SQLiteDatabase db;
+	private PurchaseDAO dao;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		db = SQLiteDatabase.create(null);
+		dao = new PurchaseDAO(getContext(), db);
+		db.execSQL(dao.getMapper().getCreateTableStatement());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		db.close();
+		super.tearDown();
+	}
+
+	private void insert(Integer customer, Double amount) {
+		db.execSQL("INSERT INTO purchase (customer, amount) VALUES (?, ?)", new Object[] { customer, amount });
+	}
+
+	private void insertAll() {
+		insert(1, 10.0);
+		insert(1, 20.0);
+		insert(2, 5.0);
+		insert(3, null);
+		insert(null, 40.0);
+	}
+
+	public void testEmptyTable() throws DAOException {
+		assertEquals(0, dao.count());
+		assertFalse(dao.isNotEmpty());
+		assertFalse(dao.existsWhere("customer = ?", new String[] { "1" }));
+		assertTrue(Double.isNaN(dao.min("amount")));
+		assertTrue(Double.isNaN(dao.max("amount")));
+		assertTrue(Double.isNaN(dao.avg("amount")));
+		assertEquals(0.0, dao.sum("amount"));
+		assertEquals(0, dao.countBy("customer").size());
+	}
+
+	public void testCount() throws DAOException {
+		insertAll();
+		assertEquals(5, dao.count());
+		assertEquals(2, dao.countWhere("customer = ?", new String[] { "1" }));
+		assertEquals(0, dao.countWhere("customer = ?", new String[] { "9" }));
+		// the compiled statement is reused with other arguments
+		assertEquals(1, dao.countWhere("customer = ?", new String[] { "2" }));
+	}
+
+	public void testExists() throws DAOException {
+		insertAll();
+		assertTrue(dao.isNotEmpty());
+		assertTrue(dao.existsWhere("customer = ?", new String[] { "3" }));
+		assertFalse(dao.existsWhere("customer = ?", new String[] { "9" }));
+	}
+
+	public void testAggregatesSkipNulls() throws DAOException {
+		insertAll();
+		assertEquals(5.0, dao.min("amount"));
+		assertEquals(40.0, dao.max("amount"));
+		assertEquals(75.0, dao.sum("amount"));
+		assertEquals(18.75, dao.avg("amount"));
+	}
+
+	public void testAggregatesWithCondition() throws DAOException {
+		insertAll();
+		String[] args = new String[] { "1" };
+		assertEquals(10.0, dao.min("amount", "customer = ?", args));
+		assertEquals(20.0, dao.max("amount", "customer = ?", args));
+		assertEquals(30.0, dao.sum("amount", "customer = ?", args));
+		assertEquals(15.0, dao.avg("amount", "customer = ?", args));
+		assertTrue(Double.isNaN(dao.avg("amount", "customer = ?", new String[] { "3" })));
+		assertEquals(0.0, dao.sum("amount", "customer = ?", new String[] { "3" }));
+	}
+
+	public void testCountBy() throws DAOException {
+		insertAll();
+		SparseIntArray counts = dao.countBy("customer");
+		assertEquals(3, counts.size());
+		assertEquals(2, counts.get(1));
+		assertEquals(1, counts.get(2));
+		assertEquals(1, counts.get(3));
+		assertEquals(0, counts.get(9));
+
+		counts = dao.countBy("customer", "amount > ?", new String[] { "8" });
+		assertEquals(1, counts.size());
+		assertEquals(2, counts.get(1));
+	}
+
+	public void testInvalidColumn() {
+		try {
+			dao.sum("missing");
+			fail();
+		} catch (DAOException e) {
+			// expected
+		}
+	}
+}
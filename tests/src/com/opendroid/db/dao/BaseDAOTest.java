@@ -0,0 +1,40 @@
+package com.opendroid.db.dao;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class BaseDAOTest extends TestCase {
+
+	private static final int[] IDS = { 10, 11, 12, 13, 14, 15, 16, 17, 18, 19 };
+
+	public void testInArgsPadsWithLastId() {
+		assertEquals(Arrays.asList("10", "11", "12", "12"), Arrays.asList(BaseDAO.inArgs(IDS, 0, 3)));
+		assertEquals(Arrays.asList("13", "14", "15", "16", "17", "17", "17", "17"),
+				Arrays.asList(BaseDAO.inArgs(IDS, 3, 5)));
+	}
+
+	public void testInArgsPowerOfTwoIsNotPadded() {
+		assertEquals(Arrays.asList("10"), Arrays.asList(BaseDAO.inArgs(IDS, 0, 1)));
+		assertEquals(Arrays.asList("16", "17", "18", "19"), Arrays.asList(BaseDAO.inArgs(IDS, 6, 4)));
+	}
+
+	public void testInArgsSizes() {
+		for (int size = 1; size <= IDS.length; size++) {
+			int length = BaseDAO.inArgs(IDS, 0, size).length;
+			assertTrue(length >= size && length < size * 2);
+			assertEquals(0, length & (length - 1));
+		}
+	}
+
+	public void testInList() {
+		assertEquals("?", BaseDAO.inList(1));
+		assertEquals("?,?,?,?", BaseDAO.inList(4));
+		assertEquals("", BaseDAO.inList(0));
+	}
+
+	public void testInListMatchesInArgs() {
+		String[] args = BaseDAO.inArgs(IDS, 0, 6);
+		assertEquals(args.length, BaseDAO.inList(args.length).split(",").length);
+	}
+}
@@ -0,0 +1,96 @@
+package com.opendroid.db.dao;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class CsvReaderTest extends TestCase {
+
+	private final List<String> fields = new ArrayList<String>();
+
+	private List<List<String>> readAll(Reader in, char separator) throws IOException {
+		CsvReader reader = new CsvReader(in, separator);
+		List<List<String>> records = new ArrayList<List<String>>();
+		while (reader.read(fields)) {
+			records.add(new ArrayList<String>(fields));
+		}
+		return records;
+	}
+
+	private List<List<String>> readAll(String csv) throws IOException {
+		return readAll(new StringReader(csv), ',');
+	}
+
+	private static List<String> record(String... fields) {
+		return Arrays.asList(fields);
+	}
+
+	public void testRecords() throws IOException {
+		assertEquals(Arrays.asList(record("id", "title"), record("1", "first"), record("2", "second")),
+				readAll("id,title\n1,first\r\n2,second"));
+	}
+
+	public void testEmptyFields() throws IOException {
+		assertEquals(Arrays.asList(record(null, "", null)), readAll(",\"\",\n"));
+	}
+
+	public void testBlankLine() throws IOException {
+		assertEquals(Arrays.asList(record("a"), record((String) null), record("b")), readAll("a\n\nb\n"));
+	}
+
+	public void testQuotedFields() throws IOException {
+		assertEquals(Arrays.asList(record("a,b", "say \"hi\"", "two\nlines", "cr\r\n")),
+				readAll("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",\"cr\r\n\"\n"));
+	}
+
+	public void testSeparator() throws IOException {
+		assertEquals(Arrays.asList(record("a,b", "c")), readAll(new StringReader("a,b\tc\n"), '\t'));
+	}
+
+	public void testLineNumbersCountQuotedLineBreaks() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("a\n\"b\nc\"\nd\n"), ',');
+		assertTrue(reader.read(fields));
+		assertEquals(1, reader.getLine());
+		assertTrue(reader.read(fields));
+		assertEquals(3, reader.getLine());
+		assertTrue(reader.read(fields));
+		assertEquals(4, reader.getLine());
+		assertFalse(reader.read(fields));
+	}
+
+	public void testUnterminatedQuote() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("a\n\"open,field\n"), ',');
+		assertTrue(reader.read(fields));
+		try {
+			reader.read(fields);
+			fail();
+		} catch (IOException expected) {
+		}
+	}
+
+	public void testReadsAcrossBufferBoundaries() throws IOException {
+		// hands out one char per read, so every quote is peeked at a refill
+		Reader slow = new StringReader("\"x\"\"y\",z\n") {
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				return super.read(buffer, offset, Math.min(1, length));
+			}
+		};
+		assertEquals(Arrays.asList(record("x\"y", "z")), readAll(slow, ','));
+	}
+
+	public void testLongInput() throws IOException {
+		StringBuilder csv = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			csv.append(i).append(",\"value ").append(i).append("\"\n");
+		}
+		List<List<String>> records = readAll(csv.toString());
+		assertEquals(2000, records.size());
+		assertEquals(record("1999", "value 1999"), records.get(1999));
+	}
+}
@@ -0,0 +1,151 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import junit.framework.TestCase;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Table;
+
+public class CursorIteratorTest extends TestCase {
+
+	@Table(name = "item")
+	public static class Item implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "name", type = "TEXT")
+		String name;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	private static final RowMapper<String> NAMES = new RowMapper<String>() {
+		@Override
+		public String mapRow(Cursor c) {
+			return c.getString(1);
+		}
+	};
+
+	// maps rows of hand-made cursors, never touches the database
+	private final BaseDAO<Item> dao = new BaseDAO<Item>(null, (SQLiteDatabase) null) {
+	};
+
+	private static MatrixCursor rows(int count) {
+		MatrixCursor c = new MatrixCursor(new String[] { "_id", "name" });
+		for (int i = 1; i <= count; i++) {
+			c.addRow(new Object[] { i, "item" + i });
+		}
+		return c;
+	}
+
+	public void testIteratesAllRowsAndCloses() {
+		MatrixCursor c = rows(3);
+		CursorIterator<String> it = new CursorIterator<String>(c, NAMES);
+		List<String> names = new ArrayList<String>();
+		while (it.hasNext()) {
+			names.add(it.next());
+		}
+		assertEquals("[item1, item2, item3]", names.toString());
+		assertTrue(c.isClosed());
+		assertFalse(it.hasNext());
+	}
+
+	public void testEmptyCursorIsClosedOnFirstHasNext() {
+		MatrixCursor c = rows(0);
+		CursorIterator<String> it = new CursorIterator<String>(c, NAMES);
+		assertFalse(it.hasNext());
+		assertTrue(c.isClosed());
+		try {
+			it.next();
+			fail();
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	public void testNextWithoutHasNext() {
+		CursorIterator<String> it = new CursorIterator<String>(rows(2), NAMES);
+		assertEquals("item1", it.next());
+		assertEquals("item2", it.next());
+		try {
+			it.next();
+			fail();
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	public void testRepeatedHasNextDoesNotSkipRows() {
+		CursorIterator<String> it = new CursorIterator<String>(rows(2), NAMES);
+		assertTrue(it.hasNext());
+		assertTrue(it.hasNext());
+		assertEquals("item1", it.next());
+		assertTrue(it.hasNext());
+		assertEquals("item2", it.next());
+	}
+
+	public void testCloseEarly() {
+		MatrixCursor c = rows(3);
+		CursorIterator<String> it = new CursorIterator<String>(c, NAMES);
+		assertEquals("item1", it.next());
+		it.close();
+		assertTrue(c.isClosed());
+		assertFalse(it.hasNext());
+		it.close();
+	}
+
+	public void testRemoveIsUnsupported() {
+		CursorIterator<String> it = new CursorIterator<String>(rows(1), NAMES);
+		it.next();
+		try {
+			it.remove();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	public void testForEachStopsAndCloses() {
+		MatrixCursor c = rows(5);
+		final List<String> names = new ArrayList<String>();
+		int count = dao.forEach(c, new RowCallback<Item>() {
+			@Override
+			public boolean onRow(Item model) {
+				names.add(model.id + ":" + model.name);
+				return model.id < 2;
+			}
+		});
+		assertEquals(2, count);
+		assertEquals("[1:item1, 2:item2]", names.toString());
+		assertTrue(c.isClosed());
+	}
+
+	public void testForEachEmptyCursor() {
+		MatrixCursor c = rows(0);
+		int count = dao.forEach(c, new RowCallback<Item>() {
+			@Override
+			public boolean onRow(Item model) {
+				fail();
+				return false;
+			}
+		});
+		assertEquals(0, count);
+		assertTrue(c.isClosed());
+	}
+}
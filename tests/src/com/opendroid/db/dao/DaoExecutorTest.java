@@ -0,0 +1,144 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class DaoExecutorTest extends TestCase {
+
+	private final DaoExecutor writer = new DaoExecutor("test-writer", 1);
+
+	@Override
+	protected void tearDown() throws Exception {
+		writer.shutdown();
+		super.tearDown();
+	}
+
+	/**
+	 * Waits until every submitted operation was counted as completed.
+	 */
+	private boolean awaitCompleted() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (writer.getCompletedCount() < writer.getSubmittedCount()) {
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+	private static DaoExecutor.Operation<Integer> append(final List<Integer> order, final int value) {
+		return new DaoExecutor.Operation<Integer>() {
+			@Override
+			Integer run(Future<Integer> task) {
+				order.add(value);
+				return value;
+			}
+		};
+	}
+
+	private static DaoExecutor.Operation<Void> await(final CountDownLatch started, final CountDownLatch release) {
+		return new DaoExecutor.Operation<Void>() {
+			@Override
+			Void run(Future<Void> task) throws InterruptedException {
+				started.countDown();
+				release.await();
+				return null;
+			}
+		};
+	}
+
+	public void testRunsInSubmissionOrder() throws Exception {
+		List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		Future<Integer> last = null;
+		for (int i = 0; i < 100; i++) {
+			last = writer.submit(append(order, i), null);
+		}
+		assertEquals(Integer.valueOf(99), last.get(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Integer.valueOf(i), order.get(i));
+		}
+		assertEquals(100, writer.getSubmittedCount());
+		assertEquals(0, writer.getQueueDepth());
+		// counted after the result is set
+		assertTrue(awaitCompleted());
+		assertEquals(100, writer.getCompletedCount());
+	}
+
+	public void testCancelledOperationNeverRuns() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final List<Object> callbacks = Collections.synchronizedList(new ArrayList<Object>());
+		writer.submit(await(started, release), null);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Future<Integer> cancelled = writer.submit(append(order, 1), new DaoCallback<Integer>() {
+			@Override
+			public void onSuccess(Integer result) {
+				callbacks.add(result);
+			}
+
+			@Override
+			public void onError(Exception e) {
+				callbacks.add(e);
+			}
+		});
+		Future<Integer> next = writer.submit(append(order, 2), null);
+		assertEquals(2, writer.getQueueDepth());
+		assertTrue(cancelled.cancel(false));
+		assertEquals(1, writer.getQueueDepth());
+		release.countDown();
+		assertEquals(Integer.valueOf(2), next.get(5, TimeUnit.SECONDS));
+		assertEquals(Collections.singletonList(2), order);
+		assertTrue(callbacks.isEmpty());
+		try {
+			cancelled.get();
+			fail();
+		} catch (CancellationException expected) {
+		}
+	}
+
+	public void testCallbacks() throws Exception {
+		final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+		final CountDownLatch called = new CountDownLatch(2);
+		DaoCallback<Integer> callback = new DaoCallback<Integer>() {
+			@Override
+			public void onSuccess(Integer result) {
+				results.add(result);
+				called.countDown();
+			}
+
+			@Override
+			public void onError(Exception e) {
+				results.add(e);
+				called.countDown();
+			}
+		};
+		writer.submit(append(new ArrayList<Integer>(), 7), callback).get(5, TimeUnit.SECONDS);
+		Future<Integer> failing = writer.submit(new DaoExecutor.Operation<Integer>() {
+			@Override
+			Integer run(Future<Integer> task) throws DAOException {
+				throw new DAOException(new IllegalStateException("failed"));
+			}
+		}, callback);
+		try {
+			failing.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException expected) {
+			assertTrue(expected.getCause() instanceof DAOException);
+		}
+		// callbacks run after get() returned
+		assertTrue(called.await(5, TimeUnit.SECONDS));
+		assertEquals(2, results.size());
+		assertEquals(Integer.valueOf(7), results.get(0));
+		assertTrue(results.get(1) instanceof DAOException);
+	}
+}
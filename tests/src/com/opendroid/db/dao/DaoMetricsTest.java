@@ -0,0 +1,48 @@
+package com.opendroid.db.dao;
+
+import junit.framework.TestCase;
+
+public class DaoMetricsTest extends TestCase {
+
+	static class First {
+		static class PostDAO {
+		}
+	}
+
+	static class Second {
+		static class PostDAO {
+		}
+	}
+
+	private final DaoMetrics metrics = new DaoMetrics();
+
+	public void testOperationsPerDaoClass() {
+		metrics.onOperation(First.PostDAO.class, "findAll", 2000, 3);
+		metrics.onOperation(First.PostDAO.class, "findAll", 4000, 2);
+		assertEquals(2, metrics.getLatency(First.PostDAO.class, "findAll").getCount());
+		assertEquals(5, metrics.getRows(First.PostDAO.class, "findAll"));
+		assertNull(metrics.getLatency(First.PostDAO.class, "create"));
+		assertEquals(0, metrics.getRows(First.PostDAO.class, "create"));
+	}
+
+	public void testDaoClassesWithSameSimpleNameAreKeptApart() {
+		metrics.onOperation(First.PostDAO.class, "findAll", 2000, 3);
+		metrics.onOperation(Second.PostDAO.class, "findAll", 2000, 7);
+		assertEquals(1, metrics.getLatency(First.PostDAO.class, "findAll").getCount());
+		assertEquals(3, metrics.getRows(First.PostDAO.class, "findAll"));
+		assertEquals(7, metrics.getRows(Second.PostDAO.class, "findAll"));
+	}
+
+	public void testCursorOpenTimes() {
+		metrics.onCursorClosed(First.PostDAO.class, "select 1", 5000, 1);
+		assertEquals(1, metrics.getCursorOpenTime(First.PostDAO.class).getCount());
+		assertNull(metrics.getCursorOpenTime(Second.PostDAO.class));
+	}
+
+	public void testReset() {
+		metrics.onOperation(First.PostDAO.class, "findAll", 2000, 3);
+		metrics.reset();
+		assertNull(metrics.getLatency(First.PostDAO.class, "findAll"));
+		assertEquals("", metrics.toString());
+	}
+}
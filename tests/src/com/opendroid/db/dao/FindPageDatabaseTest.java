@@ -0,0 +1,117 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Table;
+
+public class FindPageDatabaseTest extends AndroidTestCase {
+
+	@Table(name = "ranked")
+	public static class Ranked implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "rank", type = "INTEGER")
+		Integer rank;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	public static class RankedDAO extends BaseDAO<Ranked> {
+		public RankedDAO(Context context, SQLiteDatabase db) {
+			super(context, db);
+		}
+	}
+
+	private SQLiteDatabase db;
+	private RankedDAO dao;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		db = SQLiteDatabase.create(null);
+		dao = new RankedDAO(getContext(), db);
+		db.execSQL(dao.getMapper().getCreateTableStatement());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		db.close();
+		super.tearDown();
+	}
+
+	private void insert(int rows) {
+		for (int i = 1; i <= rows; i++) {
+			db.execSQL("INSERT INTO ranked (_id, rank) VALUES (?, ?)", new Object[] { i, i % 3 });
+		}
+	}
+
+	private static List<Integer> ids(Page<Ranked> page) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (Ranked row : page.getItems()) {
+			ids.add(row.id);
+		}
+		return ids;
+	}
+
+	public void testEmptyTable() throws DAOException {
+		Page<Ranked> page = dao.findPage(null, 10);
+		assertTrue(page.getItems().isEmpty());
+		assertFalse(page.hasNext());
+		assertFalse(dao.findPage("rank", false, null, 10, null).hasNext());
+	}
+
+	public void testTableSmallerThanOnePage() throws DAOException {
+		insert(3);
+		Page<Ranked> page = dao.findPage(null, 10);
+		assertEquals(3, page.getItems().size());
+		assertFalse(page.hasNext());
+	}
+
+	public void testShortLastPage() throws DAOException {
+		insert(7);
+		Page<Ranked> page = dao.findPage(null, 3);
+		List<Integer> read = ids(page);
+		while (page.hasNext()) {
+			page = page.next();
+			read.addAll(ids(page));
+		}
+		assertEquals(1, page.getItems().size());
+		assertEquals(7, read.size());
+		assertEquals(Integer.valueOf(7), read.get(6));
+	}
+
+	public void testExactMultipleEndsWithoutEmptyPage() throws DAOException {
+		insert(6);
+		Page<Ranked> page = dao.findPage(null, 3);
+		assertTrue(page.hasNext());
+		page = page.next();
+		assertEquals(3, page.getItems().size());
+		assertFalse(page.hasNext());
+	}
+
+	public void testShortPageOrderedByColumn() throws DAOException {
+		insert(5);
+		Page<Ranked> page = dao.findPage("rank", true, null, 4, null);
+		assertTrue(page.hasNext());
+		page = page.next();
+		assertEquals(1, page.getItems().size());
+		assertFalse(page.hasNext());
+	}
+}
@@ -0,0 +1,108 @@
+package com.opendroid.db.dao;
+
+import java.util.Collections;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+import com.opendroid.db.DbConfiguration;
+import com.opendroid.db.DbHelper;
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Table;
+
+public class IdentityCacheDatabaseTest extends AndroidTestCase {
+
+	private static final String DATABASE = "identity_cache_test.db";
+
+	@Table(name = "tag")
+	public static class Tag implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "name", type = "TEXT")
+		String name;
+
+		Tag() {
+		}
+
+		Tag(int id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	public static class TagDAO extends BaseDAO<Tag> {
+		public TagDAO(Context context, SQLiteDatabase db) {
+			super(context, db);
+		}
+	}
+
+	private DbHelper helper;
+	private TagDAO dao;
+	private int id;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		getContext().deleteDatabase(DATABASE);
+		helper = DbHelper.init(getContext(), new DbConfiguration.Builder()
+				.setDatabaseName(DATABASE)
+				.setModels(Collections.<DbModel> singletonList(new Tag()))
+				.setIdentityCacheSize(TagDAO.class, 10)
+				.build());
+		dao = new TagDAO(getContext(), helper.getSQLiteDatabase());
+		Tag tag = new Tag(0, "committed");
+		dao.create(tag);
+		id = tag.id;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		helper.close();
+		getContext().deleteDatabase(DATABASE);
+		super.tearDown();
+	}
+
+	public void testRolledBackUpdateIsNotCached() throws DAOException {
+		SQLiteDatabase db = helper.getSQLiteDatabase();
+		db.beginTransaction();
+		try {
+			dao.update(new Tag(id, "rolled back"));
+			assertEquals("rolled back", dao.findById(id).name);
+		} finally {
+			db.endTransaction();
+		}
+		assertEquals("committed", dao.findById(id).name);
+	}
+
+	public void testRolledBackCreateIsNotCached() throws DAOException {
+		SQLiteDatabase db = helper.getSQLiteDatabase();
+		Tag tag = new Tag(0, "rolled back");
+		db.beginTransaction();
+		try {
+			dao.create(tag);
+		} finally {
+			db.endTransaction();
+		}
+		assertNull(dao.findById(tag.id));
+	}
+
+	public void testCommittedUpdateIsCached() throws DAOException {
+		Tag tag = new Tag(id, "updated");
+		dao.update(tag);
+		assertSame(tag, dao.findById(id));
+	}
+}
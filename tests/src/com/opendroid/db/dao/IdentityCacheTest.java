@@ -0,0 +1,65 @@
+package com.opendroid.db.dao;
+
+import junit.framework.TestCase;
+
+public class IdentityCacheTest extends TestCase {
+
+	public void testEvictsLeastRecentlyUsed() {
+		IdentityCache<String> cache = new IdentityCache<String>(2);
+		cache.put(1, "one");
+		cache.put(2, "two");
+		assertEquals("one", cache.get(1));
+		cache.put(3, "three");
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.get(2));
+		assertEquals("one", cache.get(1));
+		assertEquals("three", cache.get(3));
+	}
+
+	public void testPutReplacesWithoutEviction() {
+		IdentityCache<String> cache = new IdentityCache<String>(2);
+		cache.put(1, "one");
+		cache.put(1, "uno");
+		cache.put(2, "two");
+		assertEquals(0, cache.getEvictionCount());
+		assertEquals("uno", cache.get(1));
+	}
+
+	public void testRemoveAndClear() {
+		IdentityCache<String> cache = new IdentityCache<String>(4);
+		cache.put(1, "one");
+		cache.put(2, "two");
+		cache.remove(1);
+		assertNull(cache.get(1));
+		assertEquals(1, cache.size());
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	public void testCounters() {
+		IdentityCache<String> cache = new IdentityCache<String>(4);
+		assertEquals(0.0, cache.getHitRatio());
+		cache.put(1, "one");
+		cache.get(1);
+		cache.get(1);
+		cache.get(1);
+		cache.get(2);
+		assertEquals(3, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.75, cache.getHitRatio(), 1e-9);
+		assertEquals(4, cache.getMaxSize());
+	}
+
+	public void testForDaoSharesOneCachePerClass() {
+		IdentityCache<String> first = IdentityCache.forDao(IdentityCacheTest.class, 8);
+		IdentityCache<String> second = IdentityCache.forDao(IdentityCacheTest.class, 16);
+		assertSame(first, second);
+		assertEquals(8, second.getMaxSize());
+		assertNotSame(first, IdentityCache.forDao(String.class, 8));
+		first.put(1, "one");
+		IdentityCache.clearAll();
+		assertEquals(0, second.size());
+	}
+}
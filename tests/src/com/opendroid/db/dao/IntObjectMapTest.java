@@ -0,0 +1,101 @@
+package com.opendroid.db.dao;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class IntObjectMapTest extends TestCase {
+
+	public void testPutAndGet() {
+		IntObjectMap<String> map = new IntObjectMap<String>();
+		assertTrue(map.isEmpty());
+		assertNull(map.put(1, "one"));
+		assertNull(map.put(2, "two"));
+		assertEquals("one", map.get(1));
+		assertEquals("two", map.get(2));
+		assertNull(map.get(3));
+		assertTrue(map.containsKey(1));
+		assertFalse(map.containsKey(3));
+		assertEquals(2, map.size());
+	}
+
+	public void testReplaceKeepsPosition() {
+		IntObjectMap<String> map = new IntObjectMap<String>();
+		map.put(5, "a");
+		map.put(3, "b");
+		assertEquals("a", map.put(5, "c"));
+		assertEquals(2, map.size());
+		assertEquals(5, map.keyAt(0));
+		assertEquals("c", map.valueAt(0));
+		assertEquals(3, map.keyAt(1));
+	}
+
+	public void testNullValue() {
+		IntObjectMap<String> map = new IntObjectMap<String>();
+		map.put(1, null);
+		assertTrue(map.containsKey(1));
+		assertNull(map.get(1));
+		assertEquals(1, map.size());
+	}
+
+	public void testZeroAndNegativeKeys() {
+		IntObjectMap<String> map = new IntObjectMap<String>();
+		map.put(0, "zero");
+		map.put(-1, "minus one");
+		map.put(Integer.MIN_VALUE, "min");
+		assertEquals("zero", map.get(0));
+		assertEquals("minus one", map.get(-1));
+		assertEquals("min", map.get(Integer.MIN_VALUE));
+		assertFalse(map.containsKey(1));
+	}
+
+	public void testGrowKeepsOrder() {
+		IntObjectMap<Integer> map = new IntObjectMap<Integer>(1);
+		for (int i = 0; i < 1000; i++) {
+			map.put(i * 31, i);
+		}
+		assertEquals(1000, map.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i * 31, map.keyAt(i));
+			assertEquals(Integer.valueOf(i), map.get(i * 31));
+		}
+		assertFalse(map.containsKey(1));
+	}
+
+	public void testCollidingKeys() {
+		// keys a table size apart share their low bits
+		IntObjectMap<Integer> map = new IntObjectMap<Integer>();
+		for (int i = 0; i < 64; i++) {
+			map.put(i << 16, i);
+		}
+		for (int i = 0; i < 64; i++) {
+			assertEquals(Integer.valueOf(i), map.get(i << 16));
+		}
+	}
+
+	public void testKeysAndValues() {
+		IntObjectMap<String> map = new IntObjectMap<String>();
+		map.put(9, "nine");
+		map.put(4, "four");
+		map.put(7, "seven");
+		assertTrue(Arrays.equals(new int[] { 9, 4, 7 }, map.keys()));
+		assertEquals(Arrays.asList("nine", "four", "seven"), map.values());
+		assertEquals("{9=nine, 4=four, 7=seven}", map.toString());
+		assertEquals("{}", new IntObjectMap<String>().toString());
+	}
+
+	public void testIndexOutOfBounds() {
+		IntObjectMap<String> map = new IntObjectMap<String>();
+		map.put(1, "one");
+		try {
+			map.keyAt(1);
+			fail();
+		} catch (IndexOutOfBoundsException expected) {
+		}
+		try {
+			map.valueAt(-1);
+			fail();
+		} catch (IndexOutOfBoundsException expected) {
+		}
+	}
+}
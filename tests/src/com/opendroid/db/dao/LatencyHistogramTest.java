@@ -0,0 +1,51 @@
+package com.opendroid.db.dao;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	public void testEmpty() {
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMeanMicros());
+		assertEquals(0, histogram.getPercentileMicros(99));
+	}
+
+	public void testBuckets() {
+		histogram.record(500);
+		histogram.record(1500);
+		histogram.record(3000);
+		histogram.record(1000000);
+		histogram.record(Long.MAX_VALUE);
+		long[] buckets = histogram.getBuckets();
+		assertEquals(32, buckets.length);
+		assertEquals(1, buckets[0]);
+		assertEquals(1, buckets[1]);
+		assertEquals(1, buckets[2]);
+		assertEquals("1000us is below 2^10us", 1, buckets[10]);
+		assertEquals("overflowing latencies land in the last bucket", 1, buckets[31]);
+	}
+
+	public void testPercentiles() {
+		for (int i = 0; i < 9; i++) {
+			histogram.record(1000);
+		}
+		histogram.record(1000000);
+		assertEquals(10, histogram.getCount());
+		assertEquals(100, histogram.getMeanMicros());
+		assertEquals(1000, histogram.getMaxMicros());
+		assertEquals(2, histogram.getPercentileMicros(50));
+		assertEquals(2, histogram.getPercentileMicros(90));
+		assertEquals("capped at the maximum", 1000, histogram.getPercentileMicros(99));
+		assertEquals(2, histogram.getPercentileMicros(0));
+	}
+
+	public void testReset() {
+		histogram.record(1000);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMaxMicros());
+		assertEquals(0, histogram.getBuckets()[1]);
+	}
+}
@@ -0,0 +1,130 @@
+package com.opendroid.db.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import android.database.Cursor;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Table;
+
+public class ModelCopierTest extends TestCase {
+
+	public static class Base implements DbModel {
+		int id;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	public static class Note extends Base {
+		static int instances;
+		final int serial = ++instances;
+		String text;
+	}
+
+	@Table(name = "post")
+	public static class Post implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "title", type = "TEXT")
+		String title;
+		@Column(name = "body", type = "TEXT")
+		String body;
+		String draft;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Cursor holding the given columns, only answering column lookups.
+	 */
+	private static Cursor cursor(String... columns) {
+		final List<String> names = Arrays.asList(columns);
+		return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(), new Class<?>[] { Cursor.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getColumnIndex")) {
+							return names.indexOf(args[0]);
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	public void testCopiesAllFieldsOfPlainModels() {
+		RowFiller<Note> filler = new ModelCopier<Note>(new RowMapper<Note>() {
+			@Override
+			public Note mapRow(Cursor c) {
+				Note note = new Note();
+				note.id = 7;
+				note.text = "mapped";
+				return note;
+			}
+		});
+		Note into = new Note();
+		into.text = "old";
+		int serial = into.serial;
+		filler.fill(null, into);
+		assertEquals(7, into.id);
+		assertEquals("mapped", into.text);
+		assertEquals(serial, into.serial);
+	}
+
+	public void testCopiesColumnsReadByTheCursor() {
+		RowFiller<Post> filler = new ModelCopier<Post>(new RowMapper<Post>() {
+			@Override
+			public Post mapRow(Cursor c) {
+				Post post = new Post();
+				post.id = 3;
+				post.title = "title";
+				return post;
+			}
+		});
+		Post into = new Post();
+		into.body = "kept";
+		into.draft = "kept";
+		filler.fill(cursor("_id", "title"), into);
+		assertEquals(3, into.id);
+		assertEquals("title", into.title);
+		assertEquals("kept", into.body);
+		assertEquals("kept", into.draft);
+	}
+
+	public void testRejectsOtherClasses() {
+		RowFiller<Base> filler = new ModelCopier<Base>(new RowMapper<Base>() {
+			@Override
+			public Base mapRow(Cursor c) {
+				return new Base();
+			}
+		});
+		try {
+			filler.fill(null, new Note());
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+public class PageTest extends TestCase {
+
+	private final List<Runnable> tasks = new ArrayList<Runnable>();
+	private final List<String> loaded = new ArrayList<String>();
+
+	private final Executor executor = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+	};
+
+	private final Page.Loader<String> loader = new Page.Loader<String>() {
+		@Override
+		public Page<String> load(String token) {
+			loaded.add(token);
+			int next = Integer.parseInt(token) + 1;
+			return page(next < 5 ? Integer.toString(next) : null);
+		}
+	};
+
+	private Page<String> page(String token) {
+		return new Page<String>(Collections.<String> emptyList(), token, loader, executor);
+	}
+
+	public void testPrefetchesOnePageAhead() throws DAOException {
+		Page<String> page = page("1");
+		page.startPrefetch();
+		page.startPrefetch();
+		assertEquals(1, tasks.size());
+
+		tasks.remove(0).run();
+		assertEquals(Collections.singletonList("1"), loaded);
+		assertTrue("a prefetched page must not prefetch on its own", tasks.isEmpty());
+
+		Page<String> next = page.next();
+		assertEquals("2", next.getContinuationToken());
+		assertEquals(1, tasks.size());
+		assertEquals(Collections.singletonList("1"), loaded);
+	}
+
+	public void testLoadsWithoutExecutor() throws DAOException {
+		Page<String> page = new Page<String>(Collections.<String> emptyList(), "3", loader, null);
+		page.startPrefetch();
+		assertTrue(tasks.isEmpty());
+		Page<String> next = page.next();
+		assertEquals(Collections.singletonList("3"), loaded);
+		assertEquals("4", next.getContinuationToken());
+	}
+
+	public void testLastPage() throws DAOException {
+		Page<String> page = page(null);
+		page.startPrefetch();
+		assertTrue(tasks.isEmpty());
+		assertFalse(page.hasNext());
+		assertNull(page.next());
+	}
+}
@@ -0,0 +1,73 @@
+package com.opendroid.db.dao;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class PageTokenTest extends TestCase {
+
+	public void testIdToken() {
+		PageToken token = PageToken.parse(PageToken.format("42"), true);
+		assertEquals("_id > ?", token.where("_id", "_id", true, false));
+		assertEquals("_id < ?", token.where("_id", "_id", true, true));
+		assertEquals(Arrays.asList("42"), Arrays.asList(token.args(true)));
+	}
+
+	public void testFormat() {
+		assertEquals("7:i12", PageToken.format("7", PageToken.INTEGER, "12"));
+		assertEquals("7:tabc:d", PageToken.format("7", PageToken.TEXT, "abc:d"));
+		assertEquals("7:n", PageToken.format("7", PageToken.NULL, null));
+	}
+
+	public void testRealKeepsEveryDigit() {
+		double value = 0.1 + 0.2;
+		String token = PageToken.format("7", PageToken.REAL, PageToken.formatReal(value));
+		String[] args = PageToken.parse(token, false).args(false);
+		assertEquals(value, Double.parseDouble(args[0]));
+		assertEquals("9e999", PageToken.formatReal(Double.POSITIVE_INFINITY));
+		assertEquals("-9e999", PageToken.formatReal(Double.NEGATIVE_INFINITY));
+	}
+
+	public void testBlobKeyRejected() {
+		try {
+			PageToken.format("7", "blob", null);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testTextKeyAscending() {
+		PageToken token = PageToken.parse("7:tabc:d", false);
+		assertEquals("title >= ? and (title > ? or _id > ?)", token.where("title", "_id", false, false));
+		assertEquals(Arrays.asList("abc:d", "abc:d", "7"), Arrays.asList(token.args(false)));
+	}
+
+	public void testTypedKeysAreCast() {
+		assertEquals("score >= cast(? as real) and (score > cast(? as real) or _id > ?)",
+				PageToken.parse("7:r1.5", false).where("score", "_id", false, false));
+		assertEquals("(rank <= cast(? as integer) and (rank < cast(? as integer) or _id < ?)) or rank is null",
+				PageToken.parse("7:i3", false).where("rank", "_id", false, true));
+	}
+
+	public void testNullKey() {
+		PageToken token = PageToken.parse("7:n", false);
+		assertEquals("(title is null and _id > ?) or title is not null", token.where("title", "_id", false, false));
+		assertEquals("title is null and _id < ?", token.where("title", "_id", false, true));
+		assertEquals(Arrays.asList("7"), Arrays.asList(token.args(false)));
+	}
+
+	public void testEmptyTextKey() {
+		PageToken token = PageToken.parse("7:t", false);
+		assertEquals(Arrays.asList("", "", "7"), Arrays.asList(token.args(false)));
+	}
+
+	public void testInvalidTokens() {
+		for (String token : new String[] { "abc", "7", "7:", "7:x1", "7:null" }) {
+			try {
+				PageToken.parse(token, false);
+				fail(token);
+			} catch (IllegalArgumentException expected) {
+			}
+		}
+	}
+}
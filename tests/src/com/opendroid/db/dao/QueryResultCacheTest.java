@@ -0,0 +1,95 @@
+package com.opendroid.db.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class QueryResultCacheTest extends TestCase {
+
+	private static final String SQL = "select * from post where author = ?";
+
+	private QueryResultCache cache;
+	private static int tables;
+	private String table;
+
+	@Override
+	protected void setUp() {
+		cache = new QueryResultCache();
+		cache.setBudget(100);
+		table = "post_" + ++tables;
+	}
+
+	private static QueryResultCache.Rows rows(int count) {
+		List<Object[]> values = new ArrayList<Object[]>();
+		for (int i = 0; i < count; i++) {
+			values.add(new Object[] { Long.valueOf(i) });
+		}
+		return new QueryResultCache.Rows(new String[] { "_id" }, values);
+	}
+
+	public void testNormalize() {
+		assertEquals("select * from post where title = ' a  b '",
+				QueryResultCache.normalize("  select *\n\tfrom  post where title = ' a  b ' "));
+	}
+
+	public void testKeyIncludesOwner() {
+		QueryResultCache.Key key = new QueryResultCache.Key(String.class, SQL, new String[] { "1" });
+		assertEquals(key, new QueryResultCache.Key(String.class, " " + SQL, new String[] { "1" }));
+		assertFalse(key.equals(new QueryResultCache.Key(Integer.class, SQL, new String[] { "1" })));
+		assertFalse(key.equals(new QueryResultCache.Key(String.class, SQL, new String[] { "2" })));
+		assertFalse(key.equals(new QueryResultCache.Key(String.class, SQL, null)));
+	}
+
+	public void testOwnersDoNotShareEntries() {
+		QueryResultCache.Rows rows = rows(2);
+		cache.put(String.class, table, TableVersions.current(table), SQL, null, rows);
+		assertSame(rows, cache.get(String.class, table, SQL, null));
+		assertNull(cache.get(Integer.class, table, SQL, null));
+	}
+
+	public void testStaleAfterBump() {
+		cache.put(String.class, table, TableVersions.current(table), SQL, null, rows(1));
+		TableVersions.bump(table);
+		assertNull(cache.get(String.class, table, SQL, null));
+		assertEquals(1, cache.getStaleHitCount());
+		assertEquals(0, cache.size());
+	}
+
+	public void testBudget() {
+		cache.setBudget(5);
+		assertTrue(cache.accepts(4));
+		assertFalse(cache.accepts(5));
+		cache.put(String.class, table, TableVersions.current(table), SQL, new String[] { "1" }, rows(2));
+		cache.put(String.class, table, TableVersions.current(table), SQL, new String[] { "2" }, rows(2));
+		assertEquals(1, cache.size());
+		assertEquals(3, cache.getWeight());
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.get(String.class, table, SQL, new String[] { "1" }));
+	}
+
+	public void testNotCachedWhileUncommitted() {
+		Object transaction = new Object();
+		TableVersions.changedInTransaction(transaction, table);
+		assertFalse(TableVersions.isCommitted(table));
+		cache.put(String.class, table, TableVersions.current(table), SQL, null, rows(1));
+		assertEquals(0, cache.size());
+
+		long version = TableVersions.current(table);
+		TableVersions.transactionEnded(transaction);
+		assertTrue(TableVersions.isCommitted(table));
+		assertTrue("ending the transaction bumps the table", TableVersions.current(table) > version);
+		cache.put(String.class, table, TableVersions.current(table), SQL, null, rows(1));
+		assertEquals(1, cache.size());
+	}
+
+	public void testUncommittedCountedOncePerTransaction() {
+		Object transaction = new Object();
+		TableVersions.changedInTransaction(transaction, table);
+		TableVersions.changedInTransaction(transaction, table);
+		TableVersions.transactionEnded(new Object());
+		assertFalse(TableVersions.isCommitted(table));
+		TableVersions.transactionEnded(transaction);
+		assertTrue(TableVersions.isCommitted(table));
+	}
+}
@@ -0,0 +1,109 @@
+package com.opendroid.db.dao;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Table;
+
+public class QueryTest extends TestCase {
+
+	@Table(name = "task")
+	public static class Task implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "title", type = "TEXT")
+		String title;
+		@Column(name = "owner", type = "INTEGER")
+		int owner;
+		@Column(name = "done", type = "INTEGER")
+		boolean done;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	// only builds SQL, never touches the database
+	private final BaseDAO<Task> dao = new BaseDAO<Task>(null, (SQLiteDatabase) null) {
+	};
+
+	private static void assertArgs(Query<?> query, String... args) {
+		assertEquals(Arrays.asList(args), Arrays.asList(query.getArgs()));
+	}
+
+	public void testWithoutConditions() {
+		Query<Task> query = dao.queryBuilder();
+		assertEquals("select * from task", query.getSql());
+		assertArgs(query);
+	}
+
+	public void testConditionsAreBound() {
+		Query<Task> query = dao.queryBuilder().where("owner").eq(7).and("title").like("a%").or("done").eq(true);
+		assertEquals("select * from task where owner = ? and title like ? or done = ?", query.getSql());
+		assertArgs(query, "7", "a%", "1");
+	}
+
+	public void testOperators() {
+		Query<Task> query = dao.queryBuilder().where("owner").notEq(1).and("owner").lt(2).and("owner").le(3)
+				.and("owner").gt(4).and("owner").ge(5).and("owner").between(6, 9);
+		assertEquals("select * from task where owner <> ? and owner < ? and owner <= ? and owner > ?"
+				+ " and owner >= ? and owner between ? and ?", query.getSql());
+		assertArgs(query, "1", "2", "3", "4", "5", "6", "9");
+	}
+
+	public void testNullComparesWithIsNull() {
+		Query<Task> query = dao.queryBuilder().where("title").eq(null).and("owner").notEq(null);
+		assertEquals("select * from task where title is null and owner is not null", query.getSql());
+		assertArgs(query);
+	}
+
+	public void testNullCannotBeOrdered() {
+		try {
+			dao.queryBuilder().where("owner").lt(null);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testInLists() {
+		Query<Task> query = dao.queryBuilder().where("owner").in(1, 2, 3).and("_id").notIn(Arrays.asList(4));
+		assertEquals("select * from task where owner in (?, ?, ?) and _id not in (?)", query.getSql());
+		assertArgs(query, "1", "2", "3", "4");
+	}
+
+	public void testOrderLimitAndOffsetAreBound() {
+		Query<Task> query = dao.queryBuilder().where("done").eq(false).orderBy("owner").orderBy("_id", true)
+				.limit(20, 40);
+		assertEquals("select * from task where done = ? order by owner, _id desc limit ? offset ?", query.getSql());
+		assertArgs(query, "0", "20", "40");
+	}
+
+	public void testOffsetWithoutLimit() {
+		Query<Task> query = dao.queryBuilder().limit(-1, 10);
+		assertEquals("select * from task limit -1 offset ?", query.getSql());
+		assertArgs(query, "10");
+	}
+
+	public void testColumnsSelectPrimaryKey() {
+		assertEquals("select _id, title from task", dao.queryBuilder().columns("title").getSql());
+	}
+
+	public void testEqualShapesShareSql() {
+		String first = dao.queryBuilder().where("owner").eq(1).limit(10).getSql();
+		String second = dao.queryBuilder().where("owner").eq(2).limit(50).getSql();
+		assertSame(first, second);
+		assertNotSame(first, dao.queryBuilder().where("owner").in(1, 2).limit(10).getSql());
+	}
+}
@@ -0,0 +1,41 @@
+package com.opendroid.db.dao;
+
+import junit.framework.TestCase;
+
+public class StatementCacheTest extends TestCase {
+
+	private final StatementCache cache = new StatementCache(null, 2);
+
+	public void testSqlLookupsAreCountedSeparately() {
+		assertNull(cache.getSql("findById", null));
+		cache.putSql("findById", null, "select * from post where _id = ?");
+		assertEquals("select * from post where _id = ?", cache.getSql("findById", null));
+		assertEquals(1, cache.getSqlHitCount());
+		assertEquals(1, cache.getSqlMissCount());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+		assertEquals(0.0, cache.getHitRatio());
+	}
+
+	public void testStatementMissDoesNotCountAsSqlLookup() {
+		assertNull(cache.get("update", null));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0, cache.getSqlMissCount());
+	}
+
+	public void testSqlKeyedByField() {
+		cache.putSql("count", "author", "select count(*) from post where author = ?");
+		assertNull(cache.getSql("count", null));
+		assertNull(cache.getSql("count", "title"));
+		assertEquals("select count(*) from post where author = ?", cache.getSql("count", "author"));
+	}
+
+	public void testSqlEvictsLeastRecentlyUsed() {
+		cache.putSql("a", null, "a");
+		cache.putSql("b", null, "b");
+		cache.getSql("a", null);
+		cache.putSql("c", null, "c");
+		assertEquals("a", cache.getSql("a", null));
+		assertNull(cache.getSql("b", null));
+	}
+}
@@ -0,0 +1,56 @@
+package com.opendroid.db.dao;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TableExporterTest extends TestCase {
+
+	/**
+	 * Writes a row as the exporter does, NULL as an empty field.
+	 */
+	private static String row(String... values) {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				line.append(',');
+			}
+			if (values[i] != null) {
+				TableExporter.appendCsv(line, values[i]);
+			}
+		}
+		return line.append('\n').toString();
+	}
+
+	private static List<String> readBack(String csv) throws IOException {
+		List<String> fields = new ArrayList<String>();
+		assertTrue(new CsvReader(new StringReader(csv), ',').read(fields));
+		return fields;
+	}
+
+	public void testEmptyStringIsQuoted() {
+		StringBuilder line = new StringBuilder();
+		TableExporter.appendCsv(line, "");
+		assertEquals("\"\"", line.toString());
+	}
+
+	public void testPlainValueIsNotQuoted() {
+		StringBuilder line = new StringBuilder();
+		TableExporter.appendCsv(line, "plain");
+		assertEquals("plain", line.toString());
+	}
+
+	public void testRoundTripThroughCsvReader() throws IOException {
+		List<String> values = Arrays.asList(null, "", "plain", "a,b", "say \"hi\"", "two\nlines", "cr\r\n", null);
+		assertEquals(values, readBack(row(values.toArray(new String[values.size()]))));
+	}
+
+	public void testRoundTripOfSingleEmptyString() throws IOException {
+		assertEquals(Arrays.asList(""), readBack(row("")));
+		assertEquals(Arrays.asList((String) null), readBack(row((String) null)));
+	}
+}
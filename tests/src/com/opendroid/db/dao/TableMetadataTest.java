@@ -0,0 +1,136 @@
+package com.opendroid.db.dao;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Index;
+import com.opendroid.db.dao.annotations.Indexed;
+import com.opendroid.db.dao.annotations.Table;
+
+public class TableMetadataTest extends TestCase {
+
+	@Table(name = "post", indexes = {
+			@Index(columns = { "author", "created" }),
+			@Index(name = "post_slug", columns = { "slug" }, unique = true, where = "deleted = 0") })
+	public static class Post implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Indexed
+		@Column(name = "author", type = "INTEGER")
+		int author;
+		@Indexed(name = "post_title", unique = true)
+		@Column(name = "title", type = "TEXT")
+		String title;
+		@Column(name = "slug", type = "TEXT")
+		String slug;
+		@Column(name = "created", type = "INTEGER")
+		long created;
+		@Column(name = "deleted", type = "INTEGER")
+		boolean deleted;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	@Table(name = "plain")
+	public static class Plain implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "name", type = "TEXT")
+		String name;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	@Table(name = "broken", indexes = @Index(columns = { "missing" }))
+	public static class UnknownIndexColumn implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	@Table(name = "broken", indexes = @Index(columns = {}))
+	public static class EmptyIndex implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	public void testCreateIndexStatements() {
+		assertEquals(Arrays.asList(
+				"CREATE INDEX IF NOT EXISTS idx_post_author ON post (author)",
+				"CREATE UNIQUE INDEX IF NOT EXISTS post_title ON post (title)",
+				"CREATE INDEX IF NOT EXISTS idx_post_author_created ON post (author, created)",
+				"CREATE UNIQUE INDEX IF NOT EXISTS post_slug ON post (slug) WHERE deleted = 0"),
+				Arrays.asList(TableMetadata.forClass(Post.class).getCreateIndexStatements()));
+	}
+
+	public void testNoIndexes() {
+		assertEquals(0, TableMetadata.forClass(Plain.class).getCreateIndexStatements().length);
+	}
+
+	public void testCreateIndexStatementsAreCopies() {
+		TableMetadata<Post> metadata = TableMetadata.forClass(Post.class);
+		metadata.getCreateIndexStatements()[0] = null;
+		assertNotNull(metadata.getCreateIndexStatements()[0]);
+	}
+
+	public void testIndexOnUnknownColumn() {
+		try {
+			TableMetadata.forClass(UnknownIndexColumn.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("missing"));
+		}
+	}
+
+	public void testIndexWithoutColumns() {
+		try {
+			TableMetadata.forClass(EmptyIndex.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
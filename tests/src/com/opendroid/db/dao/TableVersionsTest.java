@@ -0,0 +1,77 @@
+package com.opendroid.db.dao;
+
+import junit.framework.TestCase;
+
+public class TableVersionsTest extends TestCase {
+
+	private final Object db = new Object();
+
+	public void testWriteOutsideTransactionBumps() {
+		long version = TableVersions.current("versions_plain");
+		TableVersions.bump("versions_plain");
+		assertEquals(version + 1, TableVersions.current("versions_plain"));
+		assertTrue(TableVersions.isCommitted("versions_plain"));
+	}
+
+	public void testTransactionEndedOnSameThread() {
+		long version = TableVersions.current("versions_same");
+		TableVersions.changedInTransaction(db, "versions_same");
+		TableVersions.changedInTransaction(db, "versions_same");
+		assertFalse(TableVersions.isCommitted("versions_same"));
+		TableVersions.transactionEnded(db);
+		assertTrue(TableVersions.isCommitted("versions_same"));
+		assertEquals("bumped by both writes and the end", version + 3, TableVersions.current("versions_same"));
+	}
+
+	public void testOtherDatabaseStaysPending() {
+		TableVersions.changedInTransaction(db, "versions_other");
+		TableVersions.transactionEnded(new Object());
+		assertFalse(TableVersions.isCommitted("versions_other"));
+		TableVersions.transactionEnded(db);
+		assertTrue(TableVersions.isCommitted("versions_other"));
+	}
+
+	public void testTransactionOfOtherThreadStaysPending() throws InterruptedException {
+		final Object started = new Object();
+		final boolean[] release = new boolean[1];
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				TableVersions.changedInTransaction(db, "versions_thread");
+				synchronized (started) {
+					started.notifyAll();
+					while (!release[0]) {
+						try {
+							started.wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				}
+			}
+		};
+		synchronized (started) {
+			writer.start();
+			started.wait();
+			TableVersions.transactionEnded(db);
+			assertFalse(TableVersions.isCommitted("versions_thread"));
+			release[0] = true;
+			started.notifyAll();
+		}
+		writer.join();
+	}
+
+	public void testTransactionOfExitedThreadEnds() throws InterruptedException {
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				TableVersions.changedInTransaction(db, "versions_exited");
+			}
+		};
+		writer.start();
+		writer.join();
+		long version = TableVersions.current("versions_exited");
+		assertTrue(TableVersions.isCommitted("versions_exited"));
+		assertEquals(version + 1, TableVersions.current("versions_exited"));
+	}
+}
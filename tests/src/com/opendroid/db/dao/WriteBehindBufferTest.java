@@ -0,0 +1,60 @@
+package com.opendroid.db.dao;
+
+import junit.framework.TestCase;
+
+import com.opendroid.db.DbModel;
+
+public class WriteBehindBufferTest extends TestCase {
+
+	private static class Model implements DbModel {
+
+		private int id;
+
+		Model(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	// never full and never scheduled, so nothing is flushed
+	private final WriteBehindBuffer<Model> buffer = new WriteBehindBuffer<Model>(null, 100, 0);
+
+	public void testUpdatesOfSameIdCoalesce() throws DAOException {
+		buffer.update(new Model(1));
+		buffer.update(new Model(1));
+		buffer.update(new Model(2));
+		assertEquals(2, buffer.getPendingCount());
+		assertEquals(1, buffer.getCoalescedCount());
+	}
+
+	public void testUpdateReplacesPendingUpsert() throws DAOException {
+		buffer.createOrUpdate(new Model(1));
+		buffer.update(new Model(1));
+		assertEquals("the update must not be written besides the upsert", 1, buffer.getPendingCount());
+		assertEquals(1, buffer.getCoalescedCount());
+	}
+
+	public void testUpsertReplacesPendingUpdate() throws DAOException {
+		buffer.update(new Model(1));
+		buffer.createOrUpdate(new Model(1));
+		assertEquals(1, buffer.getPendingCount());
+		assertEquals(1, buffer.getCoalescedCount());
+	}
+
+	public void testUpdateOfPendingCreate() throws DAOException {
+		Model model = new Model(0);
+		buffer.create(model);
+		buffer.update(model);
+		assertEquals(1, buffer.getPendingCount());
+		assertEquals(1, buffer.getCoalescedCount());
+	}
+}
@@ -0,0 +1,93 @@
+package com.opendroid.db.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+
+import com.opendroid.db.DbConfiguration;
+import com.opendroid.db.DbHelper;
+import com.opendroid.db.DbModel;
+import com.opendroid.db.dao.annotations.Column;
+import com.opendroid.db.dao.annotations.Id;
+import com.opendroid.db.dao.annotations.Table;
+
+public class WriteBehindDatabaseTest extends AndroidTestCase {
+
+	private static final String DATABASE = "write_behind_test.db";
+
+	@Table(name = "note")
+	public static class Note implements DbModel {
+		@Id
+		@Column(name = "_id", type = "INTEGER")
+		int id;
+		@Column(name = "text", type = "TEXT")
+		String text;
+
+		Note() {
+		}
+
+		Note(int id, String text) {
+			this.id = id;
+			this.text = text;
+		}
+
+		@Override
+		public int getId() {
+			return id;
+		}
+
+		@Override
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	public static class NoteDAO extends BaseDAO<Note> {
+		public NoteDAO(Context context, DbHelper helper) {
+			super(context, helper);
+		}
+	}
+
+	private DbHelper helper;
+	private NoteDAO dao;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		getContext().deleteDatabase(DATABASE);
+		helper = DbHelper.init(getContext(), new DbConfiguration.Builder()
+				.setDatabaseName(DATABASE)
+				.setModels(Collections.<DbModel> singletonList(new Note()))
+				.setIdentityCacheSize(NoteDAO.class, 10)
+				.setQueryCacheBudget(100)
+				.setWriteBehind(NoteDAO.class, 100, 0)
+				.build());
+		dao = new NoteDAO(getContext(), helper);
+		dao.create(new Note(0, "old"));
+		dao.flush();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		helper.close();
+		getContext().deleteDatabase(DATABASE);
+		super.tearDown();
+	}
+
+	public void testFindByIdSeesBufferedUpdate() throws DAOException {
+		int id = dao.findAll().get(0).id;
+		assertEquals("old", dao.findById(id).text);
+		dao.update(new Note(id, "new"));
+		assertEquals("new", dao.findById(id).text);
+		assertEquals("new", dao.findByIds(new int[] { id }).get(id).text);
+	}
+
+	public void testFindAllSeesBufferedUpdate() throws DAOException {
+		List<Note> notes = dao.findAll();
+		assertEquals("old", notes.get(0).text);
+		dao.update(new Note(notes.get(0).id, "new"));
+		assertEquals("new", dao.findAll().get(0).text);
+	}
+}